@@ -0,0 +1,81 @@
+package game;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The CoinRegistryBenchmark class measures what a pickup asks of the coin
+ * registry: the effect on the step size, the type of the replacement and a
+ * random draw by spawn weight. The draw is measured both through the alias
+ * table and through a walk over the cumulative weights, which is what a
+ * draw costs when it grows with the number of types.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoinRegistryBenchmark {
+
+    @Param({"3", "48"})
+    public int typeCount;
+
+    private CoinRegistry registry;
+    private int[] cumulative;
+    private DeterministicRandom random;
+    private int code;
+    private int step = 4;
+
+    @Setup
+    public void setup() {
+        CoinType[] types = new CoinType[typeCount];
+        cumulative = new int[typeCount];
+        for (int t = 0; t < typeCount; t++) {
+            int weight = 1 + t % 7;
+            types[t] = new CoinType("type" + t, t % 5 - 1, Color.YELLOW,
+                    Simulation.COIN_POINTS, weight, 0, t % 3 - 1, 2, 6,
+                    t % 2 == 0 ? null : "type0");
+            cumulative[t] = (t == 0 ? 0 : cumulative[t - 1]) + weight;
+        }
+        registry = new CoinRegistry(types);
+        random = new DeterministicRandom(42);
+    }
+
+    @Benchmark
+    public int pickUp() {
+        code = (code + 1) % typeCount;
+        step = registry.stepAfter(code, step);
+        return step + registry.respawnOf(code, random);
+    }
+
+    @Benchmark
+    public byte aliasSample() {
+        return registry.sample(random);
+    }
+
+    @Benchmark
+    public int linearSample() {
+        int draw = random.nextInt(cumulative[typeCount - 1]);
+        int t = 0;
+        while (cumulative[t] <= draw) {
+            t++;
+        }
+        return t;
+    }
+}
@@ -0,0 +1,105 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The CollisionBenchmark class measures one collision pass of every player
+ * against the coins, once through the grid of a CoinStore, as the
+ * simulation does it, and once by testing every pair, which is how the game
+ * used to do it. The grid pass is also run with the vertex ray-casting test
+ * the separating axis test replaced. Nothing is picked up, so the scene is
+ * the same for every call.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int coinCount;
+
+    @Param({"2", "16", "64"})
+    public int playerCount;
+
+    private Player[] players;
+    private ArrayList<TypedCoin> coins;
+    private CoinStore store;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        players = Simulation.createPlayers(playerCount);
+        coins = new ArrayList<TypedCoin>(coinCount);
+        store = new CoinStore(CoinRegistry.builtIn());
+        store.reserve(coinCount);
+        for (int i = 0; i < coinCount; i++) {
+            TypedCoin coin = new TypedCoin(CoinRegistry.builtIn().get(0),
+                    new Point(random.nextInt(801), random.nextInt(601)), 0);
+            coins.add(coin);
+            store.add(i, (byte) 0, coin.position.x, coin.position.y);
+        }
+    }
+
+    @Benchmark
+    public int grid() {
+        int hits = 0;
+        for (Player player : players) {
+            int found = store.query(player.getMinX(), player.getMinY(),
+                    player.getMaxX(), player.getMaxY());
+            for (int f = 0; f < found; f++) {
+                if (store.touches(store.getFound(f), player)) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int gridRayCasting() {
+        int hits = 0;
+        for (Player player : players) {
+            int found = store.query(player.getMinX(), player.getMinY(),
+                    player.getMaxX(), player.getMaxY());
+            for (int f = 0; f < found; f++) {
+                if (player.collidesByRayCasting(coins.get(store.getFound(f)))) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int allPairs() {
+        int hits = 0;
+        for (Player player : players) {
+            for (int i = 0; i < coins.size(); i++) {
+                if (player.collides(coins.get(i))) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,110 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The PaintBenchmark class measures the paint methods of the coins and the
+ * player against an offscreen image the size of the game window, so it runs
+ * on machines without a display. Offscreen the paint methods draw coins
+ * from sprites but fill the player's polygon, so the sprite benchmarks draw
+ * the same shapes from a SpriteCache that uses sprites everywhere for
+ * comparison. The rotating benchmarks turn
+ * the player every call, as a player that keeps turning does.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+
+    private BufferedImage image;
+    private Graphics2D brush;
+    private TypedCoin defaultCoin;
+    private TypedCoin speedCoin;
+    private TypedCoin slowCoin;
+    private Player player;
+    private SpriteCache sprites;
+
+    @Setup
+    public void setup() {
+        image = new BufferedImage(Simulation.WIDTH, Simulation.HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        brush = image.createGraphics();
+        defaultCoin = new TypedCoin(CoinRegistry.builtIn().get(0),
+                new Point(100, 100), 0);
+        speedCoin = new TypedCoin(CoinRegistry.builtIn().get(1),
+                new Point(200, 100), 0);
+        slowCoin = new TypedCoin(CoinRegistry.builtIn().get(2),
+                new Point(300, 100), 0);
+        player = new Player(Simulation.PLAYER_POINTS, new Point(400, 300), 0);
+        sprites = new SpriteCache(SpriteCache.DEFAULT_STEPS,
+                SpriteCache.DEFAULT_MAX_SPRITES, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        brush.dispose();
+    }
+
+    @Benchmark
+    public void defaultCoin() {
+        defaultCoin.paint(brush);
+    }
+
+    @Benchmark
+    public void speedCoin() {
+        speedCoin.paint(brush);
+    }
+
+    @Benchmark
+    public void slowCoin() {
+        slowCoin.paint(brush);
+    }
+
+    @Benchmark
+    public void player() {
+        player.paint(brush);
+    }
+
+    @Benchmark
+    public void playerRotating() {
+        player.rotation = (player.rotation + 1) % 360;
+        player.paint(brush);
+    }
+
+    @Benchmark
+    public void defaultCoinSprite() {
+        sprites.fill(brush, defaultCoin, Color.YELLOW);
+    }
+
+    @Benchmark
+    public void playerSprite() {
+        sprites.fill(brush, player, Color.RED);
+    }
+
+    @Benchmark
+    public void playerRotatingSprite() {
+        player.rotation = (player.rotation + 1) % 360;
+        sprites.fill(brush, player, Color.RED);
+    }
+}
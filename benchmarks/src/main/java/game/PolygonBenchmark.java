@@ -0,0 +1,95 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The PolygonBenchmark class measures the geometry calls every frame is made
+ * of: getPoints, contains and collides, the last both through the separating
+ * axis test and through the vertex ray-casting it replaced. With moving set,
+ * the player turns by a degree before every call so the vertex transform has
+ * to be redone, which is the cost a moving entity pays; otherwise the cached
+ * vertices are used.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolygonBenchmark {
+
+    @Param({"false", "true"})
+    public boolean moving;
+
+    private Player player;
+    private TypedCoin touchingCoin;
+    private TypedCoin farCoin;
+    private Point inside;
+
+    @Setup
+    public void setup() {
+        player = new Player(Simulation.PLAYER_POINTS, new Point(400, 300), 0);
+        touchingCoin = new TypedCoin(CoinRegistry.builtIn().get(0),
+                new Point(405, 305), 0);
+        farCoin = new TypedCoin(CoinRegistry.builtIn().get(0),
+                new Point(100, 100), 0);
+        inside = new Point(405, 305);
+    }
+
+    private void turn() {
+        if (moving) {
+            player.rotate(1);
+        }
+    }
+
+    @Benchmark
+    public Point[] getPoints() {
+        turn();
+        return player.getPoints();
+    }
+
+    @Benchmark
+    public boolean contains() {
+        turn();
+        return player.contains(inside);
+    }
+
+    @Benchmark
+    public boolean collidesTouching() {
+        turn();
+        return player.collides(touchingCoin);
+    }
+
+    @Benchmark
+    public boolean collidesApart() {
+        turn();
+        return player.collides(farCoin);
+    }
+
+    @Benchmark
+    public boolean rayCastingTouching() {
+        turn();
+        return player.collidesByRayCasting(touchingCoin);
+    }
+
+    @Benchmark
+    public boolean rayCastingApart() {
+        turn();
+        return player.collidesByRayCasting(farCoin);
+    }
+}
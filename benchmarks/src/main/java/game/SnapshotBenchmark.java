@@ -0,0 +1,143 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The SnapshotBenchmark class measures snapshot replication: encoding a tick
+ * as a delta against the previous tick or in full, and decoding the delta.
+ * The match is advanced by one tick before every call, with every player
+ * holding a random set of keys. The bytesPerTick counter reports the average size
+ * of what was encoded, i.e. the bytes per tick one client receives.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Param({"11", "1000"})
+    public int coinCount;
+
+    @Param({"2", "64"})
+    public int playerCount;
+
+    /**
+     * The Bytes class reports the average encoded size as a secondary result.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        private long total;
+        private long ticks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            total = 0;
+            ticks = 0;
+        }
+
+        void add(int size) {
+            total += size;
+            ticks++;
+        }
+
+        public double bytesPerTick() {
+            return ticks == 0 ? 0 : (double) total / ticks;
+        }
+    }
+
+    private Simulation simulation;
+    private int[] inputs;
+    private SnapshotHistory serverHistory;
+    private SnapshotHistory clientHistory;
+    private SnapshotCodec codec;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        simulation = new Simulation(Simulation.createPlayers(playerCount), 42,
+                Simulation.DEFAULT_TICK_NANOS);
+        simulation.setScoreLimit(Integer.MAX_VALUE);
+        simulation.spawnCoins(Math.max(0,
+                coinCount - simulation.getCoinCount()));
+        Random random = new Random(7);
+        inputs = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            inputs[i] = random.nextInt(16);
+        }
+        serverHistory = new SnapshotHistory(4);
+        clientHistory = new SnapshotHistory(4);
+        codec = new SnapshotCodec();
+        buffer = ByteBuffer.allocate(1 << 20);
+
+        // Both sides start from the same snapshot
+        advance();
+        clientHistory.slot(simulation.getTickCount())
+                .copyFrom(serverHistory.get(simulation.getTickCount()));
+    }
+
+    /**
+     * Ticks the match and captures the new tick on the server side.
+     *
+     * @return The new snapshot.
+     */
+    private Snapshot advance() {
+        simulation.tick(inputs);
+        long tick = simulation.getTickCount();
+        Snapshot snapshot = serverHistory.slot(tick);
+        snapshot.capture(tick, simulation);
+        return snapshot;
+    }
+
+    @Benchmark
+    public int encodeDelta(Bytes counter) {
+        Snapshot current = advance();
+        buffer.clear();
+        SnapshotCodec.encode(buffer, current,
+                serverHistory.get(current.getTick() - 1));
+        counter.add(buffer.position());
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int encodeFull(Bytes counter) {
+        Snapshot current = advance();
+        buffer.clear();
+        SnapshotCodec.encode(buffer, current, null);
+        counter.add(buffer.position());
+        return buffer.position();
+    }
+
+    @Benchmark
+    public boolean encodeAndDecodeDelta(Bytes counter) {
+        Snapshot current = advance();
+        buffer.clear();
+        SnapshotCodec.encode(buffer, current,
+                serverHistory.get(current.getTick() - 1));
+        counter.add(buffer.position());
+        buffer.flip();
+        return codec.decode(buffer, clientHistory,
+                clientHistory.slot(current.getTick()));
+    }
+}
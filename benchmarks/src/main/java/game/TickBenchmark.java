@@ -0,0 +1,65 @@
+package game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The TickBenchmark class measures one full Simulation tick: moving every
+ * player, the collision pass, pickups and respawns. Every player holds a
+ * random set of keys for the whole iteration and the score limit is lifted
+ * so the map is never cleared by a game over.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int coinCount;
+
+    @Param({"2", "8", "64"})
+    public int playerCount;
+
+    private Simulation simulation;
+    private int[] inputs;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        simulation = new Simulation(Simulation.createPlayers(playerCount), 42,
+                Simulation.DEFAULT_TICK_NANOS);
+        simulation.setScoreLimit(Integer.MAX_VALUE);
+        simulation.spawnCoins(Math.max(0,
+                coinCount - simulation.getCoinCount()));
+
+        Random random = new Random(7);
+        inputs = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            inputs[i] = random.nextInt(16);
+        }
+    }
+
+    @Benchmark
+    public long tick() {
+        simulation.tick(inputs);
+        return simulation.getTickCount();
+    }
+}
@@ -0,0 +1,103 @@
+package game;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ViewBenchmark class measures painting the coins one camera sees in a
+ * world much larger than the window, with the coins spread evenly over it.
+ * inView finds them through the grid of the coin store as the Survivor
+ * canvas does; everyCoin looks at every coin and paints those in view, as
+ * painting did before there were cameras. The first should only grow with
+ * the coins in view, the second with all of them.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ViewBenchmark {
+
+    @Param({"1000", "100000", "400000"})
+    public int coinCount;
+
+    @Param({"32000"})
+    public int worldWidth;
+
+    private Simulation simulation;
+    private Camera camera;
+    private BufferedImage image;
+    private Graphics2D brush;
+
+    @Setup
+    public void setup() {
+        int worldHeight = worldWidth * 3 / 4;
+        simulation = new Simulation(Simulation.createPlayers(2), 42,
+                Simulation.DEFAULT_TICK_NANOS, worldWidth, worldHeight);
+        simulation.spawnCoins(Math.max(0,
+                coinCount - simulation.getCoinCount()));
+        camera = new Camera(0, 0, Simulation.WIDTH, Simulation.HEIGHT);
+        camera.follow(worldWidth / 2, worldHeight / 2, worldWidth, worldHeight);
+
+        image = new BufferedImage(Simulation.WIDTH, Simulation.HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        brush = image.createGraphics();
+        brush.translate(-camera.getX(), -camera.getY());
+    }
+
+    @TearDown
+    public void tearDown() {
+        brush.dispose();
+    }
+
+    @Benchmark
+    public int inView() {
+        int painted = 0;
+        int found = simulation.findCoins(camera.getX(), camera.getY(),
+                camera.getX() + camera.getWidth(),
+                camera.getY() + camera.getHeight());
+        for (int f = 0; f < found; f++) {
+            Coin coin = simulation.getCoin(simulation.getFoundCoin(f));
+            Polygon shape = (Polygon) coin;
+            if (camera.sees(shape.getMinX(), shape.getMinY(), shape.getMaxX(),
+                    shape.getMaxY())) {
+                coin.paint(brush);
+                painted++;
+            }
+        }
+        return painted;
+    }
+
+    @Benchmark
+    public int everyCoin() {
+        int painted = 0;
+        for (int i = 0; i < simulation.getCoinCount(); i++) {
+            Coin coin = simulation.getCoin(i);
+            Polygon shape = (Polygon) coin;
+            if (camera.sees(shape.getMinX(), shape.getMinY(), shape.getMaxX(),
+                    shape.getMaxY())) {
+                coin.paint(brush);
+                painted++;
+            }
+        }
+        return painted;
+    }
+}
@@ -0,0 +1,44 @@
+package game;
+
+/**
+ * The Bot interface is a computer controller for one player seat. Once per
+ * tick it looks at the match and gives the input bits for its player, in
+ * place of a keyboard, so bots can fill seats in a local game or play whole
+ * matches against each other in SelfPlay.
+ *
+ * A bot should decide from the match and its own state only, using its own
+ * seeded random numbers if any, so a match between bots is reproducible.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public interface Bot {
+
+    /**
+     * Decides the input of the bot's player for the coming tick.
+     *
+     * @param view The match.
+     * @param seat The index of the bot's player.
+     * @return The FORWARD, BACKWARD, ROTATE_RIGHT and ROTATE_LEFT bits to
+     * hold for the tick.
+     */
+    public int decide(MatchView view, int seat);
+
+    /**
+     * Makes a bot by name: "random" for RandomBot or "greedy" for GreedyBot.
+     *
+     * @param name The name of the kind of bot.
+     * @param seed The seed for any random choices the bot makes.
+     * @return The bot.
+     */
+    public static Bot create(String name, long seed) {
+        switch (name) {
+            case "random":
+                return new RandomBot(seed);
+            case "greedy":
+                return new GreedyBot();
+            default:
+                throw new IllegalArgumentException("Unknown bot: " + name);
+        }
+    }
+}
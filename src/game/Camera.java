@@ -0,0 +1,167 @@
+package game;
+
+/**
+ * The Camera class is the part of a world that shows in one viewport of the
+ * canvas. A viewport is a fixed rectangle of the canvas; the camera keeps
+ * the player it follows in the middle of it, except near the edges of the
+ * world, where it stops so nothing outside the world is shown.
+ *
+ * The camera only moves by whole pixels, so sprites drawn through it land
+ * on the same pixels from one frame to the next while it stands still.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class Camera {
+    // Instance variables for the viewport on the canvas
+    private final int screenX, screenY;
+    private final int width, height;
+
+    // Instance variables for the top left corner of the view in the world
+    private int x, y;
+
+    /**
+     * Constructs a Camera looking at the top left corner of the world.
+     *
+     * @param inScreenX The left edge of the viewport on the canvas.
+     * @param inScreenY The top edge of the viewport on the canvas.
+     * @param inWidth   The width of the viewport.
+     * @param inHeight  The height of the viewport.
+     */
+    public Camera(int inScreenX, int inScreenY, int inWidth, int inHeight) {
+        screenX = inScreenX;
+        screenY = inScreenY;
+        width = inWidth;
+        height = inHeight;
+    }
+
+    /**
+     * Splits a canvas into viewports that cover it, in rows of as many
+     * columns as there are rows or one more. A last row with fewer viewports
+     * shares the whole width between them.
+     *
+     * @param count        The number of viewports.
+     * @param canvasWidth  The width of the canvas.
+     * @param canvasHeight The height of the canvas.
+     * @return The cameras, one per viewport, left to right and top to
+     * bottom.
+     */
+    public static Camera[] split(int count, int canvasWidth, int canvasHeight) {
+        int columns = (int) Math.ceil(Math.sqrt(count));
+        int rows = (count + columns - 1) / columns;
+        Camera[] cameras = new Camera[count];
+        for (int i = 0; i < count; i++) {
+            int row = i / columns, column = i % columns;
+            int inRow = Math.min(columns, count - row * columns);
+            int left = canvasWidth * column / inRow;
+            int top = canvasHeight * row / rows;
+            cameras[i] = new Camera(left, top,
+                    canvasWidth * (column + 1) / inRow - left,
+                    canvasHeight * (row + 1) / rows - top);
+        }
+        return cameras;
+    }
+
+    /**
+     * Moves the view so a point is in its middle, as far as the world
+     * allows. A world smaller than the viewport is shown in its middle.
+     *
+     * @param targetX     The x coordinate of the point in the world.
+     * @param targetY     The y coordinate of the point in the world.
+     * @param worldWidth  The width of the world.
+     * @param worldHeight The height of the world.
+     * @return True if the view moved.
+     */
+    public boolean follow(double targetX, double targetY, int worldWidth,
+            int worldHeight) {
+        int newX = clamp((int) Math.floor(targetX) - width / 2,
+                worldWidth - width);
+        int newY = clamp((int) Math.floor(targetY) - height / 2,
+                worldHeight - height);
+        boolean moved = newX != x || newY != y;
+        x = newX;
+        y = newY;
+        return moved;
+    }
+
+    /**
+     * Checks if a box in the world shows in the view.
+     *
+     * @param minX The left edge of the box.
+     * @param minY The top edge of the box.
+     * @param maxX The right edge of the box.
+     * @param maxY The bottom edge of the box.
+     * @return True if any of the box is in view.
+     */
+    public boolean sees(double minX, double minY, double maxX, double maxY) {
+        return maxX >= x && minX <= x + width && maxY >= y && minY <= y + height;
+    }
+
+    /**
+     * Gets the left edge of the view in the world.
+     *
+     * @return The x coordinate.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Gets the top edge of the view in the world.
+     *
+     * @return The y coordinate.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Gets the left edge of the viewport on the canvas.
+     *
+     * @return The x coordinate.
+     */
+    public int getScreenX() {
+        return screenX;
+    }
+
+    /**
+     * Gets the top edge of the viewport on the canvas.
+     *
+     * @return The y coordinate.
+     */
+    public int getScreenY() {
+        return screenY;
+    }
+
+    /**
+     * Gets the width of the viewport.
+     *
+     * @return The width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the viewport.
+     *
+     * @return The height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /*
+    The following method is a private helper for keeping the view inside
+    the world.
+    */
+
+    // "clamp" keeps a coordinate between 0 and the largest one that still
+    // shows no more than the world, or centers it if the world is smaller.
+    private static int clamp(int coordinate, int max) {
+        if (max < 0) {
+            return max / 2;
+        }
+        return Math.max(0, Math.min(max, coordinate));
+    }
+}
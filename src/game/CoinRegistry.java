@@ -0,0 +1,388 @@
+package game;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * The CoinRegistry class holds every kind of coin a match can have. Each
+ * CoinType gets a type code from its place in the registry, which is what
+ * the coin store, snapshots and replays carry, and the simulation looks up
+ * everything about a coin by that code: its value, its effect on the player
+ * and what respawns in its place. The lookups are array reads, so a registry
+ * with dozens of types costs a pickup no more than one with three.
+ *
+ * Random respawns are drawn with an alias table (Vose's method) built once
+ * from the spawn weights: a single random number picks a column and, within
+ * it, either the column's own type or its alias, so a draw takes the same
+ * time however many types there are. The table is kept in whole numbers,
+ * which keeps the draw exact and a match reproducible from its seed.
+ *
+ * Types are read from a properties file that lists them in code order and
+ * describes each under its name:
+ *
+ * <pre>
+ * types = default, speed, slow
+ * default.value = 1
+ * default.color = #FFFF00
+ * default.weight = 6
+ * default.initial = 10
+ * speed.value = 2
+ * speed.color = #00FF00
+ * speed.shape = 0 -5, 5 0, 0 5, -5 0
+ * speed.step = 2
+ * speed.maxStep = 6
+ * speed.respawn = default
+ * </pre>
+ *
+ * value and color are required; weight, initial and step default to 0,
+ * minStep to 1, maxStep to no limit, shape to the classic diamond and
+ * respawn to a random type. The registry every match uses unless given
+ * another is read from the file named by the survivor.coins system
+ * property, or is the built in normal, speed and slow coins. Clients and
+ * servers should use the same types, since only the codes are sent.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public final class CoinRegistry {
+    // Most types a registry holds, so that codes fit a positive byte
+    public static final int MAX_TYPES = 127;
+
+    // System property naming the file of the registry used by default
+    public static final String PROPERTY = "survivor.coins";
+
+    // The registry matches use unless given another
+    private static final CoinRegistry DEFAULT = loadDefault();
+
+    // Instance variables for the types and the tables made from them,
+    // indexed by type code
+    private final CoinType[] types;
+    private final HashMap<String, Byte> codes = new HashMap<String, Byte>();
+    private final int[] values;
+    private final int[] stepChanges, minSteps, maxSteps;
+    private final byte[] respawns;
+
+    // Instance variables for the alias table: each column holds its own type
+    // for draws below its threshold and its alias for the rest
+    private final byte[] columnTypes;
+    private final int[] thresholds;
+    private final byte[] aliases;
+    private final int totalWeight;
+
+    /**
+     * Constructs a CoinRegistry. The types get their codes in the order
+     * given.
+     *
+     * @param inTypes The types, at least one and at most MAX_TYPES.
+     */
+    public CoinRegistry(CoinType... inTypes) {
+        if (inTypes.length == 0 || inTypes.length > MAX_TYPES) {
+            throw new IllegalArgumentException("A registry holds 1 to "
+                    + MAX_TYPES + " coin types");
+        }
+        types = inTypes.clone();
+        int n = types.length;
+        values = new int[n];
+        stepChanges = new int[n];
+        minSteps = new int[n];
+        maxSteps = new int[n];
+        respawns = new byte[n];
+
+        long weights = 0;
+        int weighted = 0;
+        for (int t = 0; t < n; t++) {
+            CoinType type = types[t];
+            if (codes.put(type.getName(), (byte) t) != null) {
+                throw new IllegalArgumentException("Coin type "
+                        + type.getName() + " is defined twice");
+            }
+            values[t] = type.getValue();
+            stepChanges[t] = type.getStepChange();
+            minSteps[t] = type.getMinStep();
+            maxSteps[t] = type.getMaxStep();
+            weights += type.getWeight();
+            if (type.getWeight() > 0) {
+                weighted++;
+            }
+        }
+        boolean drawn = false;
+        for (int t = 0; t < n; t++) {
+            String respawn = types[t].getRespawn();
+            if (respawn == null) {
+                respawns[t] = -1;
+                drawn = true;
+            } else if (codes.containsKey(respawn)) {
+                respawns[t] = codes.get(respawn);
+            } else {
+                throw new IllegalArgumentException("Coin type "
+                        + types[t].getName() + " respawns unknown type " + respawn);
+            }
+        }
+        if (drawn && weights == 0) {
+            throw new IllegalArgumentException(
+                    "Random respawns need a coin type with a spawn weight");
+        }
+        if (weights * weighted > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Spawn weights are too large");
+        }
+
+        totalWeight = (int) weights;
+        columnTypes = new byte[weighted];
+        thresholds = new int[weighted];
+        aliases = new byte[weighted];
+        buildAliasTable();
+    }
+
+    /**
+     * Makes the built in registry: normal coins worth 1 that respawn as a
+     * random type, and speed and slow coins that change the step size by 2
+     * within 2 to 6 and respawn as normal coins. A normal coin respawns as
+     * a speed or a slow coin one time in eight each.
+     *
+     * @return The registry.
+     */
+    public static CoinRegistry builtIn() {
+        return new CoinRegistry(
+                new CoinType("default", 1, Color.YELLOW, Simulation.COIN_POINTS,
+                        6, 10, 0, 1, Integer.MAX_VALUE, null),
+                new CoinType("speed", 2, Color.GREEN, Simulation.COIN_POINTS,
+                        1, 1, 2, 1, 6, "default"),
+                new CoinType("slow", -1, Color.RED, Simulation.COIN_POINTS,
+                        1, 0, -2, 2, Integer.MAX_VALUE, "default"));
+    }
+
+    /**
+     * Reads a registry from a properties file.
+     *
+     * @param file The file.
+     * @return The registry.
+     * @throws IOException If the file cannot be read or does not describe
+     * valid coin types.
+     */
+    public static CoinRegistry load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file,
+                StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            String list = properties.getProperty("types");
+            if (list == null) {
+                throw new IllegalArgumentException("No types listed");
+            }
+            String[] names = list.trim().split("\\s*,\\s*");
+            CoinType[] types = new CoinType[names.length];
+            for (int t = 0; t < names.length; t++) {
+                types[t] = parseType(properties, names[t]);
+            }
+            return new CoinRegistry(types);
+        } catch (IllegalArgumentException exc) {
+            throw new IOException("Bad coin types in " + file + ": "
+                    + exc.getMessage(), exc);
+        }
+    }
+
+    /**
+     * Gets the registry matches use unless given another: the one read from
+     * the file named by the survivor.coins system property, or the built in
+     * one if it is not set.
+     *
+     * @return The registry.
+     */
+    public static CoinRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets the number of types.
+     *
+     * @return The number of types, codes run from 0 to this - 1.
+     */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * Gets a type by its code.
+     *
+     * @param code The type code.
+     * @return The type.
+     */
+    public CoinType get(int code) {
+        return types[code];
+    }
+
+    /**
+     * Finds the code of a type by its name.
+     *
+     * @param name The name of the type.
+     * @return The type code, or -1 if there is no such type.
+     */
+    public int getCode(String name) {
+        Byte code = codes.get(name);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Gets the points a coin of a type is worth.
+     *
+     * @param code The type code.
+     * @return The value.
+     */
+    public int getValue(int code) {
+        return values[code];
+    }
+
+    /**
+     * Works out the step size of a player after picking up a coin.
+     *
+     * @param code The type code of the coin.
+     * @param step The step size of the player before.
+     * @return The step size after.
+     */
+    public int stepAfter(int code, int step) {
+        int change = stepChanges[code];
+        if (change == 0) {
+            return step;
+        }
+        return Math.max(minSteps[code], Math.min(maxSteps[code], step + change));
+    }
+
+    /**
+     * Picks the type of the coin that replaces a picked up one.
+     *
+     * @param code   The type code of the picked up coin.
+     * @param random The random generator of the match, used if the type
+     * does not name its replacement.
+     * @return The type code of the replacement.
+     */
+    public byte respawnOf(int code, Random random) {
+        byte respawn = respawns[code];
+        return respawn >= 0 ? respawn : sample(random);
+    }
+
+    /**
+     * Draws a type at random by spawn weight, with one random number.
+     *
+     * @param random The random generator to draw from.
+     * @return The type code.
+     */
+    public byte sample(Random random) {
+        int draw = random.nextInt(columnTypes.length * totalWeight);
+        int column = draw / totalWeight;
+        return draw % totalWeight < thresholds[column]
+                ? columnTypes[column] : aliases[column];
+    }
+
+    /*
+    The following methods are private helpers for building the alias table
+    and reading types from properties.
+    */
+
+    // "buildAliasTable" fills every column to the total weight: a type
+    // below its share is topped up with a type above it, which moves on to
+    // the next column once it is at or below its share itself.
+    private void buildAliasTable() {
+        int n = columnTypes.length;
+        long[] scaled = new long[n];
+        int[] small = new int[n], large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        int column = 0;
+        for (int t = 0; t < types.length; t++) {
+            if (types[t].getWeight() > 0) {
+                columnTypes[column] = (byte) t;
+                scaled[column] = (long) types[t].getWeight() * n;
+                if (scaled[column] < totalWeight) {
+                    small[smallCount++] = column;
+                } else {
+                    large[largeCount++] = column;
+                }
+                column++;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            thresholds[less] = (int) scaled[less];
+            aliases[less] = columnTypes[more];
+            scaled[more] -= totalWeight - scaled[less];
+            if (scaled[more] < totalWeight) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        while (largeCount > 0) {
+            int full = large[--largeCount];
+            thresholds[full] = totalWeight;
+            aliases[full] = columnTypes[full];
+        }
+        while (smallCount > 0) {
+            int full = small[--smallCount];
+            thresholds[full] = totalWeight;
+            aliases[full] = columnTypes[full];
+        }
+    }
+
+    private static CoinType parseType(Properties properties, String name) {
+        String value = properties.getProperty(name + ".value");
+        String color = properties.getProperty(name + ".color");
+        if (value == null || color == null) {
+            throw new IllegalArgumentException("Coin type " + name
+                    + " needs a value and a color");
+        }
+        String shape = properties.getProperty(name + ".shape");
+        return new CoinType(name, Integer.parseInt(value.trim()),
+                Color.decode(color.trim()),
+                shape == null ? Simulation.COIN_POINTS : parseShape(shape),
+                intProperty(properties, name + ".weight", 0),
+                intProperty(properties, name + ".initial", 0),
+                intProperty(properties, name + ".step", 0),
+                intProperty(properties, name + ".minStep", 1),
+                intProperty(properties, name + ".maxStep", Integer.MAX_VALUE),
+                properties.getProperty(name + ".respawn") == null ? null
+                        : properties.getProperty(name + ".respawn").trim());
+    }
+
+    private static int intProperty(Properties properties, String key,
+            int fallback) {
+        String text = properties.getProperty(key);
+        return text == null ? fallback : Integer.parseInt(text.trim());
+    }
+
+    // "parseShape" reads corners written as "x y" pairs separated by commas.
+    private static Point[] parseShape(String text) {
+        String[] corners = text.trim().split("\\s*,\\s*");
+        Point[] shape = new Point[corners.length];
+        for (int i = 0; i < corners.length; i++) {
+            String[] xy = corners[i].split("\\s+");
+            if (xy.length != 2) {
+                throw new IllegalArgumentException("Bad corner " + corners[i]);
+            }
+            shape[i] = new Point(Double.parseDouble(xy[0]),
+                    Double.parseDouble(xy[1]));
+        }
+        return shape;
+    }
+
+    private static CoinRegistry loadDefault() {
+        String file = System.getProperty(PROPERTY);
+        if (file == null) {
+            return builtIn();
+        }
+        try {
+            return load(Paths.get(file));
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
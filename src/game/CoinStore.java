@@ -0,0 +1,663 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The CoinStore class keeps every coin of a match in parallel primitive
+ * arrays instead of one object per coin. A coin is an index into the arrays:
+ * its id, type code, position, rotation and value. Removing a coin moves the
+ * last coin into its slot, so removal is constant time and the arrays stay
+ * packed; the order of coins is therefore not stable.
+ *
+ * The store also files every coin under the grid cell of its position, in
+ * a table of hashed grid buckets, so the coins near a player or
+ * in view can be found without looking at all of them. The table doubles
+ * whenever there are more than BUCKET_LOAD coins per bucket, so a query in
+ * a large world with many coins still only looks at about as many coins as
+ * lie in the cells it covers. A coin is found if
+ * its position lies in the query box grown by the size of the largest coin
+ * shape.
+ *
+ * The store also keeps the coins in order of id, for snapshots, which list
+ * coins that way, and for finding a coin by id. The simulation only ever
+ * adds coins with a higher id than any before, so a new coin goes at the
+ * end of the order and a removed one leaves a gap there that is squeezed
+ * out the next time the order is read; nothing is sorted. Coins added out
+ * of order, as when a saved state is restored, are sorted once when the
+ * order is next needed.
+ *
+ * What a type code means comes from the CoinRegistry the store was made
+ * with. Coins are still painted through the Coin interface: getCoin returns
+ * one shared TypedCoin per type, moved to the coin's position. A code the
+ * registry does not know, as from a server with more types, is valued and
+ * drawn as type 0.
+ *
+ * The store is therefore also the pool coins are respawned from: a pickup
+ * frees a slot and the respawned coin is written into it, so no object is
+ * made. The arrays only grow when more coins are alive at once than ever
+ * before, and never shrink. reserve sizes them up front, and getHits and
+ * getMisses count the adds that found room and the ones that had to grow
+ * an array.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class CoinStore {
+    // Side of one grid cell, a bit larger than a coin
+    private static final double CELL_SIZE = 32;
+    private static final int MIN_BUCKETS = 1024;
+
+    // Coins per bucket above which the table of buckets doubles
+    private static final int BUCKET_LOAD = 2;
+
+    // Instance variables for the coins, indexed from 0 to count - 1
+    private int count;
+    private int[] id = new int[16];
+    private byte[] type = new byte[16];
+    private double[] x = new double[16], y = new double[16];
+    private double[] rotation = new double[16];
+    private int[] value = new int[16];
+
+    // Instance variables for the grid: the bucket each coin is filed in and
+    // its slot there, and the coin indexes in each bucket
+    private int[] bucketOf = new int[16];
+    private int[] slotOf = new int[16];
+    private int[][] buckets = new int[MIN_BUCKETS][];
+    private int[] bucketSizes = new int[MIN_BUCKETS];
+
+    // Pool statistics: adds that fit in the arrays as they were, and adds
+    // that had to grow the coin arrays or a bucket
+    private long hits, misses;
+
+    // Instance variables for the id order: the index of each coin, or -1
+    // where a removed coin was, the ids for searching, each coin's place in
+    // the order, and whether coins were added out of order since it was
+    // last sorted
+    private int[] order = new int[16];
+    private int[] orderIds = new int[16];
+    private int[] orderSlot = new int[16];
+    private int orderCount, orderGaps;
+    private boolean orderStale;
+    private long[] sortKeys = new long[0];
+
+    // Results of the last query
+    private int[] found = new int[16];
+
+    // One painter and value per type, and where the corners of each type's
+    // shape lie relative to the coin's position
+    private final CoinRegistry registry;
+    private final TypedCoin[] painters;
+    private final int[] values;
+    private final double[][] cornerXs, cornerYs;
+    private final double[] minCornerXs, minCornerYs, maxCornerXs, maxCornerYs;
+    private double minCornerX, minCornerY, maxCornerX, maxCornerY;
+
+    // The convex pieces of each type's shape, and the corners of the coin
+    // being tested moved to its position
+    private final int[][][] pieces;
+    private double[] testXs = new double[0], testYs = new double[0];
+    private double[] testBounds = new double[0];
+
+    /**
+     * Constructs an empty CoinStore for the default coin types.
+     */
+    public CoinStore() {
+        this(CoinRegistry.getDefault());
+    }
+
+    /**
+     * Constructs an empty CoinStore.
+     *
+     * @param inRegistry The coin types the codes refer to.
+     */
+    public CoinStore(CoinRegistry inRegistry) {
+        registry = inRegistry;
+        int typeCount = registry.size();
+        painters = new TypedCoin[typeCount];
+        values = new int[typeCount];
+        cornerXs = new double[typeCount][];
+        cornerYs = new double[typeCount][];
+        minCornerXs = new double[typeCount];
+        minCornerYs = new double[typeCount];
+        maxCornerXs = new double[typeCount];
+        maxCornerYs = new double[typeCount];
+        pieces = new int[typeCount][][];
+        for (int t = 0; t < typeCount; t++) {
+            TypedCoin shape = new TypedCoin(registry.get(t), new Point(0, 0), 0);
+            painters[t] = shape;
+            values[t] = shape.getCoinValue();
+            cornerXs[t] = Arrays.copyOf(shape.getXs(), shape.getPointCount());
+            cornerYs[t] = Arrays.copyOf(shape.getYs(), shape.getPointCount());
+            double[] sortedXs = cornerXs[t].clone();
+            double[] sortedYs = cornerYs[t].clone();
+            Arrays.sort(sortedXs);
+            Arrays.sort(sortedYs);
+            minCornerXs[t] = sortedXs[0];
+            maxCornerXs[t] = sortedXs[sortedXs.length - 1];
+            minCornerYs[t] = sortedYs[0];
+            maxCornerYs[t] = sortedYs[sortedYs.length - 1];
+            pieces[t] = shape.getPieces();
+
+            minCornerX = Math.min(minCornerX, minCornerXs[t]);
+            minCornerY = Math.min(minCornerY, minCornerYs[t]);
+            maxCornerX = Math.max(maxCornerX, maxCornerXs[t]);
+            maxCornerY = Math.max(maxCornerY, maxCornerYs[t]);
+            if (testXs.length < cornerXs[t].length) {
+                testXs = new double[cornerXs[t].length];
+                testYs = new double[cornerXs[t].length];
+            }
+            if (testBounds.length < 4 * pieces[t].length) {
+                testBounds = new double[4 * pieces[t].length];
+            }
+        }
+
+        for (int b = 0; b < MIN_BUCKETS; b++) {
+            buckets[b] = new int[4];
+        }
+    }
+
+    /**
+     * Gets the coin types the codes refer to.
+     *
+     * @return The registry.
+     */
+    public CoinRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Adds a coin at the end of the store, counting it as a pool hit or miss.
+     *
+     * @param coinId   The id of the coin.
+     * @param coinType The type code of the coin.
+     * @param coinX    The x position of the coin.
+     * @param coinY    The y position of the coin.
+     * @return The index of the new coin.
+     */
+    public int add(int coinId, byte coinType, double coinX, double coinY) {
+        if (insert(coinId, coinType, coinX, coinY)) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return count - 1;
+    }
+
+    /**
+     * Adds a coin at the end of the store without counting it in the pool
+     * statistics, for coins copied in from a saved or received state rather
+     * than spawned by the match.
+     *
+     * @param coinId   The id of the coin.
+     * @param coinType The type code of the coin.
+     * @param coinX    The x position of the coin.
+     * @param coinY    The y position of the coin.
+     * @return The index of the new coin.
+     */
+    int put(int coinId, byte coinType, double coinX, double coinY) {
+        insert(coinId, coinType, coinX, coinY);
+        return count - 1;
+    }
+
+    /**
+     * Makes room for at least the given number of coins, so adding that many
+     * does not grow the coin arrays or the table of buckets. The buckets
+     * themselves still grow the first time coins crowd into one cell.
+     *
+     * @param capacity The number of coins.
+     */
+    public void reserve(int capacity) {
+        if (capacity > id.length) {
+            grow(capacity);
+        }
+        int bucketCount = buckets.length;
+        while (capacity > BUCKET_LOAD * bucketCount) {
+            bucketCount *= 2;
+        }
+        if (bucketCount > buckets.length) {
+            rehash(bucketCount);
+        }
+    }
+
+    /**
+     * Gets the number of coins the arrays hold without growing.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return id.length;
+    }
+
+    /**
+     * Gets the number of adds that reused room already in the arrays.
+     *
+     * @return The number of pool hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of adds that had to grow an array.
+     *
+     * @return The number of pool misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Removes a coin, moving the last coin into its place.
+     *
+     * @param index The index of the coin to remove.
+     */
+    public void remove(int index) {
+        unlink(index);
+        if (!orderStale) {
+            order[orderSlot[index]] = -1;
+            orderGaps++;
+        }
+        int last = --count;
+        if (index == last) {
+            return;
+        }
+        id[index] = id[last];
+        type[index] = type[last];
+        x[index] = x[last];
+        y[index] = y[last];
+        rotation[index] = rotation[last];
+        value[index] = value[last];
+        bucketOf[index] = bucketOf[last];
+        slotOf[index] = slotOf[last];
+        buckets[bucketOf[index]][slotOf[index]] = index;
+        orderSlot[index] = orderSlot[last];
+        if (!orderStale) {
+            order[orderSlot[index]] = index;
+        }
+    }
+
+    /**
+     * Removes every coin.
+     */
+    public void clear() {
+        count = 0;
+        Arrays.fill(bucketSizes, 0);
+        orderCount = 0;
+        orderGaps = 0;
+        orderStale = false;
+    }
+
+    /**
+     * Puts the coins in order of id, to be read with getOrdered. The order
+     * stays valid until the next add or removal.
+     *
+     * @return The number of coins.
+     */
+    public int orderById() {
+        if (orderStale) {
+            sortOrder();
+        } else if (orderGaps > 0) {
+            squeezeOrder();
+        }
+        return count;
+    }
+
+    /**
+     * Gets a coin in the order put by orderById.
+     *
+     * @param n The place in the order, from 0 to size() - 1.
+     * @return The index of the coin.
+     */
+    public int getOrdered(int n) {
+        return order[n];
+    }
+
+    /**
+     * Finds a coin by its id.
+     *
+     * @param coinId The id of the coin.
+     * @return The index of the coin, or -1 if there is none with that id.
+     */
+    public int indexOf(int coinId) {
+        if (orderStale) {
+            sortOrder();
+        }
+        int place = Arrays.binarySearch(orderIds, 0, orderCount, coinId);
+        return place < 0 ? -1 : order[place];
+    }
+
+    /**
+     * Gets the number of bytes save writes for the current coins.
+     *
+     * @return The size in bytes.
+     */
+    public int stateSize() {
+        return 4 + count * (4 + 1 + 8 + 8);
+    }
+
+    /**
+     * Writes every coin in index order, for a replay keyframe.
+     *
+     * @param out The buffer to write to.
+     */
+    public void save(ByteBuffer out) {
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putInt(id[i]);
+            out.put(type[i]);
+            out.putDouble(x[i]);
+            out.putDouble(y[i]);
+        }
+    }
+
+    /**
+     * Replaces every coin with those written by save. The coins get the same
+     * indexes they had, so a restored match picks them up in the same order.
+     *
+     * @param in The buffer to read from.
+     */
+    public void restore(ByteBuffer in) {
+        clear();
+        int saved = in.getInt();
+        for (int i = 0; i < saved; i++) {
+            int coinId = in.getInt();
+            byte coinType = in.get();
+            double coinX = in.getDouble();
+            put(coinId, coinType, coinX, in.getDouble());
+        }
+    }
+
+    /**
+     * Finds the coins that may touch a box: every coin filed under a cell
+     * the box, grown by the coin shape, overlaps. The indexes are read with
+     * getFound and stay valid until the next query or removal.
+     *
+     * @param minX The left edge of the box.
+     * @param minY The top edge of the box.
+     * @param maxX The right edge of the box.
+     * @param maxY The bottom edge of the box.
+     * @return The number of coins found.
+     */
+    public int query(double minX, double minY, double maxX, double maxY) {
+        int fromX = cell(minX - maxCornerX), toX = cell(maxX - minCornerX);
+        int fromY = cell(minY - maxCornerY), toY = cell(maxY - minCornerY);
+        int total = 0;
+        for (int cx = fromX; cx <= toX; cx++) {
+            for (int cy = fromY; cy <= toY; cy++) {
+                int b = bucket(cx, cy);
+                int[] slots = buckets[b];
+                for (int s = 0; s < bucketSizes[b]; s++) {
+                    int index = slots[s];
+                    // Buckets are shared by distant cells, so check the cell
+                    if (cell(x[index]) == cx && cell(y[index]) == cy) {
+                        if (total == found.length) {
+                            found = Arrays.copyOf(found, total * 2);
+                        }
+                        found[total++] = index;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets a coin found by the last query.
+     *
+     * @param n The number of the result, from 0 to the count returned - 1.
+     * @return The index of the coin.
+     */
+    public int getFound(int n) {
+        return found[n];
+    }
+
+    /**
+     * Checks if a coin overlaps a shape, the same test Polygon.collides
+     * makes: bounding boxes first, then the separating axis test.
+     *
+     * @param index The index of the coin.
+     * @param shape The shape to test against.
+     * @return True if the coin touches the shape.
+     */
+    public boolean touches(int index, Polygon shape) {
+        int t = known(type[index]);
+        double coinX = x[index], coinY = y[index];
+        if (!Collision.boxesOverlap(coinX + minCornerXs[t], coinY + minCornerYs[t],
+                coinX + maxCornerXs[t], coinY + maxCornerYs[t], shape.getMinX(),
+                shape.getMinY(), shape.getMaxX(), shape.getMaxY())) {
+            return false;
+        }
+        double[] xs = cornerXs[t], ys = cornerYs[t];
+        for (int i = 0; i < xs.length; i++) {
+            testXs[i] = coinX + xs[i];
+            testYs[i] = coinY + ys[i];
+        }
+        Collision.bound(testXs, testYs, pieces[t], testBounds);
+        return Collision.overlaps(shape.getXs(), shape.getYs(),
+                shape.getPieces(), shape.getPieceBounds(), testXs, testYs,
+                pieces[t], testBounds, null);
+    }
+
+    /**
+     * Gets a coin in a form that can be painted. The object is shared by
+     * every coin of the same type and is only valid until the next call.
+     *
+     * @param index The index of the coin.
+     * @return The coin, moved to the position of the coin at the index.
+     */
+    public Coin getCoin(int index) {
+        TypedCoin painter = painters[known(type[index])];
+        painter.position.x = x[index];
+        painter.position.y = y[index];
+        painter.rotation = rotation[index];
+        return painter;
+    }
+
+    /**
+     * Gets the number of coins.
+     *
+     * @return The number of coins.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the id of a coin.
+     *
+     * @param index The index of the coin.
+     * @return The id of the coin.
+     */
+    public int getId(int index) {
+        return id[index];
+    }
+
+    /**
+     * Gets the type code of a coin.
+     *
+     * @param index The index of the coin.
+     * @return The code of the type in the registry.
+     */
+    public byte getType(int index) {
+        return type[index];
+    }
+
+    /**
+     * Gets the x position of a coin.
+     *
+     * @param index The index of the coin.
+     * @return The x position.
+     */
+    public double getX(int index) {
+        return x[index];
+    }
+
+    /**
+     * Gets the y position of a coin.
+     *
+     * @param index The index of the coin.
+     * @return The y position.
+     */
+    public double getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * Gets the points a coin is worth when picked up.
+     *
+     * @param index The index of the coin.
+     * @return The value of the coin.
+     */
+    public int getValue(int index) {
+        return value[index];
+    }
+
+    /*
+    The following methods are private helpers for growing the arrays, filing
+    coins in buckets and converting between coordinates and cells.
+    */
+
+    // "insert" writes a coin into the next free slot and files it in the
+    // grid, and tells if that had to grow an array.
+    private boolean insert(int coinId, byte coinType, double coinX,
+            double coinY) {
+        boolean grew = count == id.length;
+        if (grew) {
+            grow(count * 2);
+        }
+        int index = count++;
+        id[index] = coinId;
+        type[index] = coinType;
+        x[index] = coinX;
+        y[index] = coinY;
+        rotation[index] = 0;
+        value[index] = values[known(coinType)];
+        if (!orderStale) {
+            if (orderCount > 0 && orderIds[orderCount - 1] >= coinId) {
+                orderStale = true;
+            } else {
+                if (orderCount == order.length) {
+                    squeezeOrder();
+                }
+                if (orderCount == order.length) {
+                    order = Arrays.copyOf(order, 2 * orderCount);
+                    orderIds = Arrays.copyOf(orderIds, 2 * orderCount);
+                }
+                order[orderCount] = index;
+                orderIds[orderCount] = coinId;
+                orderSlot[index] = orderCount++;
+            }
+        }
+        if (count > BUCKET_LOAD * buckets.length) {
+            rehash(buckets.length * 2);
+            return true;
+        }
+        return link(index) || grew;
+    }
+
+    // "squeezeOrder" closes the gaps removed coins left in the id order.
+    private void squeezeOrder() {
+        int kept = 0;
+        for (int place = 0; place < orderCount; place++) {
+            int index = order[place];
+            if (index >= 0) {
+                order[kept] = index;
+                orderIds[kept] = orderIds[place];
+                orderSlot[index] = kept++;
+            }
+        }
+        orderCount = kept;
+        orderGaps = 0;
+    }
+
+    // "sortOrder" builds the id order from scratch after coins were added
+    // out of order.
+    private void sortOrder() {
+        if (sortKeys.length < count) {
+            sortKeys = new long[id.length];
+        }
+        for (int i = 0; i < count; i++) {
+            sortKeys[i] = ((long) id[i] << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, count);
+        if (order.length < count) {
+            order = new int[id.length];
+            orderIds = new int[id.length];
+        }
+        for (int place = 0; place < count; place++) {
+            int index = (int) sortKeys[place];
+            order[place] = index;
+            orderIds[place] = id[index];
+            orderSlot[index] = place;
+        }
+        orderCount = count;
+        orderGaps = 0;
+        orderStale = false;
+    }
+
+    private void grow(int size) {
+        id = Arrays.copyOf(id, size);
+        type = Arrays.copyOf(type, size);
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        rotation = Arrays.copyOf(rotation, size);
+        value = Arrays.copyOf(value, size);
+        bucketOf = Arrays.copyOf(bucketOf, size);
+        slotOf = Arrays.copyOf(slotOf, size);
+        orderSlot = Arrays.copyOf(orderSlot, size);
+    }
+
+    // "rehash" files every coin again in a table of the given number of
+    // buckets, a power of two.
+    private void rehash(int bucketCount) {
+        buckets = new int[bucketCount][];
+        bucketSizes = new int[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            buckets[b] = new int[4];
+        }
+        for (int i = 0; i < count; i++) {
+            link(i);
+        }
+    }
+
+    // "link" files a coin under the cell of its position, and tells whether
+    // the bucket had to grow for it.
+    private boolean link(int index) {
+        int b = bucket(cell(x[index]), cell(y[index]));
+        int size = bucketSizes[b];
+        boolean grew = size == buckets[b].length;
+        if (grew) {
+            buckets[b] = Arrays.copyOf(buckets[b], size * 2);
+        }
+        buckets[b][size] = index;
+        bucketOf[index] = b;
+        slotOf[index] = size;
+        bucketSizes[b] = size + 1;
+        return grew;
+    }
+
+    // "unlink" takes a coin out of its bucket, filling the gap with the last
+    // coin of the bucket.
+    private void unlink(int index) {
+        int b = bucketOf[index];
+        int slot = slotOf[index];
+        int last = --bucketSizes[b];
+        int moved = buckets[b][last];
+        buckets[b][slot] = moved;
+        slotOf[moved] = slot;
+    }
+
+    // "known" maps a type code the registry does not have to type 0.
+    private int known(byte coinType) {
+        return coinType >= 0 && coinType < painters.length ? coinType : 0;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private int bucket(int cellX, int cellY) {
+        return ((cellX * 73856093) ^ (cellY * 19349663)) & (buckets.length - 1);
+    }
+}
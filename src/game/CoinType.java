@@ -0,0 +1,164 @@
+package game;
+
+import java.awt.Color;
+
+/**
+ * The CoinType class describes one kind of coin: what it is worth, how it
+ * looks, how often it spawns and what picking it up does to the player.
+ * Types are collected in a CoinRegistry, which gives each its type code and
+ * turns their effects into lookup tables for the simulation.
+ *
+ * The only effect a coin has on a player is on its step size, which is both
+ * how far it moves and how far it turns per tick: the step changes by a
+ * fixed amount and is then kept within a range. A coin may also name the
+ * type that respawns in its place; otherwise the replacement is drawn at
+ * random by spawn weight.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public final class CoinType {
+    // Instance variables describing the type
+    private final String name;
+    private final int value;
+    private final Color color;
+    private final Point[] shape;
+    private final int weight;
+    private final int initial;
+    private final int stepChange;
+    private final int minStep;
+    private final int maxStep;
+    private final String respawn;
+
+    /**
+     * Constructs a CoinType.
+     *
+     * @param inName       The name of the type, used by other types to refer
+     * to it.
+     * @param inValue      The points the coin is worth, may be negative.
+     * @param inColor      The color the coin is filled with.
+     * @param inShape      The corners of the coin, relative to its position.
+     * @param inWeight     The relative chance of the type being drawn for a
+     * random respawn, 0 for never.
+     * @param inInitial    The number of coins of the type at the start of a
+     * match.
+     * @param inStepChange The change to the step size of the player picking
+     * it up.
+     * @param inMinStep    The smallest step size the change can leave.
+     * @param inMaxStep    The largest step size the change can leave.
+     * @param inRespawn    The name of the type that replaces it, or null for
+     * a random type.
+     */
+    public CoinType(String inName, int inValue, Color inColor, Point[] inShape,
+            int inWeight, int inInitial, int inStepChange, int inMinStep,
+            int inMaxStep, String inRespawn) {
+        if (inWeight < 0 || inInitial < 0 || inMinStep > inMaxStep) {
+            throw new IllegalArgumentException("Bad coin type " + inName);
+        }
+        if (inShape.length < 3) {
+            throw new IllegalArgumentException("Coin type " + inName
+                    + " needs at least three corners");
+        }
+        name = inName;
+        value = inValue;
+        color = inColor;
+        shape = inShape;
+        weight = inWeight;
+        initial = inInitial;
+        stepChange = inStepChange;
+        minStep = inMinStep;
+        maxStep = inMaxStep;
+        respawn = inRespawn;
+    }
+
+    /**
+     * Gets the name of the type.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the points a coin of this type is worth.
+     *
+     * @return The value.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the color coins of this type are filled with.
+     *
+     * @return The color.
+     */
+    public Color getColor() {
+        return color;
+    }
+
+    /**
+     * Gets the corners of the coin shape. Coins of the type share the
+     * array, so it must not be changed.
+     *
+     * @return The shape.
+     */
+    public Point[] getShape() {
+        return shape;
+    }
+
+    /**
+     * Gets the relative chance of the type being drawn for a random respawn.
+     *
+     * @return The spawn weight.
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Gets the number of coins of the type at the start of a match.
+     *
+     * @return The number of coins.
+     */
+    public int getInitial() {
+        return initial;
+    }
+
+    /**
+     * Gets the change to the step size of the player picking it up.
+     *
+     * @return The change, 0 for none.
+     */
+    public int getStepChange() {
+        return stepChange;
+    }
+
+    /**
+     * Gets the smallest step size the change can leave.
+     *
+     * @return The minimum step size.
+     */
+    public int getMinStep() {
+        return minStep;
+    }
+
+    /**
+     * Gets the largest step size the change can leave.
+     *
+     * @return The maximum step size.
+     */
+    public int getMaxStep() {
+        return maxStep;
+    }
+
+    /**
+     * Gets the name of the type that replaces a picked up coin.
+     *
+     * @return The name, or null for a random type.
+     */
+    public String getRespawn() {
+        return respawn;
+    }
+}
@@ -0,0 +1,438 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The Collision class is the narrow phase: it decides exactly whether two
+ * shapes that the broad phase put next to each other overlap. It uses the
+ * separating axis theorem, which says two convex shapes are apart if and
+ * only if their projections onto the normal of one of their edges do not
+ * overlap. That catches every kind of overlap, including two edges crossing
+ * with no vertex of either shape inside the other, which testing vertices
+ * with Polygon.contains misses.
+ *
+ * The theorem only holds for convex shapes, and the player is not convex, so
+ * every shape is split once into convex pieces (see decompose) and two
+ * shapes overlap if any pair of their pieces does. Before the axes are tried
+ * the bounding boxes of the pieces are compared, which rejects most pairs
+ * for the cost of four comparisons.
+ *
+ * Vertices are passed as the primitive arrays Polygon caches, and a piece is
+ * an array of indexes into them in order around the piece. The bounding
+ * boxes of the pieces are passed the same way, four numbers per piece (see
+ * bound), so a shape that does not move only works them out once.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public final class Collision {
+
+    /**
+     * Collision is not instantiated.
+     */
+    private Collision() {
+    }
+
+    /**
+     * Splits a simple polygon into convex pieces: a convex polygon is its
+     * own only piece, anything else is cut into triangles by ear clipping and
+     * neighbouring triangles are then merged for as long as the result stays
+     * convex. The player star ends up as a handful of pieces.
+     *
+     * @param shape The vertices of the polygon in order around it.
+     * @return The pieces, each as vertex indexes in the same order.
+     */
+    public static int[][] decompose(Point[] shape) {
+        int n = shape.length;
+        int[] ring = new int[n];
+        for (int i = 0; i < n; i++) {
+            ring[i] = i;
+        }
+        double orientation = Math.signum(signedArea(shape));
+        if (n <= 3 || orientation == 0 || isConvex(shape, ring, orientation)) {
+            return new int[][] {ring};
+        }
+
+        // Clip one ear at a time until a single triangle is left
+        ArrayList<int[]> pieces = new ArrayList<int[]>();
+        int size = n;
+        while (size > 3) {
+            int ear = findEar(shape, ring, size, orientation);
+            if (ear < 0) {
+                // Only a self-intersecting outline gets here, so test it as
+                // a whole rather than not at all
+                return new int[][] {Arrays.copyOf(ring, n)};
+            }
+            pieces.add(new int[] {ring[(ear + size - 1) % size], ring[ear],
+                    ring[(ear + 1) % size]});
+            System.arraycopy(ring, ear + 1, ring, ear, size - ear - 1);
+            size--;
+        }
+        pieces.add(Arrays.copyOf(ring, 3));
+
+        // Merge pieces that share an edge while the union is still convex
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int a = 0; a < pieces.size() && !merged; a++) {
+                for (int b = a + 1; b < pieces.size() && !merged; b++) {
+                    int[] union = merge(pieces.get(a), pieces.get(b));
+                    if (union != null && isConvex(shape, union, orientation)) {
+                        pieces.set(a, union);
+                        pieces.remove(b);
+                        merged = true;
+                    }
+                }
+            }
+        }
+        return pieces.toArray(new int[0][]);
+    }
+
+    /**
+     * Tests two sets of convex pieces for overlap. Touching without
+     * overlapping does not count.
+     *
+     * @param axs     The x coordinates of the first shape's vertices.
+     * @param ays     The y coordinates of the first shape's vertices.
+     * @param aPieces The convex pieces of the first shape.
+     * @param aBounds The bounding boxes of those pieces.
+     * @param bxs     The x coordinates of the second shape's vertices.
+     * @param bys     The y coordinates of the second shape's vertices.
+     * @param bPieces The convex pieces of the second shape.
+     * @param bBounds The bounding boxes of those pieces.
+     * @param contact Filled with the deepest overlap of any two pieces if
+     * the shapes overlap, or null if only the answer is wanted.
+     * @return True if the shapes overlap.
+     */
+    public static boolean overlaps(double[] axs, double[] ays, int[][] aPieces,
+            double[] aBounds, double[] bxs, double[] bys, int[][] bPieces,
+            double[] bBounds, Contact contact) {
+        boolean hit = false;
+        double bestX = 0, bestY = 0, bestDepth = -1;
+        for (int i = 0; i < aPieces.length; i++) {
+            int[] a = aPieces[i];
+            for (int j = 0; j < bPieces.length; j++) {
+                int[] b = bPieces[j];
+                if (!boxesOverlap(aBounds[4 * i], aBounds[4 * i + 1],
+                        aBounds[4 * i + 2], aBounds[4 * i + 3], bBounds[4 * j],
+                        bBounds[4 * j + 1], bBounds[4 * j + 2],
+                        bBounds[4 * j + 3])) {
+                    continue;
+                }
+                if (contact == null) {
+                    if (!separates(axs, ays, a, axs, ays, a, bxs, bys, b)
+                            && !separates(bxs, bys, b, axs, ays, a, bxs, bys, b)) {
+                        return true;
+                    }
+                    continue;
+                }
+                double depth = separation(axs, ays, a, bxs, bys, b, contact);
+                if (depth < 0) {
+                    continue;
+                }
+                hit = true;
+                // Keep the deepest pair, the one that most needs resolving
+                if (depth > bestDepth) {
+                    bestDepth = depth;
+                    bestX = contact.normalX;
+                    bestY = contact.normalY;
+                }
+            }
+        }
+        if (hit) {
+            contact.normalX = bestX;
+            contact.normalY = bestY;
+            contact.depth = bestDepth;
+        }
+        return hit;
+    }
+
+    /**
+     * Checks whether two axis-aligned boxes overlap.
+     *
+     * @param aMinX The left of the first box.
+     * @param aMinY The top of the first box.
+     * @param aMaxX The right of the first box.
+     * @param aMaxY The bottom of the first box.
+     * @param bMinX The left of the second box.
+     * @param bMinY The top of the second box.
+     * @param bMaxX The right of the second box.
+     * @param bMaxY The bottom of the second box.
+     * @return True if the boxes overlap.
+     */
+    public static boolean boxesOverlap(double aMinX, double aMinY,
+            double aMaxX, double aMaxY, double bMinX, double bMinY,
+            double bMaxX, double bMaxY) {
+        return aMinX < bMaxX && bMinX < aMaxX && aMinY < bMaxY && bMinY < aMaxY;
+    }
+
+    /**
+     * Works out the bounding box of every piece of a shape.
+     *
+     * @param xs     The x coordinates of the vertices.
+     * @param ys     The y coordinates of the vertices.
+     * @param pieces The convex pieces.
+     * @param bounds Filled with the left, top, right and bottom of each
+     * piece in turn, four numbers per piece.
+     */
+    public static void bound(double[] xs, double[] ys, int[][] pieces,
+            double[] bounds) {
+        for (int i = 0; i < pieces.length; i++) {
+            int[] piece = pieces[i];
+            double minX = xs[piece[0]], maxX = minX;
+            double minY = ys[piece[0]], maxY = minY;
+            for (int k = 1; k < piece.length; k++) {
+                double x = xs[piece[k]], y = ys[piece[k]];
+                if (x < minX) {
+                    minX = x;
+                } else if (x > maxX) {
+                    maxX = x;
+                }
+                if (y < minY) {
+                    minY = y;
+                } else if (y > maxY) {
+                    maxY = y;
+                }
+            }
+            bounds[4 * i] = minX;
+            bounds[4 * i + 1] = minY;
+            bounds[4 * i + 2] = maxX;
+            bounds[4 * i + 3] = maxY;
+        }
+    }
+
+    /**
+     * Checks whether the normal of any edge of one piece separates two
+     * pieces. The normals are not normalized, since only the sign of the
+     * overlap matters here.
+     *
+     * @param exs   The x coordinates of the vertices of the edges.
+     * @param eys   The y coordinates of the vertices of the edges.
+     * @param edges The piece whose edges give the axes, a or b.
+     * @return True if the pieces are apart along one of the axes.
+     */
+    private static boolean separates(double[] exs, double[] eys, int[] edges,
+            double[] axs, double[] ays, int[] a, double[] bxs, double[] bys,
+            int[] b) {
+        for (int i = 0, last = edges.length - 1; i <= last; i++) {
+            int from = edges[i], to = edges[i == last ? 0 : i + 1];
+            double nx = eys[to] - eys[from], ny = exs[from] - exs[to];
+            double aMin = Double.MAX_VALUE, aMax = -Double.MAX_VALUE;
+            for (int v : a) {
+                double d = axs[v] * nx + ays[v] * ny;
+                if (d < aMin) {
+                    aMin = d;
+                }
+                if (d > aMax) {
+                    aMax = d;
+                }
+            }
+            double bMin = Double.MAX_VALUE, bMax = -Double.MAX_VALUE;
+            for (int v : b) {
+                double d = bxs[v] * nx + bys[v] * ny;
+                if (d < bMin) {
+                    bMin = d;
+                }
+                if (d > bMax) {
+                    bMax = d;
+                }
+            }
+            // A zero-length edge gives a zero axis, which separates nothing
+            if ((nx != 0 || ny != 0) && (aMax <= bMin || bMax <= aMin)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the separating axis test on two convex pieces, trying the edge
+     * normals of both, and finds the axis along which they overlap least.
+     *
+     * @param contact Filled with the axis of least overlap, pointing from
+     * the first piece to the second.
+     * @return The overlap along that axis, or -1 if the pieces are apart.
+     */
+    private static double separation(double[] axs, double[] ays, int[] a,
+            double[] bxs, double[] bys, int[] b, Contact contact) {
+        double least = Double.MAX_VALUE, leastX = 0, leastY = 0;
+        for (int side = 0; side < 2; side++) {
+            double[] xs = side == 0 ? axs : bxs;
+            double[] ys = side == 0 ? ays : bys;
+            int[] piece = side == 0 ? a : b;
+            for (int i = 0, last = piece.length - 1; i <= last; i++) {
+                int from = piece[i], to = piece[i == last ? 0 : i + 1];
+                double nx = ys[to] - ys[from], ny = xs[from] - xs[to];
+                double length = Math.sqrt(nx * nx + ny * ny);
+                if (length == 0) {
+                    continue;
+                }
+                nx /= length;
+                ny /= length;
+
+                double aMin = Double.MAX_VALUE, aMax = -Double.MAX_VALUE;
+                for (int v : a) {
+                    double d = axs[v] * nx + ays[v] * ny;
+                    if (d < aMin) {
+                        aMin = d;
+                    }
+                    if (d > aMax) {
+                        aMax = d;
+                    }
+                }
+                double bMin = Double.MAX_VALUE, bMax = -Double.MAX_VALUE;
+                for (int v : b) {
+                    double d = bxs[v] * nx + bys[v] * ny;
+                    if (d < bMin) {
+                        bMin = d;
+                    }
+                    if (d > bMax) {
+                        bMax = d;
+                    }
+                }
+                double overlap = Math.min(aMax - bMin, bMax - aMin);
+                if (overlap <= 0) {
+                    return -1;
+                }
+                if (overlap < least) {
+                    least = overlap;
+                    leastX = nx;
+                    leastY = ny;
+                }
+            }
+        }
+
+        // Point the normal from the center of a towards the center of b
+        double dx = 0, dy = 0;
+        for (int v : b) {
+            dx += bxs[v] / b.length;
+            dy += bys[v] / b.length;
+        }
+        for (int v : a) {
+            dx -= axs[v] / a.length;
+            dy -= ays[v] / a.length;
+        }
+        if (dx * leastX + dy * leastY < 0) {
+            leastX = -leastX;
+            leastY = -leastY;
+        }
+        contact.normalX = leastX;
+        contact.normalY = leastY;
+        contact.depth = least;
+        return least;
+    }
+
+    /**
+     * Joins two pieces that share an edge.
+     *
+     * @param a The first piece.
+     * @param b The second piece, in the same winding as the first.
+     * @return The outline of both pieces, or null if they share no edge.
+     */
+    private static int[] merge(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int from = a[i], to = a[(i + 1) % a.length];
+            for (int j = 0; j < b.length; j++) {
+                // The shared edge runs the other way round in b
+                if (b[j] == to && b[(j + 1) % b.length] == from) {
+                    int[] union = new int[a.length + b.length - 2];
+                    int n = 0;
+                    for (int k = 1; k <= a.length; k++) {
+                        union[n++] = a[(i + k) % a.length];
+                    }
+                    for (int k = 2; k < b.length; k++) {
+                        union[n++] = b[(j + k) % b.length];
+                    }
+                    return union;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds an ear of what is left of the outline: a corner that turns the
+     * same way as the polygon and whose triangle holds no other vertex.
+     *
+     * @return The position of the ear's corner in the ring, or -1 if none.
+     */
+    private static int findEar(Point[] shape, int[] ring, int size,
+            double orientation) {
+        for (int i = 0; i < size; i++) {
+            int prev = ring[(i + size - 1) % size];
+            int cur = ring[i];
+            int next = ring[(i + 1) % size];
+            if (cross(shape[prev], shape[cur], shape[next]) * orientation <= 0) {
+                continue;
+            }
+            boolean empty = true;
+            for (int k = 0; k < size && empty; k++) {
+                int v = ring[k];
+                if (v != prev && v != cur && v != next
+                        && inTriangle(shape[v], shape[prev], shape[cur],
+                                shape[next], orientation)) {
+                    empty = false;
+                }
+            }
+            if (empty) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a point lies inside or on a triangle.
+     *
+     * @return True if it does.
+     */
+    private static boolean inTriangle(Point p, Point a, Point b, Point c,
+            double orientation) {
+        return cross(a, b, p) * orientation >= 0
+                && cross(b, c, p) * orientation >= 0
+                && cross(c, a, p) * orientation >= 0;
+    }
+
+    /**
+     * Checks whether every corner of a piece turns the same way as the
+     * polygon. Straight corners are allowed.
+     *
+     * @return True if the piece is convex.
+     */
+    private static boolean isConvex(Point[] shape, int[] piece,
+            double orientation) {
+        for (int i = 0; i < piece.length; i++) {
+            Point a = shape[piece[i]];
+            Point b = shape[piece[(i + 1) % piece.length]];
+            Point c = shape[piece[(i + 2) % piece.length]];
+            if (cross(a, b, c) * orientation < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the z component of the cross product of a to b and b to c, which
+     * is positive when the corner at b turns one way and negative the other.
+     *
+     * @return The cross product.
+     */
+    private static double cross(Point a, Point b, Point c) {
+        return (b.x - a.x) * (c.y - b.y) - (b.y - a.y) * (c.x - b.x);
+    }
+
+    /**
+     * Gets twice the signed area of a polygon, whose sign gives its winding.
+     *
+     * @return The signed area.
+     */
+    private static double signedArea(Point[] shape) {
+        double sum = 0;
+        for (int i = 0, j = 1; i < shape.length; i++, j = (j + 1) % shape.length) {
+            sum += shape[i].x * shape[j].y - shape[j].x * shape[i].y;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,18 @@
+package game;
+
+/**
+ * The Contact class describes how two overlapping shapes touch, as found by
+ * Collision: the direction to push the second shape along to separate them,
+ * and how far it has to go. It is filled in place so a caller can keep one
+ * and reuse it for every test.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class Contact {
+    // Unit vector pointing from the first shape towards the second
+    public double normalX, normalY;
+
+    // Distance along the normal the shapes overlap by
+    public double depth;
+}
@@ -0,0 +1,219 @@
+package game;
+
+/**
+ * The DamageTracker class collects the parts of the canvas that have to be
+ * painted again for the next frame: where things were before they moved or
+ * disappeared, and where they are now. Overlapping boxes are merged as they
+ * are added, so each pixel is painted at most once, and once the damage
+ * covers most of the canvas it is treated as the whole canvas, since a
+ * single full repaint is then cheaper than many pieces.
+ *
+ * Boxes are kept as whole pixels, grown by a pixel on every side to cover
+ * the rounding of polygon coordinates and cut to the canvas.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class DamageTracker {
+    // Most separate boxes kept before they are merged into one
+    private static final int MAX_BOXES = 16;
+
+    // Fraction of the canvas above which everything is repainted
+    private static final double FULL_FRACTION = 0.5;
+
+    // Instance variables for the canvas and the boxes, each as min x, min y,
+    // max x, max y with the max exclusive
+    private final int width;
+    private final int height;
+    private final int[] boxes = new int[4 * (MAX_BOXES + 1)];
+    private int count;
+    private boolean full;
+
+    /**
+     * Constructs a DamageTracker with nothing damaged.
+     *
+     * @param inWidth  The width of the canvas.
+     * @param inHeight The height of the canvas.
+     */
+    public DamageTracker(int inWidth, int inHeight) {
+        width = inWidth;
+        height = inHeight;
+    }
+
+    /**
+     * Marks a box as damaged.
+     *
+     * @param minX The left edge.
+     * @param minY The top edge.
+     * @param maxX The right edge.
+     * @param maxY The bottom edge.
+     */
+    public void add(double minX, double minY, double maxX, double maxY) {
+        if (full) {
+            return;
+        }
+        int x0 = Math.max(0, (int) Math.floor(minX) - 1);
+        int y0 = Math.max(0, (int) Math.floor(minY) - 1);
+        int x1 = Math.min(width, (int) Math.ceil(maxX) + 2);
+        int y1 = Math.min(height, (int) Math.ceil(maxY) + 2);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+
+        // Swallow every box the new one touches, growing it each time, and
+        // start over since the grown box may now touch earlier ones
+        for (int i = 0; i < count; i++) {
+            int b = 4 * i;
+            if (x0 <= boxes[b + 2] && boxes[b] <= x1
+                    && y0 <= boxes[b + 3] && boxes[b + 1] <= y1) {
+                x0 = Math.min(x0, boxes[b]);
+                y0 = Math.min(y0, boxes[b + 1]);
+                x1 = Math.max(x1, boxes[b + 2]);
+                y1 = Math.max(y1, boxes[b + 3]);
+                removeBox(i);
+                i = -1;
+            }
+        }
+        int b = 4 * count++;
+        boxes[b] = x0;
+        boxes[b + 1] = y0;
+        boxes[b + 2] = x1;
+        boxes[b + 3] = y1;
+
+        if (count > MAX_BOXES) {
+            mergeAll();
+        }
+        if (getArea() > FULL_FRACTION * width * height) {
+            markAll();
+        }
+    }
+
+    /**
+     * Marks the whole canvas as damaged.
+     */
+    public void markAll() {
+        full = true;
+        count = 1;
+        boxes[0] = 0;
+        boxes[1] = 0;
+        boxes[2] = width;
+        boxes[3] = height;
+    }
+
+    /**
+     * Forgets all damage, once the frame has been shown.
+     */
+    public void clear() {
+        full = false;
+        count = 0;
+    }
+
+    /**
+     * Tells whether the whole canvas has to be painted.
+     *
+     * @return True if everything is damaged.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Gets the number of damaged boxes. They do not overlap.
+     *
+     * @return The number of boxes, 0 if nothing has to be painted.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the left edge of a damaged box.
+     *
+     * @param index The index of the box.
+     * @return The x coordinate.
+     */
+    public int getX(int index) {
+        return boxes[4 * index];
+    }
+
+    /**
+     * Gets the top edge of a damaged box.
+     *
+     * @param index The index of the box.
+     * @return The y coordinate.
+     */
+    public int getY(int index) {
+        return boxes[4 * index + 1];
+    }
+
+    /**
+     * Gets the width of a damaged box.
+     *
+     * @param index The index of the box.
+     * @return The width in pixels.
+     */
+    public int getWidth(int index) {
+        return boxes[4 * index + 2] - boxes[4 * index];
+    }
+
+    /**
+     * Gets the height of a damaged box.
+     *
+     * @param index The index of the box.
+     * @return The height in pixels.
+     */
+    public int getHeight(int index) {
+        return boxes[4 * index + 3] - boxes[4 * index + 1];
+    }
+
+    /**
+     * Tells whether something with the given bounds is inside a damaged box,
+     * and so has to be painted again.
+     *
+     * @param index The index of the box.
+     * @param minX  The left edge of the thing.
+     * @param minY  The top edge.
+     * @param maxX  The right edge.
+     * @param maxY  The bottom edge.
+     * @return True if the thing and the box overlap.
+     */
+    public boolean touches(int index, double minX, double minY, double maxX,
+            double maxY) {
+        int b = 4 * index;
+        return minX < boxes[b + 2] && boxes[b] <= maxX + 1
+                && minY < boxes[b + 3] && boxes[b + 1] <= maxY + 1;
+    }
+
+    /**
+     * Gets the number of damaged pixels.
+     *
+     * @return The total area of the boxes.
+     */
+    public long getArea() {
+        long area = 0;
+        for (int i = 0; i < count; i++) {
+            area += (long) getWidth(i) * getHeight(i);
+        }
+        return area;
+    }
+
+    /*
+    The following methods are private helpers for keeping the box list.
+    */
+
+    private void removeBox(int index) {
+        count--;
+        System.arraycopy(boxes, 4 * count, boxes, 4 * index, 4);
+    }
+
+    private void mergeAll() {
+        for (int i = 1; i < count; i++) {
+            int b = 4 * i;
+            boxes[0] = Math.min(boxes[0], boxes[b]);
+            boxes[1] = Math.min(boxes[1], boxes[b + 1]);
+            boxes[2] = Math.max(boxes[2], boxes[b + 2]);
+            boxes[3] = Math.max(boxes[3], boxes[b + 3]);
+        }
+        count = 1;
+    }
+}
@@ -0,0 +1,64 @@
+package game;
+
+import java.util.Random;
+
+/**
+ * The DeterministicRandom class is a java.util.Random whose internal state
+ * can be read and restored, so a match can be saved in a replay keyframe and
+ * resumed later with exactly the same coin spawns. It produces the same
+ * numbers as a plain Random with the same seed.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class DeterministicRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    // Constants of the linear congruential generator used by java.util.Random
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Set by setSeed, which the Random constructor calls before any field
+    // initializer of this class would run, so it has none
+    private long state;
+
+    /**
+     * Constructs a DeterministicRandom with the given seed.
+     *
+     * @param seed The seed.
+     */
+    public DeterministicRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Gets the internal state, to be passed to setState later.
+     *
+     * @return The state.
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Puts the generator back into a state read with getState.
+     *
+     * @param inState The state.
+     */
+    public void setState(long inState) {
+        state = inState & MASK;
+    }
+}
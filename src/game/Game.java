@@ -3,7 +3,16 @@ package game;
 /*
 CLASS: Game
 DESCRIPTION: A painted canvas in its own window, updated every tenth second.
-USAGE: Extended by YourGameName.
+             By default a render thread draws each frame straight into a
+             page-flipped BufferStrategy (active rendering). If that can't
+             be set up, the canvas falls back to the old repaint loop,
+             painting into a VolatileImage back buffer.
+             Frames are painted incrementally: 'paint' only repaints what
+             the subclass added to 'damage', on top of the previous frame,
+             and in the repaint loop only those parts reach the screen.
+             Whenever the previous frame is gone the whole canvas is
+             marked damaged first.
+USAGE: Extended by YourGameName, then call 'start' once.
 NOTE: You don't need to understand the details here, no fiddling neccessary.
 
 @author Samik Wangneo, Purab Shah
@@ -11,19 +20,36 @@ NOTE: You don't need to understand the details here, no fiddling neccessary.
 */
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
+import java.util.concurrent.locks.LockSupport;
 
 @SuppressWarnings("serial")
 abstract class Game extends Canvas {
-  protected boolean on = true;
+  protected volatile boolean on = true;
   protected int width, height;
+  protected final DamageTracker damage;
+  private boolean inFrame;    // True while one of the loops calls 'paint'.
   protected Image buffer;
+  private Graphics bufferBrush;  // Made once, getGraphics allocates each call.
+  private VolatileImage volatileBuffer;
+  private Graphics volatileBrush;
+  
+  // Active rendering state. The render thread is the only one that paints
+  // once it runs, AWT repaints are ignored so they can't race with it.
+  protected long frameNanos = 1_000_000_000L / 120;   // Frame rate cap.
+  private Frame frame;
+  private BufferStrategy strategy;
+  private boolean keepsFrame;   // The back buffer still holds the last frame.
+  private Thread renderThread;
   
 	public Game(String name, int inWidth, int inHeight) {
 	  width = inWidth;
 	  height = inHeight;
+	  damage = new DamageTracker(width, height);
 	  
 	  // Frame can be read as 'window' here.
-    Frame frame = new Frame(name);
+    frame = new Frame(name);
     frame.add(this);
     frame.setSize(width,height);
     frame.setVisible(true);
@@ -38,13 +64,147 @@ abstract class Game extends Canvas {
   // 'paint' will be called every tenth of a second that the game is on.
 	abstract public void paint(Graphics brush);
   
+  // 'isSystemPaint' is true when AWT calls 'paint' itself to restore a
+  // window that was covered, rather than one of the frame loops. There is
+  // no previous frame to paint over then, so the subclass should ask for a
+  // full repaint instead.
+  protected boolean isSystemPaint() {return !inFrame;}
+  
+  // 'start' begins drawing frames. It tries active rendering first and uses
+  // the repaint loop in 'update' when no BufferStrategy can be made.
+  public void start() {
+    if (startActiveRendering()) {return;}
+    repaint();
+  }
+  
+  // 'startActiveRendering' asks for two accelerated, page-flipped buffers
+  // that keep the shown frame in the back buffer after a flip, settles for
+  // whatever strategy the platform offers if that is refused, and starts
+  // the render thread on success. A strategy that copies its back buffer to
+  // the screen instead of flipping keeps the frame too.
+  private boolean startActiveRendering() {
+    try {
+      try {
+        createBufferStrategy(2, new BufferCapabilities(
+            new ImageCapabilities(true), new ImageCapabilities(true),
+            BufferCapabilities.FlipContents.COPIED));
+      } catch (AWTException exc) {
+        createBufferStrategy(2);
+      }
+      strategy = getBufferStrategy();
+    } catch (RuntimeException exc) {
+      strategy = null;
+    }
+    if (strategy == null) {return false;}
+    BufferCapabilities caps = strategy.getCapabilities();
+    keepsFrame = !caps.isPageFlipping()
+        || caps.getFlipContents() == BufferCapabilities.FlipContents.COPIED;
+    
+    setIgnoreRepaint(true);
+    frame.setIgnoreRepaint(true);
+    renderThread = new Thread(this::renderLoop, "render");
+    renderThread.setDaemon(true);
+    renderThread.start();
+    return true;
+  }
+  
+  // 'renderLoop' runs on the render thread. Each frame is painted into the
+  // strategy's back buffer and shown; the inner loops redo the frame if the
+  // accelerated buffers were lost in the meantime (display mode change,
+  // screen lock), all of it since the old contents are gone. It then waits
+  // out the rest of the frame, off the EDT.
+  private void renderLoop() {
+    long next = System.nanoTime();
+    boolean lost = !keepsFrame;
+    while (on) {
+      do {
+        do {
+          if (lost) {damage.markAll();}
+          Graphics brush = strategy.getDrawGraphics();
+          inFrame = true;
+          try {
+            paint(brush);
+          } finally {
+            inFrame = false;
+            brush.dispose();
+          }
+          lost = strategy.contentsRestored();
+        } while (lost);
+        strategy.show();
+        lost = strategy.contentsLost();
+      } while (lost);
+      damage.clear();
+      lost = !keepsFrame;
+      Toolkit.getDefaultToolkit().sync();
+      
+      next += frameNanos;
+      long wait = next - System.nanoTime();
+      if (wait > 0) {
+        long start = Profiler.start();
+        LockSupport.parkNanos(wait);
+        Profiler.stop(Profiler.WAIT, start);
+      } else {
+        next = System.nanoTime();   // Behind, don't try to catch up frames.
+      }
+    }
+  }
+  
   // 'update' paints to a buffer then to the screen, then waits a tenth of
   // a second before repeating itself, assuming the game is on. This is done
-  // to avoid a choppy painting experience if repainted in pieces.
+  // to avoid a choppy painting experience if repainted in pieces. Only the
+  // damaged parts of the buffer are copied to the screen. It is only used
+  // when active rendering is unavailable.
   public void update(Graphics brush) {
-    paint(buffer.getGraphics());
-		brush.drawImage(buffer,0,0,this);
-    if (on) {sleep(10); repaint();}
+    if (renderThread != null) {return;}
+    Image back = validBuffer();
+    inFrame = true;
+    try {
+      paint(back == buffer ? bufferBrush : volatileBrush);
+    } finally {
+      inFrame = false;
+    }
+    if (damage.isFull()) {
+      brush.drawImage(back,0,0,this);
+    } else {
+      for (int i = 0; i < damage.getCount(); i++) {
+        int x = damage.getX(i), y = damage.getY(i);
+        int x2 = x + damage.getWidth(i), y2 = y + damage.getHeight(i);
+        brush.drawImage(back,x,y,x2,y2,x,y,x2,y2,this);
+      }
+    }
+    damage.clear();
+    if (back == volatileBuffer && volatileBuffer.contentsLost()) {
+      damage.markAll();
+    }
+    if (on) {
+      long start = Profiler.start();
+      sleep(10);
+      Profiler.stop(Profiler.WAIT, start);
+      repaint();
+    }
+  }
+  
+  // 'validBuffer' returns the accelerated back buffer, recreating it if the
+  // display changed under it, or the plain image if none can be made. When
+  // the last frame did not survive, everything is marked for repainting.
+  private Image validBuffer() {
+    int state = volatileBuffer == null ? VolatileImage.IMAGE_INCOMPATIBLE
+        : volatileBuffer.validate(getGraphicsConfiguration());
+    if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+      if (volatileBrush != null) {volatileBrush.dispose();}
+      volatileBuffer = createVolatileImage(width, height);
+      volatileBrush = volatileBuffer == null ? null
+                                             : volatileBuffer.getGraphics();
+    }
+    if (volatileBuffer != null) {
+      if (state != VolatileImage.IMAGE_OK) {damage.markAll();}
+      return volatileBuffer;
+    }
+    if (bufferBrush == null) {
+      bufferBrush = buffer.getGraphics();
+      damage.markAll();
+    }
+    return buffer;
   }
   
   // 'sleep' is a simple helper function used in 'update'.
@@ -0,0 +1,421 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GameClient class is the network side of a remote Survivor player. It
+ * connects to a GameServer, sends the local input once per tick and applies
+ * the states the server sends back to a RemoteMatch. States arrive as deltas
+ * against a snapshot the client acknowledged, so the client keeps a short
+ * history of decoded snapshots and reports the newest one with every input. The socket is
+ * non-blocking and poll only handles what has already arrived, so the client
+ * can be driven from the render loop without a thread of its own.
+ *
+ * A client can also join as a spectator, which has no seat and sends no
+ * inputs. Spectator states are deltas against the last keyframe rather than
+ * an acknowledged snapshot, so a spectator decodes every state it gets to
+ * keep the keyframes as baselines.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class GameClient {
+    // Starting size of the read buffer, it grows to fit large states
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    // Number of decoded snapshots kept as possible baselines
+    private static final int HISTORY_SIZE = 64;
+
+    // How long to wait for the server's WELCOME before giving up
+    private static final long WELCOME_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // Instance variables for the connection
+    private final SocketChannel channel;
+    private final ByteBuffer inputBuffer = ByteBuffer.allocateDirect(1024);
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+    private final boolean spectator;
+    private boolean welcomed;
+    private int seat = -1;
+    private int playerCount;
+    private long tickNanos = Simulation.DEFAULT_TICK_NANOS;
+    private int worldWidth = Simulation.WIDTH, worldHeight = Simulation.HEIGHT;
+    private int sequence;
+    private long statesReceived;
+    private long bytesReceived;
+    private long bytesSent;
+    private final SnapshotHistory history = new SnapshotHistory(HISTORY_SIZE);
+    private final SnapshotCodec codec = new SnapshotCodec();
+    private long snapshotTick;
+    private int acknowledgedInput;
+    private boolean closed;
+
+    /**
+     * Connects to a server and waits for it to assign a seat.
+     *
+     * @param host The host name of the server.
+     * @param port The port of the server.
+     * @throws IOException If the server cannot be reached or is full.
+     */
+    public GameClient(String host, int port) throws IOException {
+        this(host, port, true);
+    }
+
+    /**
+     * Connects to a server as a player, either waiting for a seat or
+     * leaving the WELCOME to be picked up by later polls, for driving many
+     * clients from one thread.
+     *
+     * @param host The host name of the server.
+     * @param port The port of the server.
+     * @param wait True to wait for the WELCOME.
+     * @throws IOException If the server cannot be reached, or is full when
+     * waiting.
+     */
+    GameClient(String host, int port, boolean wait) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        spectator = false;
+        inputBuffer.flip();
+        if (wait) {
+            awaitWelcome();
+        } else {
+            channel.configureBlocking(false);
+        }
+    }
+
+    /**
+     * Connects to the spectator port of a server and waits to be let in to
+     * watch a room.
+     *
+     * @param host The host name of the server.
+     * @param port The spectator port of the server.
+     * @param room The number of the room to watch, or Protocol.ANY_ROOM for
+     * the one with the most players.
+     * @throws IOException If the server cannot be reached or has no such
+     * room.
+     */
+    public GameClient(String host, int port, int room) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        spectator = true;
+        Protocol.writeWatch(inputBuffer, room);
+        inputBuffer.flip();
+        while (inputBuffer.hasRemaining()) {
+            channel.write(inputBuffer);
+        }
+        awaitWelcome();
+    }
+
+    /**
+     * Switches the socket to non-blocking and polls until the server's
+     * WELCOME has arrived, sleeping in a Selector between reads rather than
+     * spinning.
+     *
+     * @throws IOException If the server closes the connection first or does
+     * not answer within WELCOME_TIMEOUT_NANOS.
+     */
+    private void awaitWelcome() throws IOException {
+        channel.configureBlocking(false);
+        long deadline = System.nanoTime() + WELCOME_TIMEOUT_NANOS;
+        try (Selector selector = Selector.open()) {
+            channel.register(selector, SelectionKey.OP_READ);
+            while (true) {
+                if (poll(null) < 0) {
+                    throw new IOException(spectator
+                            ? "Server closed the connection, the room may not exist"
+                            : "Server closed the connection, it may be full");
+                }
+                if (welcomed) {
+                    return;
+                }
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    close();
+                    throw new IOException("Server did not answer in time");
+                }
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+                selector.selectedKeys().clear();
+            }
+        }
+    }
+
+    /**
+     * Sends the input for the next tick. A spectator sends nothing but
+     * still numbers its inputs. If the server has stopped reading and the
+     * inputs already queued fill the buffer, the input is dropped without
+     * using up a sequence number, and must not be predicted either.
+     *
+     * @param input The input bit flags.
+     * @return The sequence number given to the input, or -1 if it was
+     * dropped.
+     * @throws IOException If the connection is broken.
+     */
+    public int sendInput(int input) throws IOException {
+        if (spectator) {
+            return ++sequence;
+        }
+        inputBuffer.compact();
+        boolean queued = inputBuffer.remaining()
+                >= Protocol.HEADER_BYTES + Protocol.INPUT_BYTES;
+        if (queued) {
+            Protocol.writeInput(inputBuffer, ++sequence, input, snapshotTick);
+        }
+        inputBuffer.flip();
+        bytesSent += channel.write(inputBuffer);
+        return queued ? sequence : -1;
+    }
+
+    /**
+     * Handles everything the server has sent so far. WELCOME frames set the
+     * seat, STATE frames are applied to the match in order.
+     *
+     * @param match The match to apply states to, or null to skip them.
+     * @return The number of states applied, or -1 if the server has closed
+     * the connection.
+     * @throws IOException If reading fails.
+     */
+    public int poll(RemoteMatch match) throws IOException {
+        if (closed) {
+            return -1;
+        }
+        int applied = 0;
+        while (true) {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                closed = true;
+                return applied > 0 ? applied : -1;
+            }
+            bytesReceived += read;
+            applied += handleFrames(match);
+            if (closed) {
+                return applied > 0 ? applied : -1;
+            }
+            if (read == 0) {
+                return applied;
+            }
+        }
+    }
+
+    /**
+     * Handles the complete frames in the read buffer and keeps any partial
+     * frame for the next read, growing the buffer if it cannot fit. When
+     * several states are waiting only the newest is decoded: every state is
+     * a delta against a snapshot this client already has, so the ones in
+     * between can be skipped. A frame length below 1 or above
+     * Protocol.MAX_FRAME_BYTES means the stream is broken, and the
+     * connection is closed.
+     *
+     * @param match The match to apply states to, or null to skip them.
+     * @return The number of states applied.
+     */
+    private int handleFrames(RemoteMatch match) {
+        int applied = 0;
+        ByteBuffer buffer = readBuffer;
+        buffer.flip();
+
+        int newestState = -1;
+        for (int at = buffer.position(); buffer.limit() - at >= Protocol.HEADER_BYTES; ) {
+            int length = buffer.getInt(at);
+            if (length < 1 || length > Protocol.MAX_FRAME_BYTES) {
+                close();
+                return 0;
+            }
+            if (buffer.limit() - at < 4 + length) {
+                break;
+            }
+            if (buffer.get(at + 4) == Protocol.STATE) {
+                newestState = at;
+            }
+            at += 4 + length;
+        }
+
+        while (buffer.remaining() >= Protocol.HEADER_BYTES) {
+            int length = buffer.getInt(buffer.position());
+            if (buffer.remaining() < 4 + length) {
+                break;
+            }
+            int frameEnd = buffer.position() + 4 + length;
+            buffer.getInt();
+            byte type = buffer.get();
+            if (type == Protocol.WELCOME) {
+                seat = buffer.getInt();
+                playerCount = buffer.getInt();
+                tickNanos = buffer.getLong();
+                worldWidth = buffer.getInt();
+                worldHeight = buffer.getInt();
+                welcomed = true;
+            } else if (type == Protocol.STATE) {
+                statesReceived++;
+                boolean newest = frameEnd - 4 - length == newestState;
+                Snapshot snapshot = newest || spectator
+                        ? decodeState(buffer) : null;
+                if (snapshot != null && newest && match != null) {
+                    match.applySnapshot(snapshot, acknowledgedInput);
+                    applied++;
+                }
+            }
+            buffer.position(frameEnd);
+        }
+        if (buffer.remaining() >= 4) {
+            int needed = 4 + buffer.getInt(buffer.position());
+            if (needed > buffer.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(needed * 2);
+                bigger.put(buffer);
+                readBuffer = bigger;
+                return applied;
+            }
+        }
+        buffer.compact();
+        return applied;
+    }
+
+    /**
+     * Decodes the snapshot in a STATE payload into the history.
+     *
+     * @param buffer The buffer, positioned at the payload.
+     * @return The decoded snapshot, or null if it was out of date or its
+     * baseline is gone.
+     */
+    private Snapshot decodeState(ByteBuffer buffer) {
+        acknowledgedInput = buffer.getInt();
+        int start = buffer.position();
+        long tick = SnapshotCodec.getVarLong(buffer);
+        buffer.position(start);
+        if (tick <= snapshotTick) {
+            return null;
+        }
+        Snapshot snapshot = history.slot(tick);
+        if (!codec.decode(buffer, history, snapshot)) {
+            snapshot.clear();
+            return null;
+        }
+        snapshotTick = tick;
+        return snapshot;
+    }
+
+    /**
+     * Gets the tick of the newest snapshot decoded.
+     *
+     * @return The snapshot tick, 0 before the first one.
+     */
+    public long getSnapshotTick() {
+        return snapshotTick;
+    }
+
+    /**
+     * Gets the seat the server gave this client.
+     *
+     * @return The player index of this client, -1 for a spectator.
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Checks if the server's WELCOME has arrived, which gives the seat.
+     *
+     * @return True once welcomed.
+     */
+    public boolean isWelcomed() {
+        return welcomed;
+    }
+
+    /**
+     * Checks if this client only watches.
+     *
+     * @return True for a spectator.
+     */
+    public boolean isSpectator() {
+        return spectator;
+    }
+
+    /**
+     * Gets the number of seats in the match.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * Gets the length of one server tick.
+     *
+     * @return The tick length in nanoseconds.
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Gets the width of the world the server runs the match in.
+     *
+     * @return The width.
+     */
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    /**
+     * Gets the height of the world the server runs the match in.
+     *
+     * @return The height.
+     */
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    /**
+     * Gets the sequence number of the last input sent.
+     *
+     * @return The last input sequence.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the number of states received so far.
+     *
+     * @return The number of states.
+     */
+    public long getStatesReceived() {
+        return statesReceived;
+    }
+
+    /**
+     * Gets the number of bytes read from the server.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Gets the number of bytes written to the server.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Closes the connection.
+     */
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException exc) {
+            // Already closed
+        }
+    }
+}
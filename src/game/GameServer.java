@@ -0,0 +1,556 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GameServer class hosts authoritative Survivor matches for remote
+ * players, as many independent Rooms in one process. Each client that
+ * connects is seated in the first room with a free seat, and a new room is
+ * opened when all of them are full.
+ *
+ * One thread accepts clients and keeps time. Once per tick it hands every
+ * idle room to a shared work-stealing pool, where the room reads its
+ * clients' inputs, runs its due ticks and sends each client the new state
+ * as a delta against the newest snapshot that client has acknowledged. A
+ * room that is still busy from the last tick is skipped and catches up on
+ * its next run, so one slow room never holds up the others, and a room that
+ * fails is shut down on its own.
+ *
+ * Each seat uses exactly one of its client's inputs per tick, the same way
+ * the client predicts its own player, so the acknowledged sequence in a
+ * state tells the client which of its inputs the state already includes.
+ *
+ * With a MatchStore set, every room keeps its pickups and results there.
+ *
+ * Spectators connect to a second port, opened with openSpectatorPort. The
+ * server thread reads the WATCH each sends and hands the spectator to the
+ * room it asked for; one that has not asked within WATCH_TIMEOUT_NANOS is
+ * dropped.
+ *
+ * Usage: java game.GameServer [port] [seats per room] [rooms]
+ *        [results file] [spectator port] [WIDTHxHEIGHT]
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class GameServer implements Runnable {
+    // Rooms opened at most when none is given
+    public static final int DEFAULT_MAX_ROOMS = 4096;
+
+    // Time a spectator has to say which room it wants to watch
+    private static final long WATCH_TIMEOUT_NANOS = 5_000_000_000L;
+
+    /**
+     * The PendingWatch class is a spectator that has connected but whose
+     * WATCH has not fully arrived yet.
+     */
+    private static class PendingWatch {
+        final ByteBuffer buffer = ByteBuffer.allocate(Protocol.HEADER_BYTES
+                + Protocol.WATCH_BYTES);
+        final long deadline = System.nanoTime() + WATCH_TIMEOUT_NANOS;
+    }
+
+    // Instance variables for accepting clients
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private ServerSocketChannel spectatorChannel;
+
+    // Instance variables for the rooms, only changed by the server thread
+    private final int seatsPerRoom;
+    private final int maxRooms;
+    private final long seed;
+    private final long tickNanos;
+    private int worldWidth = Simulation.WIDTH, worldHeight = Simulation.HEIGHT;
+    private final ArrayList<Room> rooms;
+    private int roomsOpened;
+    private final ForkJoinPool pool;
+    private volatile boolean running = true;
+    private volatile MatchStore store;
+
+    // Instance variables for watching the load: how long room runs take,
+    // and how often a room was still busy when its next run was due
+    private final LatencyHistogram runTimes = new LatencyHistogram();
+    private volatile long lateRuns;
+
+    /**
+     * Constructs a GameServer with a single room, listening on the given
+     * port.
+     *
+     * @param port      The port to listen on, 0 for any free port.
+     * @param seatCount The most players that can be connected at once.
+     * @param inSeed    The seed for coin spawns.
+     * @throws IOException If the port cannot be opened.
+     */
+    public GameServer(int port, int seatCount, long inSeed) throws IOException {
+        this(port, seatCount, 1, inSeed);
+    }
+
+    /**
+     * Constructs a GameServer listening on the given port. Rooms are opened
+     * as clients arrive.
+     *
+     * @param port           The port to listen on, 0 for any free port.
+     * @param inSeatsPerRoom The most players in one match.
+     * @param inMaxRooms     The most matches run at once.
+     * @param inSeed         The seed for coin spawns, each room gets its own.
+     * @throws IOException If the port cannot be opened.
+     */
+    public GameServer(int port, int inSeatsPerRoom, int inMaxRooms, long inSeed)
+            throws IOException {
+        if (inSeatsPerRoom <= 0 || inMaxRooms <= 0) {
+            throw new IllegalArgumentException("A server needs seats and rooms");
+        }
+        seatsPerRoom = inSeatsPerRoom;
+        maxRooms = inMaxRooms;
+        seed = inSeed;
+        tickNanos = Simulation.DEFAULT_TICK_NANOS;
+        rooms = new ArrayList<Room>();
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The local port.
+     * @throws IOException If the port cannot be read.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Starts taking spectators on a second port. Call it before the server
+     * runs.
+     *
+     * @param port The port to listen on, 0 for any free port.
+     * @return The local port.
+     * @throws IOException If the port cannot be opened.
+     */
+    public int openSpectatorPort(int port) throws IOException {
+        spectatorChannel = ServerSocketChannel.open();
+        spectatorChannel.bind(new InetSocketAddress(port));
+        spectatorChannel.configureBlocking(false);
+        spectatorChannel.register(selector, SelectionKey.OP_ACCEPT);
+        return ((InetSocketAddress) spectatorChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Gets the number of connected clients over all rooms, counting clients
+     * that are about to be seated.
+     *
+     * @return The number of connections.
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (Room room : snapshotRooms()) {
+            count += room.getOccupied();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of spectators over all rooms, counting spectators that
+     * are about to be let in.
+     *
+     * @return The number of spectators.
+     */
+    public int getSpectatorCount() {
+        int count = 0;
+        for (Room room : snapshotRooms()) {
+            count += room.getSpectatorCount();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the histogram of how long each run of a room takes, recorded by
+     * every room as it runs. It is never reset by the server.
+     *
+     * @return The run times.
+     */
+    public LatencyHistogram getRunTimes() {
+        return runTimes;
+    }
+
+    /**
+     * Gets the number of times a room was still running when its next run
+     * was due, so that it had to catch up later.
+     *
+     * @return The number of late runs.
+     */
+    public long getLateRuns() {
+        return lateRuns;
+    }
+
+    /**
+     * Gets the number of ticks rooms skipped because they fell too far
+     * behind to catch up, over the rooms still open.
+     *
+     * @return The number of skipped ticks.
+     */
+    public long getTicksDropped() {
+        long dropped = 0;
+        for (Room room : snapshotRooms()) {
+            dropped += room.getTicksDropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * Gets the number of state bytes queued for clients, over the rooms
+     * still open.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesQueued() {
+        long bytes = 0;
+        for (Room room : snapshotRooms()) {
+            bytes += room.getBytesQueued();
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of rooms open.
+     *
+     * @return The number of rooms.
+     */
+    public int getRoomCount() {
+        return snapshotRooms().length;
+    }
+
+    /**
+     * Copies the room list, for reading from threads other than the server
+     * thread.
+     *
+     * @return The rooms.
+     */
+    private Room[] snapshotRooms() {
+        synchronized (rooms) {
+            return rooms.toArray(new Room[0]);
+        }
+    }
+
+    /**
+     * Asks the server thread to stop after its current tick.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the server loop until stop is called.
+     */
+    @Override
+    public void run() {
+        long next = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.channel() == serverChannel) {
+                        acceptAll();
+                    } else if (key.channel() == spectatorChannel) {
+                        acceptSpectators();
+                    } else {
+                        readWatch(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                if (System.nanoTime() - next >= 0) {
+                    dispatch();
+                    dropLateWatchers();
+                    next += tickNanos;
+                    // After a long stall start over instead of racing ahead
+                    if (System.nanoTime() - next > 10 * tickNanos) {
+                        next = System.nanoTime() + tickNanos;
+                    }
+                }
+            }
+        } catch (IOException exc) {
+            exc.printStackTrace();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Hands every idle room to the pool. Rooms work out for themselves how
+     * many ticks are due.
+     */
+    private void dispatch() {
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            if (room.tryStart()) {
+                pool.execute(room);
+            } else if (!room.hasFailed()) {
+                lateRuns++;
+            }
+        }
+    }
+
+    /**
+     * Accepts every waiting client and seats each in a room. A client is
+     * turned away if every room is full and no more may be opened.
+     *
+     * @throws IOException If accepting fails.
+     */
+    private void acceptAll() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            Room room = findRoom();
+            if (room == null) {
+                channel.close();
+            } else {
+                room.admit(channel);
+            }
+        }
+    }
+
+    /**
+     * Accepts every waiting spectator and waits for it to say which room it
+     * wants to watch.
+     *
+     * @throws IOException If accepting fails.
+     */
+    private void acceptSpectators() throws IOException {
+        SocketChannel channel;
+        while ((channel = spectatorChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new PendingWatch());
+        }
+    }
+
+    /**
+     * Reads the WATCH of a spectator and, once it is complete, hands the
+     * spectator to its room. A spectator that sends anything else, or asks
+     * for a room that is not open, is dropped.
+     *
+     * @param key The selection key of the spectator.
+     */
+    private void readWatch(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = ((PendingWatch) key.attachment()).buffer;
+        try {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Spectator left");
+            }
+        } catch (IOException exc) {
+            key.cancel();
+            closeQuietly(channel);
+            return;
+        }
+        if (buffer.hasRemaining()) {
+            return;
+        }
+        key.cancel();
+        buffer.flip();
+        Room room = null;
+        if (buffer.getInt() == 1 + Protocol.WATCH_BYTES
+                && buffer.get() == Protocol.WATCH) {
+            room = findWatchedRoom(buffer.getInt());
+        }
+        if (room == null) {
+            closeQuietly(channel);
+        } else {
+            room.admitSpectator(channel);
+        }
+    }
+
+    /**
+     * Drops the spectators that have not said which room to watch in time.
+     */
+    private void dropLateWatchers() {
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (key.isValid() && attachment instanceof PendingWatch
+                    && now - ((PendingWatch) attachment).deadline > 0) {
+                key.cancel();
+                closeQuietly((SocketChannel) key.channel());
+            }
+        }
+    }
+
+    /**
+     * Finds the room a spectator asked for.
+     *
+     * @param number The room number, or Protocol.ANY_ROOM for the room with
+     * the most players.
+     * @return The room, or null if there is no such room.
+     */
+    private Room findWatchedRoom(int number) {
+        Room found = null;
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            if (room.hasFailed()) {
+                continue;
+            }
+            if (number == Protocol.ANY_ROOM) {
+                if (found == null || room.getOccupied() > found.getOccupied()) {
+                    found = room;
+                }
+            } else if (room.getNumber() == number) {
+                return room;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Closes a socket, ignoring errors.
+     *
+     * @param channel The socket to close.
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException exc) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Finds a room with a free seat and reserves it, opening a new room if
+     * needed. Rooms that failed are dropped on the way.
+     *
+     * @return The room, or null if there is no space left.
+     */
+    private Room findRoom() {
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            if (room.hasFailed()) {
+                synchronized (rooms) {
+                    rooms.remove(i--);
+                }
+            } else if (room.reserveSeat()) {
+                return room;
+            }
+        }
+        if (rooms.size() >= maxRooms) {
+            return null;
+        }
+        Room room = new Room(roomsOpened, seatsPerRoom, seed + roomsOpened,
+                tickNanos, worldWidth, worldHeight);
+        if (store != null) {
+            room.setMatchStore(store);
+        }
+        room.setRunTimes(runTimes);
+        roomsOpened++;
+        synchronized (rooms) {
+            rooms.add(room);
+        }
+        return room.reserveSeat() ? room : null;
+    }
+
+    /**
+     * Keeps the pickups and results of the rooms opened from now on in a
+     * store.
+     *
+     * @param inStore The store.
+     */
+    public void setMatchStore(MatchStore inStore) {
+        store = inStore;
+    }
+
+    /**
+     * Sets the size of the world matches are played in, Simulation.WIDTH by
+     * Simulation.HEIGHT unless changed. Call it before the server runs.
+     *
+     * @param width  The width of the world.
+     * @param height The height of the world.
+     */
+    public void setWorldSize(int width, int height) {
+        if (width < Simulation.WIDTH || height < Simulation.HEIGHT) {
+            throw new IllegalArgumentException("The world must be at least "
+                    + Simulation.WIDTH + " by " + Simulation.HEIGHT);
+        }
+        worldWidth = width;
+        worldHeight = height;
+    }
+
+    /**
+     * Stops the pool, then closes every room and the server socket.
+     */
+    private void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        for (Room room : snapshotRooms()) {
+            room.close();
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof PendingWatch) {
+                    key.channel().close();
+                }
+            }
+            if (spectatorChannel != null) {
+                spectatorChannel.close();
+            }
+            serverChannel.close();
+            selector.close();
+        } catch (IOException exc) {
+            // Nothing left to do
+        }
+    }
+
+    /**
+     * The main method to run a server.
+     *
+     * @param args The optional port, number of seats per room, number of
+     * rooms, file to keep results in ("none" for no file), spectator port
+     * and world size as WIDTHxHEIGHT.
+     * @throws IOException If the port cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : Protocol.DEFAULT_PORT;
+        int seatCount = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int roomCount = args.length > 2 ? Integer.parseInt(args[2])
+                : DEFAULT_MAX_ROOMS;
+        GameServer server = new GameServer(port, seatCount, roomCount,
+                System.nanoTime());
+        if (args.length > 3 && !args[3].equals("none")) {
+            server.setMatchStore(new MatchStore(Paths.get(args[3])));
+        }
+        int spectatorPort = server.openSpectatorPort(args.length > 4
+                ? Integer.parseInt(args[4]) : Protocol.DEFAULT_SPECTATOR_PORT);
+        String world = args.length > 5 ? args[5]
+                : Simulation.WIDTH + "x" + Simulation.HEIGHT;
+        String[] size = world.split("x");
+        server.setWorldSize(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        System.out.println("Survivor server on port " + server.getPort()
+                + " with up to " + roomCount + " rooms of " + seatCount
+                + " seats in a " + world + " world, spectators on port "
+                + spectatorPort);
+        server.run();
+    }
+}
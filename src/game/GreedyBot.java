@@ -0,0 +1,114 @@
+package game;
+
+import java.util.HashSet;
+
+/**
+ * The GreedyBot class heads for the nearest coin worth points, turning
+ * until it faces the coin and then driving at it. Coins that take points
+ * away are ignored. Once it has picked a coin it keeps going for that coin
+ * until someone takes it, and a coin it cannot get to in time, such as one
+ * too close to the edge of the map, is given up on for good.
+ *
+ * Angles are worked out with StrictMath so a match between bots plays out
+ * the same on every machine.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class GreedyBot implements Bot {
+    // Off by more than this many degrees the bot only turns
+    private static final double DRIVE_ANGLE = 45;
+
+    // Ticks spent going for one coin before giving up on it
+    private static final int PATIENCE = 500;
+
+    // Instance variables for the coin being gone for
+    private int target = -1;
+    private int ticksOnTarget;
+    private final HashSet<Integer> givenUp = new HashSet<Integer>();
+
+    @Override
+    public int decide(MatchView view, int seat) {
+        Player player = view.getPlayer(seat);
+        double px = player.getPivotX();
+        double py = player.getPivotY();
+
+        int coin = find(view, target);
+        if (coin >= 0 && ++ticksOnTarget > PATIENCE) {
+            givenUp.add(target);
+            coin = -1;
+        }
+        if (coin < 0) {
+            coin = nearest(view, px, py);
+            target = coin < 0 ? -1 : view.getCoinId(coin);
+            ticksOnTarget = 0;
+        }
+        if (coin < 0) {
+            return 0;
+        }
+
+        // Moving forward goes against the rotation, so the player faces a
+        // coin when its rotation points half a turn away from it
+        double wanted = StrictMath.toDegrees(StrictMath.atan2(
+                py - view.getCoinY(coin), px - view.getCoinX(coin)));
+        double off = wanted - player.rotation;
+        off -= 360 * Math.floor((off + 180) / 360);
+
+        int input = 0;
+        double step = player.stepSize;
+        if (off > step / 2) {
+            input |= Player.ROTATE_RIGHT;
+        } else if (off < -step / 2) {
+            input |= Player.ROTATE_LEFT;
+        }
+        if (Math.abs(off) < DRIVE_ANGLE) {
+            input |= Player.FORWARD;
+        }
+        return input;
+    }
+
+    /**
+     * Finds the nearest coin worth points that has not been given up on.
+     *
+     * @param view The match.
+     * @param px   The x coordinate of the player.
+     * @param py   The y coordinate of the player.
+     * @return The index of the coin, or -1 if there is none.
+     */
+    private int nearest(MatchView view, double px, double py) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < view.getCoinCount(); i++) {
+            if (view.getCoinValue(i) <= 0
+                    || givenUp.contains(view.getCoinId(i))) {
+                continue;
+            }
+            double dx = view.getCoinX(i) - px, dy = view.getCoinY(i) - py;
+            double distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds a coin by its id.
+     *
+     * @param view The match.
+     * @param id   The id of the coin, or -1 for none.
+     * @return The index of the coin, or -1 if it is gone.
+     */
+    private static int find(MatchView view, int id) {
+        if (id < 0) {
+            return -1;
+        }
+        for (int i = 0; i < view.getCoinCount(); i++) {
+            if (view.getCoinId(i) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
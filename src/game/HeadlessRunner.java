@@ -0,0 +1,79 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The HeadlessRunner class runs a Survivor match without opening a window,
+ * as fast as the machine allows. Each player holds a random combination of
+ * keys that changes every few ticks. At the end the number of ticks simulated
+ * per second is printed along with the final scores and a checksum of the
+ * final state, which is the same on every machine for the same arguments. If
+ * a file is given the match is also recorded to it for ReplayPlayer. With
+ * -Dsurvivor.profile=true the time spent in each phase of the tick is
+ * printed as well.
+ *
+ * Usage: java game.HeadlessRunner [ticks] [players] [seed] [replay file]
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class HeadlessRunner {
+
+    // Number of ticks a random input is held before a new one is picked
+    private static final int INPUT_HOLD_TICKS = 20;
+
+    /**
+     * The main method to run a headless match.
+     *
+     * @param args The optional tick count, player count, seed and replay file.
+     * @throws IOException If the replay file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        int playerCount = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        Simulation simulation = new Simulation(
+                Simulation.createPlayers(playerCount), seed,
+                Simulation.DEFAULT_TICK_NANOS);
+        Random inputRandom = new Random(seed ^ 0x5DEECE66DL);
+        int[] inputs = new int[playerCount];
+        ReplayRecorder recorder = args.length > 3
+                ? new ReplayRecorder(Paths.get(args[3]), simulation,
+                        ReplayRecorder.DEFAULT_KEYFRAME_INTERVAL)
+                : null;
+
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            if (t % INPUT_HOLD_TICKS == 0) {
+                for (int i = 0; i < playerCount; i++) {
+                    inputs[i] = inputRandom.nextInt(16);
+                }
+            }
+            if (recorder != null) {
+                recorder.record(inputs);
+            }
+            simulation.tick(inputs);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (recorder != null) {
+            recorder.close();
+        }
+
+        double seconds = elapsed / 1e9;
+        double simulated = ticks * simulation.getTickNanos() / 1e9;
+        System.out.printf("%d ticks in %.3f s: %.0f ticks/s, %.1fx real time%n",
+                ticks, seconds, ticks / seconds, simulated / seconds);
+        for (int i = 0; i < playerCount; i++) {
+            System.out.println("Player " + (i + 1) + ": "
+                    + simulation.getScore(i));
+        }
+        System.out.printf("Checksum: %08x%n", simulation.checksum());
+        CoinStore coins = simulation.getCoinStore();
+        System.out.printf("Coin pool: %d slots, %d hits, %d misses%n",
+                coins.getCapacity(), coins.getHits(), coins.getMisses());
+        Profiler.printReport();
+    }
+}
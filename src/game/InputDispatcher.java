@@ -0,0 +1,232 @@
+package game;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The InputDispatcher class turns the keyboard into one input per local
+ * player per tick. It listens on the AWT event thread, looks every key up
+ * in a KeyBindings table and puts the press or release in a queue; at the
+ * start of each tick the game thread drains the queue in order and samples
+ * the input bits of every player.
+ *
+ * The queue is a fixed ring with one writer (the event thread) and one
+ * reader (the game thread), each of which only moves its own end, so
+ * neither ever waits for the other. Because the transitions are kept in
+ * order, a key that is pressed and released again between two ticks still
+ * counts for the next tick instead of being missed. Should the queue ever
+ * fill up, the event thread's own copy of which keys are down is taken
+ * instead, so no key stays stuck.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class InputDispatcher implements KeyListener {
+    // Key transitions held between ticks, a power of two
+    private static final int QUEUE_SIZE = 1024;
+
+    // Event flag for a press, and the event that releases every key
+    private static final int PRESSED = 1 << 30;
+    private static final int RELEASE_ALL = -1;
+
+    // Instance variables for the queue: the reader owns head, the writer
+    // owns tail, and each publishes its end for the other
+    private final int[] queue = new int[QUEUE_SIZE];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // The keys down as the event thread last saw them, taken over by the
+    // game thread after transitions were dropped
+    private final AtomicIntegerArray keysDown;
+    private final AtomicBoolean resync = new AtomicBoolean();
+
+    // Instance variables for sampling: the key table, then the keys held and
+    // the keys pressed since the last tick, only touched by the game thread
+    private final KeyBindings bindings;
+    private final int[] held;
+    private final int[] tapped;
+
+    /**
+     * Constructs an InputDispatcher.
+     *
+     * @param inBindings    The keys of every player.
+     * @param inPlayerCount The number of local players, keys bound to any
+     * later player are ignored.
+     */
+    public InputDispatcher(KeyBindings inBindings, int inPlayerCount) {
+        bindings = inBindings;
+        held = new int[inPlayerCount];
+        tapped = new int[inPlayerCount];
+        keysDown = new AtomicIntegerArray(inPlayerCount);
+    }
+
+    /**
+     * Gets the key table, which can be changed while the game runs.
+     *
+     * @return The bindings.
+     */
+    public KeyBindings getBindings() {
+        return bindings;
+    }
+
+    /**
+     * Gets the number of local players.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount() {
+        return held.length;
+    }
+
+    /**
+     * Applies every key transition since the last call and gives the input
+     * of each player for the coming tick: the keys held now, plus any key
+     * that was pressed since the last tick even if it was already let go.
+     * Call it from the game thread only.
+     *
+     * @param inputs Filled with the input bits of each player, indexed like
+     * the players.
+     */
+    public void sample(int[] inputs) {
+        long from = head.get();
+        long to = tail.get();
+        for (long n = from; n < to; n++) {
+            apply(queue[(int) n & (QUEUE_SIZE - 1)]);
+        }
+        head.lazySet(to);
+        if (resync.getAndSet(false)) {
+            for (int p = 0; p < held.length; p++) {
+                held[p] = keysDown.get(p);
+            }
+        }
+
+        int count = Math.min(inputs.length, held.length);
+        for (int p = 0; p < count; p++) {
+            inputs[p] = held[p] | tapped[p];
+            tapped[p] = 0;
+        }
+    }
+
+    /**
+     * Applies one key transition to the held keys.
+     *
+     * @param event The transition.
+     */
+    private void apply(int event) {
+        if (event == RELEASE_ALL) {
+            for (int p = 0; p < held.length; p++) {
+                held[p] = 0;
+            }
+            return;
+        }
+        int binding = event & ~PRESSED;
+        int player = KeyBindings.playerOf(binding);
+        if (player >= held.length) {
+            return;
+        }
+        int bit = KeyBindings.inputOf(binding);
+        if ((event & PRESSED) != 0) {
+            held[player] |= bit;
+            tapped[player] |= bit;
+        } else {
+            held[player] &= ~bit;
+        }
+    }
+
+    /**
+     * Lets go of every key, for when the window loses the keyboard focus and
+     * the releases would never arrive. Like the key events, call it on the
+     * event thread.
+     */
+    public void releaseAll() {
+        for (int p = 0; p < keysDown.length(); p++) {
+            keysDown.lazySet(p, 0);
+        }
+        offer(RELEASE_ALL);
+    }
+
+    /**
+     * Gets the number of transitions dropped because the game thread fell
+     * so far behind that the queue was full.
+     *
+     * @return The number of dropped transitions.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Puts a transition at the end of the queue, or drops it if the queue is
+     * full. Only called from the event thread.
+     *
+     * @param event The transition.
+     */
+    private void offer(int event) {
+        long end = tail.get();
+        if (end - head.get() == QUEUE_SIZE) {
+            dropped.incrementAndGet();
+            resync.set(true);
+            return;
+        }
+        queue[(int) end & (QUEUE_SIZE - 1)] = event;
+        tail.lazySet(end + 1);
+    }
+
+    /**
+     * Queues the press of a bound key.
+     *
+     * @param e The KeyEvent object representing the key pressed event.
+     */
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int binding = bindings.lookup(e.getKeyCode());
+        if (binding >= 0) {
+            track(binding, true);
+            offer(binding | PRESSED);
+        }
+    }
+
+    /**
+     * Queues the release of a bound key.
+     *
+     * @param e The KeyEvent object representing the key released event.
+     */
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int binding = bindings.lookup(e.getKeyCode());
+        if (binding >= 0) {
+            track(binding, false);
+            offer(binding);
+        }
+    }
+
+    /**
+     * Updates the event thread's copy of the keys down.
+     *
+     * @param binding The binding of the key.
+     * @param down    True if the key was pressed, false if released.
+     */
+    private void track(int binding, boolean down) {
+        int player = KeyBindings.playerOf(binding);
+        if (player < keysDown.length()) {
+            int bits = keysDown.get(player);
+            int bit = KeyBindings.inputOf(binding);
+            keysDown.lazySet(player, down ? bits | bit : bits & ~bit);
+        }
+    }
+
+    /**
+     * Handles the key typed event (unused, only presses and releases
+     * matter).
+     *
+     * @param e The KeyEvent object representing the key typed event.
+     */
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // Left empty in our implementation
+    }
+}
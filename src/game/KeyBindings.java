@@ -0,0 +1,129 @@
+package game;
+
+import java.awt.event.KeyEvent;
+import java.util.HashMap;
+
+/**
+ * The KeyBindings class is the table of which key controls which input of
+ * which local player. Any number of players can be bound, each key controls
+ * at most one input, and binding a key that is already in use moves it.
+ *
+ * Keys are looked up on the AWT event thread while bindings may be changed
+ * from anywhere, so the table is never changed in place: every change
+ * publishes a new copy, and a lookup reads whichever copy is current.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class KeyBindings {
+    // Default controls of the first players: forward, backward, rotate right
+    // and rotate left
+    private static final int[][] DEFAULT_KEYS = {
+        {KeyEvent.VK_UP, KeyEvent.VK_DOWN, KeyEvent.VK_RIGHT, KeyEvent.VK_LEFT},
+        {KeyEvent.VK_W, KeyEvent.VK_S, KeyEvent.VK_D, KeyEvent.VK_A},
+        {KeyEvent.VK_I, KeyEvent.VK_K, KeyEvent.VK_L, KeyEvent.VK_J},
+        {KeyEvent.VK_NUMPAD8, KeyEvent.VK_NUMPAD5, KeyEvent.VK_NUMPAD6,
+                KeyEvent.VK_NUMPAD4}};
+    private static final int[] INPUT_BITS = {Player.FORWARD, Player.BACKWARD,
+            Player.ROTATE_RIGHT, Player.ROTATE_LEFT};
+
+    // Bits of a binding below the player index
+    private static final int BIT_SHIFT = 4;
+
+    // Key code to binding, packed as player index << BIT_SHIFT | input bit
+    private volatile HashMap<Integer, Integer> table = new HashMap<Integer, Integer>();
+
+    /**
+     * Makes the default bindings for the given number of players: the arrow
+     * keys, WASD, IJKL and the number pad, in that order.
+     *
+     * @param playerCount The number of players, at most
+     * getDefaultPlayerCount().
+     * @return The bindings.
+     */
+    public static KeyBindings defaults(int playerCount) {
+        if (playerCount > DEFAULT_KEYS.length) {
+            throw new IllegalArgumentException("Only " + DEFAULT_KEYS.length
+                    + " players have default keys");
+        }
+        KeyBindings bindings = new KeyBindings();
+        for (int p = 0; p < playerCount; p++) {
+            for (int i = 0; i < INPUT_BITS.length; i++) {
+                bindings.bind(DEFAULT_KEYS[p][i], p, INPUT_BITS[i]);
+            }
+        }
+        return bindings;
+    }
+
+    /**
+     * Gets the number of players defaults can bind.
+     *
+     * @return The number of players.
+     */
+    public static int getDefaultPlayerCount() {
+        return DEFAULT_KEYS.length;
+    }
+
+    /**
+     * Makes a key control one input of a player, replacing whatever it
+     * controlled before.
+     *
+     * @param keyCode  The key, one of the KeyEvent.VK_ codes.
+     * @param player   The index of the local player.
+     * @param inputBit One of Player.FORWARD, BACKWARD, ROTATE_RIGHT or
+     * ROTATE_LEFT.
+     */
+    public synchronized void bind(int keyCode, int player, int inputBit) {
+        if (player < 0 || Integer.bitCount(inputBit) != 1
+                || inputBit >= 1 << BIT_SHIFT) {
+            throw new IllegalArgumentException("Bad binding for player "
+                    + player + ", input " + inputBit);
+        }
+        HashMap<Integer, Integer> copy = new HashMap<Integer, Integer>(table);
+        copy.put(keyCode, (player << BIT_SHIFT) | inputBit);
+        table = copy;
+    }
+
+    /**
+     * Makes a key control nothing.
+     *
+     * @param keyCode The key.
+     */
+    public synchronized void unbind(int keyCode) {
+        HashMap<Integer, Integer> copy = new HashMap<Integer, Integer>(table);
+        copy.remove(keyCode);
+        table = copy;
+    }
+
+    /**
+     * Finds what a key controls.
+     *
+     * @param keyCode The key.
+     * @return The binding, or -1 if the key is not bound. Read it with
+     * playerOf and inputOf.
+     */
+    public int lookup(int keyCode) {
+        Integer binding = table.get(keyCode);
+        return binding == null ? -1 : binding;
+    }
+
+    /**
+     * Gets the player of a binding returned by lookup.
+     *
+     * @param binding The binding.
+     * @return The index of the player.
+     */
+    public static int playerOf(int binding) {
+        return binding >>> BIT_SHIFT;
+    }
+
+    /**
+     * Gets the input bit of a binding returned by lookup.
+     *
+     * @param binding The binding.
+     * @return The input bit.
+     */
+    public static int inputOf(int binding) {
+        return binding & ((1 << BIT_SHIFT) - 1);
+    }
+}
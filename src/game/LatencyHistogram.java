@@ -0,0 +1,146 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts durations in nanoseconds in buckets that
+ * grow with the value, eight buckets for every power of two, so any
+ * percentile read back is within an eighth of the true value. Recording is
+ * one bucket increment and needs no allocation, and several threads may
+ * record into the same histogram at once.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class LatencyHistogram {
+    // Values below this get a bucket each, above it 8 buckets per power of two
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    // Instance variables for the counts
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Adds a duration.
+     *
+     * @param nanos The duration in nanoseconds, negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.incrementAndGet();
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    /**
+     * Gets the number of durations recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Gets the longest duration recorded.
+     *
+     * @return The maximum in nanoseconds, 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the duration that the given fraction of recorded durations do not
+     * exceed.
+     *
+     * @param fraction The fraction, for example 0.99 for the 99th percentile.
+     * @return The upper bound of the bucket holding that percentile in
+     * nanoseconds, never more than the maximum, 0 if nothing was recorded.
+     */
+    public long getPercentile(double fraction) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) {
+                return Math.min(upperBound(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Adds every duration recorded in another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int b = 0; b < BUCKETS; b++) {
+            long count = other.counts.get(b);
+            if (count != 0) {
+                counts.addAndGet(b, count);
+                total.addAndGet(count);
+            }
+        }
+        long otherMax = other.max.get();
+        long seen = max.get();
+        while (otherMax > seen && !max.compareAndSet(seen, otherMax)) {
+            seen = max.get();
+        }
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Gets the bucket a value falls into.
+     *
+     * @param value The value, not negative.
+     * @return The index of the bucket.
+     */
+    private static int bucketOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The value.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return (1L << exponent) + (sub + 1) * width - 1;
+    }
+}
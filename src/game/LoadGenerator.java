@@ -0,0 +1,396 @@
+package game;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * The LoadGenerator class puts a GameServer under the load of many players
+ * to find out how many one machine can host, and to catch a server change
+ * that makes it host fewer. It starts a server in this process, or uses one
+ * already running elsewhere, and connects simulated clients at a steady
+ * rate until all of them are in.
+ *
+ * Every client is a GameClient driven by a bot, so the inputs look like a
+ * player's: held for a while, turning towards coins. All the clients run on
+ * one thread, which once per tick polls every socket, lets each bot decide
+ * and sends the inputs. Every client gets a state every tick, so waiting on
+ * a selector would find all of them ready anyway.
+ *
+ * While it runs, a line is printed every few seconds with the connection
+ * and room counts, the spread of the time rooms take per run, how many runs
+ * were late and how many ticks were dropped, the bandwidth both ways, the
+ * states the clients got and the garbage collections of this process. A
+ * summary over the whole run follows at the end. The server numbers are
+ * only known for a server in this process. If the clients themselves fall
+ * behind, the count of ticks they caught up on says so, and the other
+ * numbers then understate what the server could do.
+ *
+ * Usage: java game.LoadGenerator [clients] [seconds] [seats per room] [bots]
+ *        [clients per second] [report seconds] [host:port]
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class LoadGenerator {
+    // Instance variables for the server and the clients, in connection order
+    private final String host;
+    private final int port;
+    private final GameServer server;
+    private final String[] botNames;
+    private final GameClient[] clients;
+    private final RemoteMatch[] matches;
+    private final Bot[] bots;
+    private final boolean[] seated;
+    private final boolean[] lost;
+    private int connected;
+    private int refused;
+    private int disconnected;
+
+    // Instance variables for the totals of the whole run
+    private final LatencyHistogram runTimes = new LatencyHistogram();
+    private final LatencyHistogram gcPauses = new LatencyHistogram();
+    private final LatencyHistogram intervalPauses = new LatencyHistogram();
+    private long ticksBehind;
+
+    // Instance variables for the totals at the last report
+    private long lastReceived, lastSent, lastStates;
+    private long lastLate, lastDropped, lastGcCount, lastGcMillis;
+
+    /**
+     * Constructs a LoadGenerator for a server.
+     *
+     * @param inHost        The host name of the server.
+     * @param inPort        The port of the server.
+     * @param inServer      The server if it runs in this process, or null.
+     * @param inClientCount The number of clients to connect.
+     * @param inBotNames    The bots driving the clients, used in turn.
+     */
+    public LoadGenerator(String inHost, int inPort, GameServer inServer,
+            int inClientCount, String[] inBotNames) {
+        host = inHost;
+        port = inPort;
+        server = inServer;
+        botNames = inBotNames;
+        clients = new GameClient[inClientCount];
+        matches = new RemoteMatch[inClientCount];
+        bots = new Bot[inClientCount];
+        seated = new boolean[inClientCount];
+        lost = new boolean[inClientCount];
+        watchGarbageCollection();
+    }
+
+    /**
+     * Runs the load until the time is up, printing a line every report
+     * interval and the summary at the end.
+     *
+     * @param seconds       The length of the run.
+     * @param ratePerSecond The number of clients connected per second while
+     * ramping up.
+     * @param reportSeconds The time between report lines.
+     */
+    public void run(long seconds, int ratePerSecond, int reportSeconds) {
+        TickClock clock = new TickClock(Simulation.DEFAULT_TICK_NANOS);
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long nextReport = start + reportSeconds * 1_000_000_000L;
+        double ticksPerSecond = 1e9 / clock.getTickNanos();
+        double owed = 0;
+
+        System.out.println("     time  clients  rooms   run p50    p99  p99.9"
+                + "    max  late  drop    in KB/s  out KB/s  states/s"
+                + "  gc  gc ms  longest  behind");
+        long now = start;
+        while (now - end < 0) {
+            int due = clock.advance(now);
+            if (due > 1) {
+                ticksBehind += due - 1;
+            }
+            owed += due * ratePerSecond / ticksPerSecond;
+            while (owed >= 1 && connected + refused < clients.length) {
+                connect(connected + refused);
+                owed--;
+            }
+            if (connected + refused == clients.length) {
+                owed = 0;
+            }
+
+            pollAll();
+            for (int t = 0; t < due; t++) {
+                sendAll();
+            }
+
+            now = System.nanoTime();
+            if (now - nextReport >= 0) {
+                report(now - start, reportSeconds);
+                nextReport += reportSeconds * 1_000_000_000L;
+            }
+            LockSupport.parkNanos(clock.nanosUntilNextTick());
+            now = System.nanoTime();
+        }
+        summarize((now - start) / 1e9);
+        for (int i = 0; i < connected + refused; i++) {
+            if (clients[i] != null) {
+                clients[i].close();
+            }
+        }
+    }
+
+    /*
+    The following methods are private helpers for driving the clients and
+    gathering the numbers.
+    */
+
+    private void connect(int index) {
+        try {
+            clients[index] = new GameClient(host, port, false);
+        } catch (IOException exc) {
+            refused++;
+            return;
+        }
+        matches[index] = new RemoteMatch();
+        bots[index] = Bot.create(botNames[index % botNames.length], index);
+        connected++;
+    }
+
+    private void pollAll() {
+        for (int i = 0; i < clients.length; i++) {
+            GameClient client = clients[i];
+            if (client == null || lost[i]) {
+                continue;
+            }
+            try {
+                if (client.poll(matches[i]) < 0) {
+                    lost[i] = true;
+                    disconnected++;
+                    continue;
+                }
+            } catch (IOException exc) {
+                lost[i] = true;
+                disconnected++;
+                continue;
+            }
+            if (!seated[i] && client.isWelcomed()) {
+                matches[i].setLocalSeat(client.getSeat());
+                seated[i] = true;
+            }
+            if (seated[i]) {
+                matches[i].interpolate(0);
+            }
+        }
+    }
+
+    private void sendAll() {
+        for (int i = 0; i < clients.length; i++) {
+            if (!seated[i] || lost[i]) {
+                continue;
+            }
+            // Until the first state arrives there is nothing to decide on
+            int input = matches[i].getPlayerCount() > 0
+                    ? bots[i].decide(matches[i], clients[i].getSeat()) : 0;
+            try {
+                int sequence = clients[i].sendInput(input);
+                if (sequence >= 0) {
+                    matches[i].predict(sequence, input);
+                }
+            } catch (IOException exc) {
+                lost[i] = true;
+                disconnected++;
+            }
+        }
+    }
+
+    private void report(long elapsedNanos, int reportSeconds) {
+        long received = 0, sent = 0, states = 0;
+        for (GameClient client : clients) {
+            if (client != null) {
+                received += client.getBytesReceived();
+                sent += client.getBytesSent();
+                states += client.getStatesReceived();
+            }
+        }
+        GarbageCollection gc = new GarbageCollection();
+
+        StringBuilder line = new StringBuilder();
+        line.append(String.format("%7d s  %7d", elapsedNanos / 1_000_000_000L,
+                connected - disconnected));
+        if (server != null) {
+            // The server keeps recording while its histogram is read and
+            // reset, which may lose the odd run at the edge of a report
+            LatencyHistogram interval = server.getRunTimes();
+            runTimes.add(interval);
+            long late = server.getLateRuns();
+            long dropped = server.getTicksDropped();
+            line.append(String.format("  %5d  %6s %6s %6s %6s  %4d  %4d",
+                    server.getRoomCount(), duration(interval.getPercentile(0.5)),
+                    duration(interval.getPercentile(0.99)),
+                    duration(interval.getPercentile(0.999)),
+                    duration(interval.getMax()), late - lastLate,
+                    dropped - lastDropped));
+            interval.reset();
+            lastLate = late;
+            lastDropped = dropped;
+        } else {
+            line.append(String.format("  %5s  %6s %6s %6s %6s  %4s  %4s",
+                    "-", "-", "-", "-", "-", "-", "-"));
+        }
+        line.append(String.format("  %9.1f  %8.1f  %8d  %2d  %5d  %7s  %6d",
+                (received - lastReceived) / 1024.0 / reportSeconds,
+                (sent - lastSent) / 1024.0 / reportSeconds,
+                (states - lastStates) / reportSeconds, gc.count - lastGcCount,
+                gc.millis - lastGcMillis, duration(intervalPauses.getMax()),
+                ticksBehind));
+        System.out.println(line);
+        intervalPauses.reset();
+        lastReceived = received;
+        lastSent = sent;
+        lastStates = states;
+        lastGcCount = gc.count;
+        lastGcMillis = gc.millis;
+    }
+
+    private void summarize(double seconds) {
+        long received = 0;
+        for (GameClient client : clients) {
+            if (client != null) {
+                received += client.getBytesReceived();
+            }
+        }
+        System.out.printf("%d clients connected, %d refused, %d disconnected"
+                + " by the server in %.0f s%n", connected, refused,
+                disconnected, seconds);
+        if (server != null) {
+            runTimes.add(server.getRunTimes());
+            System.out.printf("Room runs: p50 %s  p99 %s  p99.9 %s  max %s,"
+                    + " %d late, %d ticks dropped%n",
+                    duration(runTimes.getPercentile(0.5)),
+                    duration(runTimes.getPercentile(0.99)),
+                    duration(runTimes.getPercentile(0.999)),
+                    duration(runTimes.getMax()), server.getLateRuns(),
+                    server.getTicksDropped());
+        }
+        System.out.printf("Received %.1f KB/s, %.2f KB/s per client%n",
+                received / 1024.0 / seconds,
+                received / 1024.0 / seconds / Math.max(1, connected));
+        GarbageCollection gc = new GarbageCollection();
+        System.out.printf("GC: %d collections, %d ms, pauses p50 %s  p99 %s"
+                + "  max %s%n", gc.count, gc.millis,
+                duration(gcPauses.getPercentile(0.5)),
+                duration(gcPauses.getPercentile(0.99)),
+                duration(gcPauses.getMax()));
+        System.out.println("Client ticks caught up late: " + ticksBehind);
+    }
+
+    /**
+     * Formats a duration for the report, in microseconds below ten
+     * milliseconds and in milliseconds above.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The formatted duration.
+     */
+    private static String duration(long nanos) {
+        if (nanos < 10_000_000L) {
+            return nanos / 1000 + "us";
+        }
+        return nanos / 1_000_000 + "ms";
+    }
+
+    /**
+     * Records the length of every garbage collection of this process as the
+     * collectors report it.
+     */
+    private void watchGarbageCollection() {
+        for (GarbageCollectorMXBean bean
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(bean instanceof NotificationEmitter)) {
+                continue;
+            }
+            ((NotificationEmitter) bean).addNotificationListener(
+                    (notification, handback) -> {
+                        if (!notification.getType().equals(GarbageCollectionNotificationInfo
+                                .GARBAGE_COLLECTION_NOTIFICATION)) {
+                            return;
+                        }
+                        GarbageCollectionNotificationInfo info =
+                                GarbageCollectionNotificationInfo.from(
+                                        (CompositeData) notification.getUserData());
+                        long nanos = info.getGcInfo().getDuration() * 1_000_000L;
+                        gcPauses.record(nanos);
+                        intervalPauses.record(nanos);
+                    }, null, null);
+        }
+    }
+
+    /**
+     * The GarbageCollection class is the count and total time of the
+     * collections of this process so far, over all collectors.
+     */
+    private static class GarbageCollection {
+        long count;
+        long millis;
+
+        GarbageCollection() {
+            for (GarbageCollectorMXBean bean
+                    : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, bean.getCollectionCount());
+                millis += Math.max(0, bean.getCollectionTime());
+            }
+        }
+    }
+
+    /**
+     * The main method to run the load.
+     *
+     * @param args The optional client count, run time in seconds, room size,
+     * bots, connection rate, report interval and address of a server to
+     * use instead of one in this process.
+     * @throws IOException If the server cannot be started.
+     * @throws InterruptedException If interrupted while stopping the server.
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+        int seatsPerRoom = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        String[] bots = (args.length > 3 ? args[3] : "random,greedy").split(",");
+        int rate = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+        int reportSeconds = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+        for (String bot : bots) {
+            Bot.create(bot, 0);
+        }
+
+        GameServer server = null;
+        Thread serverThread = null;
+        String host = "localhost";
+        int port;
+        if (args.length > 6) {
+            String[] address = args[6].split(":");
+            host = address[0];
+            port = address.length > 1 ? Integer.parseInt(address[1])
+                    : Protocol.DEFAULT_PORT;
+        } else {
+            server = new GameServer(0, seatsPerRoom,
+                    GameServer.DEFAULT_MAX_ROOMS, 42);
+            port = server.getPort();
+            serverThread = new Thread(server, "server");
+            serverThread.start();
+        }
+
+        System.out.printf("%d clients at %d per second against %s:%d%s,"
+                + " %d seats per room, bots %s%n", clientCount, rate, host,
+                port, server != null ? " (in this process)" : "",
+                seatsPerRoom, String.join(",", bots));
+        LoadGenerator load = new LoadGenerator(host, port, server,
+                clientCount, bots);
+        load.run(seconds, rate, reportSeconds);
+
+        if (server != null) {
+            server.stop();
+            serverThread.join();
+        }
+    }
+}
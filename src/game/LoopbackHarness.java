@@ -0,0 +1,186 @@
+package game;
+
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The LoopbackHarness class checks a GameServer end to end on this machine.
+ * It starts a server on a free port, connects the given number of clients,
+ * has every client hold forward for a few seconds and then checks that each
+ * client got states, that the server acknowledged its inputs and that its
+ * player really moved. Clients predict their own player, and the largest
+ * correction the last state made to a prediction is reported.
+ *
+ * Spectators can watch along. Each must get states that keep up with the
+ * players', and one extra spectator that never reads must not hold anybody
+ * up; whether it was dropped by the end is reported.
+ *
+ * Usage: java game.LoopbackHarness [clients] [seconds] [seats per room]
+ *        [spectators]
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class LoopbackHarness {
+
+    /**
+     * The main method to run the harness. The exit code is 1 if any client
+     * failed a check.
+     *
+     * @param args The optional client count, run time in seconds, room
+     * size, which defaults to one room for everybody, and spectator count.
+     * @throws Exception If the server or a client cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int seatsPerRoom = args.length > 2 ? Integer.parseInt(args[2]) : clientCount;
+        int spectatorCount = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int roomCount = (clientCount + seatsPerRoom - 1) / seatsPerRoom;
+
+        GameServer server = new GameServer(0, seatsPerRoom, roomCount, 42);
+        int spectatorPort = server.openSpectatorPort(0);
+        Thread serverThread = new Thread(server, "server");
+        serverThread.start();
+
+        GameClient[] clients = new GameClient[clientCount];
+        RemoteMatch[] matches = new RemoteMatch[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            clients[i] = new GameClient("localhost", server.getPort());
+            matches[i] = new RemoteMatch();
+            matches[i].setLocalSeat(clients[i].getSeat());
+        }
+
+        // Spectators watch the first room, and one more asks to watch but
+        // never reads, with a receive buffer small enough to fill at once
+        GameClient[] spectators = new GameClient[spectatorCount];
+        RemoteMatch[] watched = new RemoteMatch[spectatorCount];
+        for (int i = 0; i < spectatorCount; i++) {
+            spectators[i] = new GameClient("localhost", spectatorPort, 0);
+            watched[i] = new RemoteMatch();
+        }
+        SocketChannel stalled = null;
+        if (spectatorCount > 0) {
+            stalled = SocketChannel.open();
+            stalled.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            stalled.connect(new InetSocketAddress("localhost", spectatorPort));
+            ByteBuffer watch = ByteBuffer.allocate(Protocol.HEADER_BYTES
+                    + Protocol.WATCH_BYTES);
+            Protocol.writeWatch(watch, 0);
+            watch.flip();
+            stalled.write(watch);
+        }
+
+        // Takes in what arrived while everybody connected, so the timed loop
+        // does not start with a backlog
+        for (int i = 0; i < clientCount; i++) {
+            clients[i].poll(matches[i]);
+        }
+        for (int i = 0; i < spectatorCount; i++) {
+            spectators[i].poll(watched[i]);
+        }
+
+        // Every client sends one input per tick and reads what has arrived
+        int input = Player.FORWARD;
+        TickClock clock = new TickClock(Simulation.DEFAULT_TICK_NANOS);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            int due = clock.advance(System.nanoTime());
+            for (int t = 0; t < due; t++) {
+                for (int i = 0; i < clientCount; i++) {
+                    int sequence = clients[i].sendInput(input);
+                    if (sequence >= 0) {
+                        matches[i].predict(sequence, input);
+                    }
+                }
+            }
+            for (int i = 0; i < clientCount; i++) {
+                clients[i].poll(matches[i]);
+            }
+            for (int i = 0; i < spectatorCount; i++) {
+                spectators[i].poll(watched[i]);
+            }
+            Thread.sleep(1);
+        }
+
+        int failures = 0;
+        long states = 0;
+        double correction = 0;
+        for (int i = 0; i < clientCount; i++) {
+            failures += check(clients[i], matches[i]) ? 0 : 1;
+            states += clients[i].getStatesReceived();
+            correction = Math.max(correction, matches[i].getCorrection());
+        }
+        System.out.println(clientCount + " clients, "
+                + server.getConnectionCount() + " connected in "
+                + server.getRoomCount() + " rooms, "
+                + states / clientCount + " states per client, "
+                + String.format("%.2f", correction) + " px largest last correction, "
+                + failures + " failed");
+
+        if (spectatorCount > 0) {
+            // Spectators lag the players by the keyframe they waited for at
+            // most, and by a few ticks of buffering
+            long behind = 0;
+            states = 0;
+            for (int i = 0; i < spectatorCount; i++) {
+                long lag = matches[0].getTick() - watched[i].getTick();
+                if (watched[i].getTick() <= 0 || lag > 100) {
+                    System.out.println("Spectator " + i + " is at tick "
+                            + watched[i].getTick() + ", players at "
+                            + matches[0].getTick());
+                    failures++;
+                }
+                behind = Math.max(behind, lag);
+                states += spectators[i].getStatesReceived();
+            }
+            // Whether the one that never reads was dropped yet depends on
+            // how fast the socket buffers filled, so it is only reported
+            boolean dropped = server.getSpectatorCount() == spectatorCount;
+            System.out.println(spectatorCount + " spectators, "
+                    + states / spectatorCount + " states per spectator, "
+                    + behind + " ticks behind at most, stalled spectator "
+                    + (dropped ? "dropped" : "still connected"));
+            for (GameClient spectator : spectators) {
+                spectator.close();
+            }
+            stalled.close();
+        }
+
+        for (GameClient client : clients) {
+            client.close();
+        }
+        server.stop();
+        serverThread.join();
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Checks one client after the run.
+     *
+     * @param client The client.
+     * @param match  The state the client received.
+     * @return True if every check passed, false otherwise.
+     */
+    private static boolean check(GameClient client, RemoteMatch match) {
+        int seat = client.getSeat();
+        if (match.getTick() < 0) {
+            System.out.println("Client " + seat + " got no state");
+            return false;
+        }
+        if (match.getAcknowledgedInput() <= 0) {
+            System.out.println("Client " + seat + " had no input acknowledged");
+            return false;
+        }
+        Point start = Simulation.spawnPoint(seat);
+        Player player = match.getPlayer(seat);
+        if (!match.isPlayerActive(seat) || (player.position.x == start.x
+                && player.position.y == start.y)) {
+            System.out.println("Client " + seat + " did not move");
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package game;
+
+/**
+ * The MatchResult class is the outcome of one finished match, as kept by a
+ * MatchStore: who played, what each of them scored and who won.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class MatchResult {
+    // Instance variables for the match
+    private final long matchId;
+    private final long endMillis;
+    private final long ticks;
+    private final int winner;
+    private final String[] names;
+    private final int[] scores;
+
+    /**
+     * Constructs a MatchResult.
+     *
+     * @param inMatchId   The id the store gave the match.
+     * @param inEndMillis The wall clock time the match ended, in milliseconds
+     * since 1970.
+     * @param inTicks     The number of ticks the match lasted.
+     * @param inWinner    The index of the winning player, -1 for none.
+     * @param inNames     The name of each player.
+     * @param inScores    The final score of each player.
+     */
+    public MatchResult(long inMatchId, long inEndMillis, long inTicks,
+            int inWinner, String[] inNames, int[] inScores) {
+        if (inNames.length != inScores.length) {
+            throw new IllegalArgumentException("Every player needs a score");
+        }
+        matchId = inMatchId;
+        endMillis = inEndMillis;
+        ticks = inTicks;
+        winner = inWinner;
+        names = inNames.clone();
+        scores = inScores.clone();
+    }
+
+    /**
+     * Makes the result of a finished simulation.
+     *
+     * @param matchId    The id the store gave the match.
+     * @param simulation The match.
+     * @param names      The name of each player.
+     * @return The result.
+     */
+    public static MatchResult of(long matchId, Simulation simulation,
+            String[] names) {
+        int[] scores = new int[simulation.getPlayerCount()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = simulation.getScore(i);
+        }
+        return new MatchResult(matchId, System.currentTimeMillis(),
+                simulation.getTickCount(), simulation.getWinner(), names,
+                scores);
+    }
+
+    /**
+     * Gets the id of the match.
+     *
+     * @return The match id.
+     */
+    public long getMatchId() {
+        return matchId;
+    }
+
+    /**
+     * Gets when the match ended.
+     *
+     * @return The time in milliseconds since 1970.
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * Gets how long the match lasted.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Gets the winner.
+     *
+     * @return The index of the winning player, -1 for none.
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Gets the number of players.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount() {
+        return names.length;
+    }
+
+    /**
+     * Gets the name of a player.
+     *
+     * @param index The index of the player.
+     * @return The name.
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Gets the final score of a player.
+     *
+     * @param index The index of the player.
+     * @return The score.
+     */
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Match " + matchId + ":");
+        for (int i = 0; i < names.length; i++) {
+            text.append(i == 0 ? " " : ", ").append(names[i]).append(' ')
+                    .append(scores[i]);
+            if (i == winner) {
+                text.append(" (won)");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,835 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * The MatchStore class keeps the result of every finished match, and every
+ * coin picked up along the way, in an append-only log file, together with
+ * an index of every player's standing and matches so the leaderboard and a
+ * player's history can be read without going through the log.
+ *
+ * Recording never waits for the disk. Results and pickups are put in a
+ * bounded queue, or dropped and counted if it is full, and a writer thread
+ * takes whatever has queued up, appends it to the log in one write and
+ * syncs it to the disk once for the whole batch. The more is recorded, the
+ * larger the batches get, so the number of syncs stays about the same
+ * however busy the server is. The index is updated in memory after each
+ * batch and saved next to the log every few seconds and when the store is
+ * closed; on opening, only the part of the log written after the last save
+ * is read to bring it up to date, and a record cut off by a crash is
+ * removed from the end.
+ *
+ * Log layout, all numbers big-endian: a header of magic (int) and version
+ * (int), then records of payload length (int), type (byte), payload, and a
+ * CRC32 of type and payload (int). A MATCH_RECORD is match id (long), end
+ * time in milliseconds (long), ticks (long), winner (int), player count
+ * (short) and per player a name (short length and UTF-8 bytes) and score
+ * (int). A PICKUP_RECORD is match id (long), tick (long), player (short),
+ * coin type (byte) and value (int).
+ *
+ * Index layout: magic (int), version (int), length of the log it covers
+ * (long), next match id (long), player count (int), and per player a name,
+ * wins, matches and points (longs), and the number (int) and log offsets
+ * (longs) of their matches.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class MatchStore implements AutoCloseable {
+    // File identification
+    public static final int MAGIC = 0x53564D53;
+    public static final int INDEX_MAGIC = 0x53564D49;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 8;
+
+    // Record types
+    public static final byte MATCH_RECORD = 1;
+    public static final byte PICKUP_RECORD = 2;
+
+    // Records waiting for the writer at most, and taken in one batch at most
+    private static final int QUEUE_SIZE = 1 << 16;
+    private static final int MAX_BATCH = QUEUE_SIZE;
+
+    // Time between saves of the index while records keep coming
+    private static final long CHECKPOINT_NANOS = 5_000_000_000L;
+
+    // Bytes of a record besides its payload, and the longest payload read
+    private static final int FRAME_BYTES = 4 + 1 + 4;
+    private static final int MAX_PAYLOAD = 1 << 20;
+
+    // Bytes read at once for a match in a history
+    private static final int HISTORY_READ_BYTES = 256;
+
+    /**
+     * The Standing class is a player's line on the leaderboard.
+     */
+    public static class Standing {
+        private final String name;
+        private long wins, matches, points;
+
+        // Log offsets of the player's matches, oldest first
+        private long[] history = new long[4];
+        private int historyCount;
+
+        Standing(String inName) {
+            name = inName;
+        }
+
+        /**
+         * Gets the name of the player.
+         *
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the number of matches the player won.
+         *
+         * @return The number of wins.
+         */
+        public long getWins() {
+            return wins;
+        }
+
+        /**
+         * Gets the number of matches the player finished.
+         *
+         * @return The number of matches.
+         */
+        public long getMatches() {
+            return matches;
+        }
+
+        /**
+         * Gets the points the player scored over all matches.
+         *
+         * @return The total score.
+         */
+        public long getPoints() {
+            return points;
+        }
+
+        /**
+         * Makes a copy that later matches do not change.
+         *
+         * @return The copy, without the history.
+         */
+        Standing copy() {
+            Standing copy = new Standing(name);
+            copy.wins = wins;
+            copy.matches = matches;
+            copy.points = points;
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + wins + " wins in " + matches + " matches, "
+                    + points + " points";
+        }
+    }
+
+    /**
+     * The Pickup class is a pickup waiting to be written.
+     */
+    private static class Pickup {
+        final long matchId, tick;
+        final int player;
+        final byte coinType;
+        final int value;
+
+        Pickup(long inMatchId, long inTick, int inPlayer, byte inCoinType,
+                int inValue) {
+            matchId = inMatchId;
+            tick = inTick;
+            player = inPlayer;
+            coinType = inCoinType;
+            value = inValue;
+        }
+    }
+
+    // Put in the queue to wake the writer when closing
+    private static final Object WAKE = new Object();
+
+    // Leaderboard order: most wins, then most points, then by name
+    private static final Comparator<Standing> RANKING =
+            Comparator.comparingLong((Standing s) -> -s.wins)
+                    .thenComparingLong(s -> -s.points)
+                    .thenComparing(s -> s.name);
+
+    // Instance variables for the files, the log only written by the writer
+    private final Path indexFile;
+    private final FileChannel log;
+    private long logLength;
+
+    // Instance variables for the queue between the recording threads and
+    // the writer, which only the writer takes from
+    private final ArrayBlockingQueue<Object> queue =
+            new ArrayBlockingQueue<Object>(QUEUE_SIZE);
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private final AtomicLong nextMatchId = new AtomicLong(1);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    // Instance variables for the index, guarded by its own lock since the
+    // writer changes it while other threads read it
+    private final Object indexLock = new Object();
+    private final HashMap<String, Standing> standings =
+            new HashMap<String, Standing>();
+    private final TreeSet<Standing> ranking = new TreeSet<Standing>(RANKING);
+    private boolean indexChanged;
+
+    // Instance variables only used by the writer
+    private final ArrayList<Object> batch = new ArrayList<Object>(MAX_BATCH);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer out = ByteBuffer.allocate(1 << 16);
+    private long lastCheckpoint = System.nanoTime();
+
+    /**
+     * Opens the store kept in the given log file, creating it if needed. The
+     * index is kept in the same place with ".idx" added to the name.
+     *
+     * @param logFile The log file.
+     * @throws IOException If the files cannot be opened or are not a
+     * match store.
+     */
+    public MatchStore(Path logFile) throws IOException {
+        indexFile = logFile.resolveSibling(logFile.getFileName() + ".idx");
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (log.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                writeFully(header, 0);
+                log.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                readFully(header, 0);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException(logFile + " is not a match store");
+                }
+            }
+            logLength = HEADER_BYTES;
+            loadIndex();
+            catchUp();
+        } catch (IOException exc) {
+            log.close();
+            throw exc;
+        }
+
+        writer = new Thread(this::writeLoop, "match-store");
+        writer.setDaemon(true);
+        writer.start();
+        shutdownHook = new Thread(this::closeQuietly, "match-store-close");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Gives out the id of a new match, for tagging its pickups and result.
+     *
+     * @return The match id, never given out before by this store.
+     */
+    public long newMatchId() {
+        return nextMatchId.getAndIncrement();
+    }
+
+    /**
+     * Queues the result of a finished match. Never waits.
+     *
+     * @param result The result.
+     * @return True if queued, false if dropped because the writer is too far
+     * behind or has failed.
+     */
+    public boolean recordResult(MatchResult result) {
+        return offer(result);
+    }
+
+    /**
+     * Queues a coin pickup. Never waits.
+     *
+     * @param matchId  The id of the match.
+     * @param tick     The tick of the pickup.
+     * @param player   The index of the player.
+     * @param coinType The type code of the coin.
+     * @param coinVal  The value of the coin.
+     * @return True if queued, false if dropped.
+     */
+    public boolean recordPickup(long matchId, long tick, int player,
+            byte coinType, int coinVal) {
+        return offer(new Pickup(matchId, tick, player, coinType, coinVal));
+    }
+
+    /**
+     * Makes a listener that records a simulation's pickups under a match.
+     *
+     * @param matchId The id of the match.
+     * @return The listener, for Simulation.setPickupListener.
+     */
+    public PickupListener pickupsOf(long matchId) {
+        return (tick, player, coinType, coinVal) ->
+                recordPickup(matchId, tick, player, coinType, coinVal);
+    }
+
+    /**
+     * Waits until everything queued so far is on the disk and in the index.
+     *
+     * @throws IOException If the writer failed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void flush() throws IOException, InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        if (!closing && failure == null) {
+            queue.put(done);
+            while (!done.await(100, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    break;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Gets the best players, by wins and then by points.
+     *
+     * @param count The most players to list.
+     * @return Copies of their standings, best first.
+     */
+    public List<Standing> getLeaderboard(int count) {
+        ArrayList<Standing> top = new ArrayList<Standing>(count);
+        synchronized (indexLock) {
+            for (Standing standing : ranking) {
+                if (top.size() == count) {
+                    break;
+                }
+                top.add(standing.copy());
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Gets a player's standing.
+     *
+     * @param name The name of the player.
+     * @return A copy of the standing, or null if the player never finished
+     * a match.
+     */
+    public Standing getStanding(String name) {
+        synchronized (indexLock) {
+            Standing standing = standings.get(name);
+            return standing == null ? null : standing.copy();
+        }
+    }
+
+    /**
+     * Gets the latest matches of a player, reading only those matches from
+     * the log.
+     *
+     * @param name  The name of the player.
+     * @param count The most matches to return.
+     * @return The results, latest first.
+     * @throws IOException If the log cannot be read.
+     */
+    public List<MatchResult> getHistory(String name, int count)
+            throws IOException {
+        long[] offsets;
+        synchronized (indexLock) {
+            Standing standing = standings.get(name);
+            if (standing == null) {
+                return new ArrayList<MatchResult>();
+            }
+            int n = Math.min(count, standing.historyCount);
+            offsets = new long[n];
+            for (int i = 0; i < n; i++) {
+                offsets[i] = standing.history[standing.historyCount - 1 - i];
+            }
+        }
+        // Most records fit in one read, longer ones take a second
+        ArrayList<MatchResult> results = new ArrayList<MatchResult>(offsets.length);
+        ByteBuffer start = ByteBuffer.allocate(HISTORY_READ_BYTES);
+        for (long offset : offsets) {
+            start.clear();
+            readAtLeast(start, offset, 5);
+            int length = start.getInt(0);
+            ByteBuffer record = start;
+            if (length + 5 > start.position()) {
+                record = ByteBuffer.allocate(length + 5);
+                readFully(record, offset);
+            }
+            record.position(5);
+            results.add(readResult(record));
+        }
+        return results;
+    }
+
+    /**
+     * Gets the number of results and pickups dropped because the queue was
+     * full or the writer had failed.
+     *
+     * @return The number dropped.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of results and pickups written so far.
+     *
+     * @return The number written.
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Gets the number of times the log was synced to the disk.
+     *
+     * @return The number of syncs.
+     */
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    /**
+     * Writes everything still queued, saves the index and closes the files.
+     * Recording after this drops the records.
+     *
+     * @throws IOException If the writer failed at any point.
+     */
+    @Override
+    public void close() throws IOException {
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException exc) {
+                // Already shutting down, the hook runs anyway
+            }
+        }
+        // The writer is woken rather than interrupted, since interrupting a
+        // thread in the middle of a write closes the file under it
+        closing = true;
+        try {
+            queue.put(WAKE);
+            writer.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /*
+    The following methods are private helpers: queueing, the writer thread,
+    reading and writing records and loading and saving the index.
+    */
+
+    private boolean offer(Object record) {
+        if (closing || failure != null || !queue.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException exc) {
+            System.err.println("Match store: " + exc);
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Object first;
+                try {
+                    first = closing ? queue.poll()
+                            : queue.poll(CHECKPOINT_NANOS, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException exc) {
+                    first = null;
+                }
+                if (first == null) {
+                    if (closing) {
+                        break;
+                    }
+                    checkpoint(false);
+                    continue;
+                }
+                batch.clear();
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch();
+                checkpoint(false);
+            }
+            checkpoint(true);
+        } catch (IOException exc) {
+            failure = exc;
+            System.err.println("Match store failed: " + exc);
+        } finally {
+            try {
+                log.close();
+            } catch (IOException exc) {
+                // Nothing left to do
+            }
+            // Anyone waiting on a flush is let go
+            Object left;
+            while ((left = queue.poll()) != null) {
+                if (left instanceof CountDownLatch) {
+                    ((CountDownLatch) left).countDown();
+                } else {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        out.clear();
+        long start = logLength;
+        long[] offsets = new long[batch.size()];
+        int records = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Object record = batch.get(i);
+            offsets[i] = -1;
+            if (record instanceof MatchResult) {
+                offsets[i] = start + out.position();
+                encode((MatchResult) record);
+                records++;
+            } else if (record instanceof Pickup) {
+                encode((Pickup) record);
+                records++;
+            }
+        }
+        out.flip();
+        if (out.hasRemaining()) {
+            writeFully(out, start);
+            log.force(false);
+            syncs.incrementAndGet();
+            logLength = start + out.limit();
+        }
+
+        synchronized (indexLock) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (offsets[i] >= 0) {
+                    apply((MatchResult) batch.get(i), offsets[i]);
+                }
+            }
+        }
+        written.addAndGet(records);
+        for (Object record : batch) {
+            if (record instanceof CountDownLatch) {
+                ((CountDownLatch) record).countDown();
+            }
+        }
+    }
+
+    private void encode(MatchResult result) {
+        int payload = 8 + 8 + 8 + 4 + 2;
+        byte[][] names = new byte[result.getPlayerCount()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = result.getName(i).getBytes(StandardCharsets.UTF_8);
+            payload += 2 + names[i].length + 4;
+        }
+        int start = begin(payload, MATCH_RECORD);
+        out.putLong(result.getMatchId());
+        out.putLong(result.getEndMillis());
+        out.putLong(result.getTicks());
+        out.putInt(result.getWinner());
+        out.putShort((short) names.length);
+        for (int i = 0; i < names.length; i++) {
+            out.putShort((short) names[i].length);
+            out.put(names[i]);
+            out.putInt(result.getScore(i));
+        }
+        end(start);
+    }
+
+    private void encode(Pickup pickup) {
+        int start = begin(8 + 8 + 2 + 1 + 4, PICKUP_RECORD);
+        out.putLong(pickup.matchId);
+        out.putLong(pickup.tick);
+        out.putShort((short) pickup.player);
+        out.put(pickup.coinType);
+        out.putInt(pickup.value);
+        end(start);
+    }
+
+    // Starts a record, growing the buffer if needed, and returns where its
+    // type byte is
+    private int begin(int payload, byte type) {
+        if (out.remaining() < FRAME_BYTES + payload) {
+            ByteBuffer bigger = ByteBuffer.allocate(
+                    Math.max(2 * out.capacity(), out.position() + FRAME_BYTES + payload));
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+        out.putInt(payload);
+        int start = out.position();
+        out.put(type);
+        return start;
+    }
+
+    // Ends the record started at the given type byte with its checksum
+    private void end(int start) {
+        crc.reset();
+        crc.update(out.array(), start, out.position() - start);
+        out.putInt((int) crc.getValue());
+    }
+
+    private static MatchResult readResult(ByteBuffer in) {
+        long matchId = in.getLong();
+        long endMillis = in.getLong();
+        long ticks = in.getLong();
+        int winner = in.getInt();
+        int count = in.getShort();
+        String[] names = new String[count];
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[in.getShort()];
+            in.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            scores[i] = in.getInt();
+        }
+        return new MatchResult(matchId, endMillis, ticks, winner, names,
+                scores);
+    }
+
+    // Adds a written match to the index, the caller holds the index lock. A
+    // name that appears more than once in the match counts once, with its
+    // best score, and wins if any of its entries won.
+    private void apply(MatchResult result, long offset) {
+        int count = result.getPlayerCount();
+        for (int i = 0; i < count; i++) {
+            String name = result.getName(i);
+            boolean seen = false;
+            for (int j = 0; j < i && !seen; j++) {
+                seen = result.getName(j).equals(name);
+            }
+            if (seen) {
+                continue;
+            }
+            int score = result.getScore(i);
+            boolean won = i == result.getWinner();
+            for (int j = i + 1; j < count; j++) {
+                if (result.getName(j).equals(name)) {
+                    score = Math.max(score, result.getScore(j));
+                    won |= j == result.getWinner();
+                }
+            }
+
+            Standing standing = standings.get(name);
+            if (standing == null) {
+                standing = new Standing(name);
+                standings.put(name, standing);
+            } else {
+                ranking.remove(standing);
+            }
+            standing.matches++;
+            standing.points += score;
+            if (won) {
+                standing.wins++;
+            }
+            if (standing.historyCount == standing.history.length) {
+                standing.history = Arrays.copyOf(standing.history,
+                        2 * standing.historyCount);
+            }
+            standing.history[standing.historyCount++] = offset;
+            ranking.add(standing);
+        }
+        indexChanged = true;
+    }
+
+    // Reads the records the index does not cover yet, from the end of the
+    // last saved index to the end of the log, and cuts off a broken tail
+    private void catchUp() throws IOException {
+        long size = log.size();
+        long position = logLength;
+        ByteBuffer frame = ByteBuffer.allocate(4);
+        while (position + FRAME_BYTES <= size) {
+            frame.clear();
+            readFully(frame, position);
+            int payload = frame.getInt(0);
+            if (payload < 0 || payload > MAX_PAYLOAD
+                    || position + FRAME_BYTES + payload > size) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(1 + payload + 4);
+            readFully(record, position + 4);
+            crc.reset();
+            crc.update(record.array(), 0, 1 + payload);
+            if (record.getInt(1 + payload) != (int) crc.getValue()) {
+                break;
+            }
+            record.flip();
+            byte type = record.get();
+            long matchId = record.getLong();
+            if (type == MATCH_RECORD) {
+                record.position(1);
+                apply(readResult(record), position);
+            }
+            if (matchId >= nextMatchId.get()) {
+                nextMatchId.set(matchId + 1);
+            }
+            position += FRAME_BYTES + payload;
+        }
+        if (position < size) {
+            System.err.println("Match store: dropping " + (size - position)
+                    + " unreadable bytes at the end of the log");
+            log.truncate(position);
+            log.force(true);
+        }
+        logLength = position;
+    }
+
+    private void loadIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        try {
+            if (in.getInt() != INDEX_MAGIC || in.getInt() != VERSION) {
+                return;
+            }
+            long covered = in.getLong();
+            if (covered < HEADER_BYTES || covered > log.size()) {
+                return;
+            }
+            long next = in.getLong();
+            int count = in.getInt();
+            ArrayList<Standing> loaded = new ArrayList<Standing>(count);
+            for (int p = 0; p < count; p++) {
+                byte[] name = new byte[in.getShort()];
+                in.get(name);
+                Standing standing = new Standing(
+                        new String(name, StandardCharsets.UTF_8));
+                standing.wins = in.getLong();
+                standing.matches = in.getLong();
+                standing.points = in.getLong();
+                standing.historyCount = in.getInt();
+                standing.history = new long[Math.max(4, standing.historyCount)];
+                for (int i = 0; i < standing.historyCount; i++) {
+                    standing.history[i] = in.getLong();
+                }
+                loaded.add(standing);
+            }
+            for (Standing standing : loaded) {
+                standings.put(standing.name, standing);
+                ranking.add(standing);
+            }
+            nextMatchId.set(next);
+            logLength = covered;
+        } catch (RuntimeException exc) {
+            // A damaged index is rebuilt from the whole log instead
+            standings.clear();
+            ranking.clear();
+        }
+    }
+
+    // Saves the index if it changed and it is time, or always when asked
+    private void checkpoint(boolean force) throws IOException {
+        long now = System.nanoTime();
+        if (!force && (!indexChanged || now - lastCheckpoint < CHECKPOINT_NANOS)) {
+            return;
+        }
+        lastCheckpoint = now;
+        ByteBuffer index;
+        synchronized (indexLock) {
+            int size = 4 + 4 + 8 + 8 + 4;
+            for (Standing standing : standings.values()) {
+                size += 2 + 3 * standing.name.length() + 3 * 8 + 4
+                        + 8 * standing.historyCount;
+            }
+            index = ByteBuffer.allocate(size);
+            index.putInt(INDEX_MAGIC).putInt(VERSION);
+            index.putLong(logLength);
+            index.putLong(nextMatchId.get());
+            index.putInt(standings.size());
+            for (Standing standing : standings.values()) {
+                byte[] name = standing.name.getBytes(StandardCharsets.UTF_8);
+                index.putShort((short) name.length).put(name);
+                index.putLong(standing.wins);
+                index.putLong(standing.matches);
+                index.putLong(standing.points);
+                index.putInt(standing.historyCount);
+                for (int i = 0; i < standing.historyCount; i++) {
+                    index.putLong(standing.history[i]);
+                }
+            }
+            indexChanged = false;
+        }
+
+        // Written beside the old index and moved over it, so a crash leaves
+        // one or the other whole
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            index.flip();
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += log.write(buffer, position);
+        }
+    }
+
+    // Reads until the buffer is full, the log ends or at least the given
+    // number of bytes were read
+    private void readAtLeast(ByteBuffer buffer, long position, int bytes)
+            throws IOException {
+        while (buffer.position() < bytes) {
+            int n = log.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new IOException("Match store log ends early");
+            }
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = log.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Match store log ends early");
+            }
+            position += n;
+        }
+    }
+}
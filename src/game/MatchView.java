@@ -0,0 +1,173 @@
+package game;
+
+/**
+ * The MatchView interface is the read-only side of a match that the Survivor
+ * canvas paints. It is implemented by the Simulation for local games and by
+ * RemoteMatch for games whose state comes from a GameServer.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public interface MatchView {
+
+    /**
+     * Gets the width of the world the match is played in.
+     *
+     * @return The width, Simulation.WIDTH unless the world is larger.
+     */
+    public int getWorldWidth();
+
+    /**
+     * Gets the height of the world the match is played in.
+     *
+     * @return The height, Simulation.HEIGHT unless the world is larger.
+     */
+    public int getWorldHeight();
+
+    /**
+     * Gets the number of player seats in the match.
+     *
+     * @return The number of players.
+     */
+    public int getPlayerCount();
+
+    /**
+     * Gets a player of the match.
+     *
+     * @param index The index of the player.
+     * @return The player.
+     */
+    public Player getPlayer(int index);
+
+    /**
+     * Checks if a seat is taken by a player that is in the match.
+     *
+     * @param index The index of the player.
+     * @return True if the player is active, false otherwise.
+     */
+    public boolean isPlayerActive(int index);
+
+    /**
+     * Gets the score of a player.
+     *
+     * @param index The index of the player.
+     * @return The score of the player.
+     */
+    public int getScore(int index);
+
+    /**
+     * Gets the number of coins on the map.
+     *
+     * @return The number of coins.
+     */
+    public int getCoinCount();
+
+    /**
+     * Gets a coin on the map, for painting. The object may be shared between
+     * coins and is only valid until the next call.
+     *
+     * @param index The index of the coin, from 0 to getCoinCount() - 1.
+     * @return The coin.
+     */
+    public Coin getCoin(int index);
+
+    /**
+     * Gets the id of a coin on the map. Every coin spawned in a match gets a
+     * new id, so an id is never reused for a different coin.
+     *
+     * @param index The index of the coin, from 0 to getCoinCount() - 1.
+     * @return The id of the coin.
+     */
+    public int getCoinId(int index);
+
+    /**
+     * Gets the type code of a coin on the map.
+     *
+     * @param index The index of the coin, from 0 to getCoinCount() - 1.
+     * @return The code of the coin type in the CoinRegistry.
+     */
+    public byte getCoinType(int index);
+
+    /**
+     * Gets the points a coin on the map is worth, by the coin types of the
+     * match.
+     *
+     * @param index The index of the coin, from 0 to getCoinCount() - 1.
+     * @return The value of the coin.
+     */
+    public int getCoinValue(int index);
+
+    /**
+     * Gets the x position of a coin on the map.
+     *
+     * @param index The index of the coin, from 0 to getCoinCount() - 1.
+     * @return The x position.
+     */
+    public double getCoinX(int index);
+
+    /**
+     * Gets the y position of a coin on the map.
+     *
+     * @param index The index of the coin, from 0 to getCoinCount() - 1.
+     * @return The y position.
+     */
+    public double getCoinY(int index);
+
+    /**
+     * Finds the coins that may show in a box, through the grid of the coin
+     * store, so painting part of a large world does not look at every coin.
+     * Some coins found may lie just outside the box.
+     *
+     * @param minX The left edge of the box.
+     * @param minY The top edge of the box.
+     * @param maxX The right edge of the box.
+     * @param maxY The bottom edge of the box.
+     * @return The number of coins found, read with getFoundCoin.
+     */
+    public int findCoins(double minX, double minY, double maxX, double maxY);
+
+    /**
+     * Gets a coin found by the last findCoins.
+     *
+     * @param n The number of the result, from 0 to the count found - 1.
+     * @return The index of the coin.
+     */
+    public int getFoundCoin(int n);
+
+    /**
+     * Puts the coins in order of id, for snapshots. The coin store keeps
+     * that order as coins come and go, so this does not sort.
+     *
+     * @return The number of coins, read with getOrderedCoin.
+     */
+    public int orderCoinsById();
+
+    /**
+     * Gets a coin in the order put by the last orderCoinsById.
+     *
+     * @param n The place in the order, from 0 to getCoinCount() - 1.
+     * @return The index of the coin.
+     */
+    public int getOrderedCoin(int n);
+
+    /**
+     * Gets the score a player needs to win.
+     *
+     * @return The score limit.
+     */
+    public int getScoreLimit();
+
+    /**
+     * Checks if the game has reached a win condition based on score limit.
+     *
+     * @return True if the game is over, false otherwise.
+     */
+    public boolean isGameOver();
+
+    /**
+     * Gets the index of the first player that reached the score limit.
+     *
+     * @return The index of the winner, or -1 if the game is not over.
+     */
+    public int getWinner();
+}
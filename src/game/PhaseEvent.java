@@ -0,0 +1,33 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The PhaseEvent class is the JDK Flight Recorder event Profiler emits for
+ * each timed phase of a tick or frame, so a recording shows which phase a
+ * slow frame spent its time in next to the JVM's own events such as garbage
+ * collections. Start a recording with -XX:StartFlightRecording and look for
+ * game.Phase.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@Name("game.Phase")
+@Label("Game Phase")
+@Category("Survivor")
+@Description("One timed phase of a simulation tick or a painted frame")
+@StackTrace(false)
+class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
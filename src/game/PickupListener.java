@@ -0,0 +1,24 @@
+package game;
+
+/**
+ * The PickupListener interface is told about every coin a player picks up
+ * in a Simulation, right after the pickup's value is added to the score
+ * through the player's ScoreUpdater.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface PickupListener {
+
+    /**
+     * Handles a pickup. Called on the thread running the simulation, so it
+     * should hand the event off rather than do slow work.
+     *
+     * @param tick     The number of the tick the pickup happened in.
+     * @param player   The index of the player.
+     * @param coinType The type code of the coin in the CoinRegistry.
+     * @param coinVal  The value of the coin.
+     */
+    void pickedUp(long tick, int player, byte coinType, int coinVal);
+}
@@ -1,22 +1,33 @@
 package game;
 
 import java.awt.Graphics;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
 
 /**
  * The Player class represents a player in the Survivor game. 
- * It extends the Polygon class and implements the KeyListener interface 
- * to handle keyboard input for player movement and rotation.
+ * It extends the Polygon class and moves and rotates according to the input
+ * bits it is given each tick. The keyboard is read by an InputDispatcher.
  * 
  * @author Samik Wangneo, Purab Shah
  * @version 1.0
  */
-public class Player extends Polygon implements KeyListener {
-	// Instance variables for the forward, backward, and rotations and speed
-	// of the player movement
-    protected boolean forward, backward, rotateRight, rotateLeft;
-    protected int stepSize = 4;
+public class Player extends Polygon {
+    // Speed every player starts with
+    public static final int START_STEP_SIZE = 4;
+
+	// Instance variable for the speed of the player movement
+    protected int stepSize = START_STEP_SIZE;
+
+    // Instance variables for how far the player may go, by default the
+    // classic window
+    private double leftLimit = 15, rightLimit = 765;
+    private double topLimit = 20, bottomLimit = 535;
+
+    // Bit flags used to pack the four movement controls into a single int so
+    // inputs can be handed to the Simulation one tick at a time
+    public static final int FORWARD = 1;
+    public static final int BACKWARD = 2;
+    public static final int ROTATE_RIGHT = 4;
+    public static final int ROTATE_LEFT = 8;
 
     /**
      * Constructs a Player object with the specified shape, position, and 
@@ -31,120 +42,72 @@ public class Player extends Polygon implements KeyListener {
     }
 
     /**
-     * Paints the player on the cannvas using the fillPolygon method.
+     * Paints the player on the canvas in the current color of the brush,
+     * from the shared SpriteCache.
      *
      * @param brush The graphics object used to paint the player.
      */
     public void paint(Graphics brush) {
+        SpriteCache.getShared().fill(brush, this, brush.getColor());
+    }
 
-        int[] xCoords = new int[getPoints().length];
-        int[] yCoords = new int[getPoints().length];
-
-        int i = 0, j = 0;
-        for (Point p : getPoints()) {
-            xCoords[i++] = (int) p.getX();
-            yCoords[j++] = (int) p.getY();
-        }
-
-        brush.fillPolygon(xCoords, yCoords, getPoints().length);
+    /**
+     * Sets the size of the world the player moves in. The player is kept as
+     * far from the edges as it was from those of the classic 800 by 600
+     * window.
+     *
+     * @param width  The width of the world.
+     * @param height The height of the world.
+     */
+    public void setWorldSize(int width, int height) {
+        rightLimit = width - 35;
+        bottomLimit = height - 65;
     }
 
     /**
-     * Moves the player based on the keyboard input and ensures that the player
-     * stays within the game window boundaries.
+     * Moves the player based on the given input bit flags and ensures that the
+     * player stays within the world boundaries.
+     *
+     * @param input The input bit flags to apply for this step.
      */
-    public void move() {
-        // Boundaries for the game window
-        if (position.x < 15) {
-            position.x = 15;
-        } else if (position.x > 765) {
-            position.x = 765;
+    public void move(int input) {
+        // Boundaries of the world
+        if (position.x < leftLimit) {
+            position.x = leftLimit;
+        } else if (position.x > rightLimit) {
+            position.x = rightLimit;
         }
 
-        if (position.y < 20) {
-            position.y = 20;
-        } else if (position.y > 535) {
-            position.y = 535;
+        if (position.y < topLimit) {
+            position.y = topLimit;
+        } else if (position.y > bottomLimit) {
+            position.y = bottomLimit;
         }
 
+        // The rotation is in whole degrees, so the step comes from the table
+        double stepX = stepSize * TrigTable.cos(rotation);
+        double stepY = stepSize * TrigTable.sin(rotation);
+
         // Move forward
-        if (forward) {
-            position.x -= stepSize * Math.cos(Math.toRadians(rotation));
-            position.y -= stepSize * Math.sin(Math.toRadians(rotation));
+        if ((input & FORWARD) != 0) {
+            position.x -= stepX;
+            position.y -= stepY;
         }
 
         // Move backward
-        if (backward) {
-            position.x += stepSize * Math.cos(Math.toRadians(rotation));
-            position.y += stepSize * Math.sin(Math.toRadians(rotation));
+        if ((input & BACKWARD) != 0) {
+            position.x += stepX;
+            position.y += stepY;
         }
 
         // Rotate right
-        if (rotateRight) {
+        if ((input & ROTATE_RIGHT) != 0) {
             rotation += stepSize;
         }
 
         // Rotate left
-        if (rotateLeft) {
+        if ((input & ROTATE_LEFT) != 0) {
             rotation -= stepSize;
         }
     }
-
-    /**
-     * Handles the key typed event (unused in this implementation).
-     *
-     * @param e The KeyEvent object representing the key typed event.
-     */
-    @Override
-    public void keyTyped(KeyEvent e) {
-        // Left empty in our implementation
-    }
-
-    /**
-     * Handles the key pressed event to set movement and rotation based on
-     * the pressed keys.
-     *
-     * @param e The KeyEvent object representing the key pressed event.
-     */
-    @Override
-    public void keyPressed(KeyEvent e) {
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_UP:
-                forward = true;
-                break;
-            case KeyEvent.VK_DOWN:
-                backward = true;
-                break;
-            case KeyEvent.VK_RIGHT:
-                rotateRight = true;
-                break;
-            case KeyEvent.VK_LEFT:
-                rotateLeft = true;
-                break;
-        }
-    }
-
-    /**
-     * Handles the key released event to reset movement and rotation when 
-     * keys are released.
-     *
-     * @param e The KeyEvent object representing the key released event.
-     */
-    @Override
-    public void keyReleased(KeyEvent e) {
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_UP:
-                forward = false;
-                break;
-            case KeyEvent.VK_DOWN:
-                backward = false;
-                break;
-            case KeyEvent.VK_RIGHT:
-                rotateRight = false;
-                break;
-            case KeyEvent.VK_LEFT:
-                rotateLeft = false;
-                break;
-        }
-    }
 }
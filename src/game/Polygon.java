@@ -22,6 +22,28 @@ class Polygon {
   public Point position;   // The offset mentioned above.
   public double rotation; // Zero degrees is due east.
   
+  // The shape never changes, so its area and center are worked out once.
+  private final double area;
+  private final Point center;
+  
+  // World-space vertices from the last transform, reused between calls. They
+  // are only recomputed when position or rotation differ from the cached
+  // values, so painting and collision checks on a still polygon are free.
+  private final double[] xs, ys;
+  private final int[] xCoords, yCoords;   // The same, truncated for painting.
+  private final Point[] points;
+  private double cachedX = Double.NaN, cachedY = Double.NaN;
+  private double cachedRotation = Double.NaN;
+  
+  // The bounding box of the cached vertices, for cheap rejection.
+  private double minX, minY, maxX, maxY;
+  
+  // Convex pieces of the shape for the separating axis test, as indexes into
+  // the vertex arrays. They follow from the shape alone, so are found once;
+  // their bounding boxes are cached with the vertices.
+  private final int[][] pieces;
+  private final double[] pieceBounds;
+  
   public Polygon(Point[] inShape, Point inPosition, double inRotation) {
     shape = inShape;
     position = inPosition;
@@ -39,35 +61,120 @@ class Polygon {
       p.x -= origin.x;
       p.y -= origin.y;
     }
+    
+    area = findArea();
+    center = findCenter();
+    xs = new double[shape.length];
+    ys = new double[shape.length];
+    xCoords = new int[shape.length];
+    yCoords = new int[shape.length];
+    points = new Point[shape.length];
+    for (int i = 0; i < shape.length; i++) {
+      points[i] = new Point(0,0);
+    }
+    pieces = Collision.decompose(shape);
+    pieceBounds = new double[4 * pieces.length];
   }
   
   // "getPoints" applies the rotation and offset to the shape of the polygon.
+  // The array and its points are reused and updated in place on later calls,
+  // so callers must read them right away and never modify them.
   public Point[] getPoints() {
-    Point center = findCenter();
-    Point[] points = new Point[shape.length];
+    transform();
+    return points;
+  }
+  
+  // "getXs" and "getYs" give the same vertices as getPoints as primitive
+  // arrays, also reused and updated in place. Only the first getPointCount()
+  // entries are meaningful.
+  public double[] getXs() {
+    transform();
+    return xs;
+  }
+  
+  public double[] getYs() {
+    transform();
+    return ys;
+  }
+  
+  // "getXCoords" and "getYCoords" give the vertices truncated to pixels, ready
+  // for Graphics.fillPolygon, again reused and updated in place.
+  public int[] getXCoords() {
+    transform();
+    return xCoords;
+  }
+  
+  public int[] getYCoords() {
+    transform();
+    return yCoords;
+  }
+  
+  public int getPointCount() {return shape.length;}
+  
+  // "getShape" gives the points the polygon was made from, shared by every
+  // polygon made from the same array, so it tells what is being drawn.
+  Point[] getShape() {return shape;}
+  
+  // "getOutline" gives the vertices at any rotation relative to the
+  // position, the same math as "transform", for drawing the shape elsewhere.
+  void getOutline(double degrees, double[] outXs, double[] outYs) {
+    double cos = TrigTable.cos(degrees), sin = TrigTable.sin(degrees);
     for (int i = 0; i < shape.length; i++) {
-//    for (Point p : shape) {
-      Point p = shape[i];
-      double x = ((p.x-center.x) * Math.cos(Math.toRadians(rotation)))
-               - ((p.y-center.y) * Math.sin(Math.toRadians(rotation)))
-               + center.x/2 + position.x;
-      double y = ((p.x-center.x) * Math.sin(Math.toRadians(rotation)))
-               + ((p.y-center.y) * Math.cos(Math.toRadians(rotation)))
-               + center.y/2 + position.y;
-      points[i] = new Point(x,y);
+      double dx = shape[i].x-center.x, dy = shape[i].y-center.y;
+      outXs[i] = (dx * cos) - (dy * sin) + center.x/2;
+      outYs[i] = (dx * sin) + (dy * cos) + center.y/2;
     }
-    return points;
+  }
+  
+  // "getMinX" through "getMaxY" give the bounding box of the vertices.
+  public double getMinX() {
+    transform();
+    return minX;
+  }
+  
+  public double getMinY() {
+    transform();
+    return minY;
+  }
+  
+  public double getMaxX() {
+    transform();
+    return maxX;
+  }
+  
+  public double getMaxY() {
+    transform();
+    return maxY;
+  }
+  
+  // "getPivotX" and "getPivotY" give the point the polygon turns around,
+  // which stays put however it is rotated.
+  public double getPivotX() {return center.x/2 + position.x;}
+  
+  public double getPivotY() {return center.y/2 + position.y;}
+  
+  // "getPieces" gives the convex pieces of the shape and "getPieceBounds"
+  // their bounding boxes, neither of which may be modified.
+  int[][] getPieces() {return pieces;}
+  
+  double[] getPieceBounds() {
+    transform();
+    return pieceBounds;
   }
   
   // "contains" implements some magical math (i.e. the ray-casting algorithm).
   public boolean contains(Point point) {
-    Point[] points = getPoints();
+    return contains(point.x, point.y);
+  }
+  
+  public boolean contains(double px, double py) {
+    transform();
     double crossingNumber = 0;
     for (int i = 0, j = 1; i < shape.length; i++, j=(j+1)%shape.length) {
-      if ((((points[i].x < point.x) && (point.x <= points[j].x)) ||
-           ((points[j].x < point.x) && (point.x <= points[i].x))) &&
-          (point.y > points[i].y + (points[j].y-points[i].y)/
-           (points[j].x - points[i].x) * (point.x - points[i].x))) {
+      if ((((xs[i] < px) && (px <= xs[j])) ||
+           ((xs[j] < px) && (px <= xs[i]))) &&
+          (py > ys[i] + (ys[j]-ys[i])/
+           (xs[j] - xs[i]) * (px - xs[i]))) {
         crossingNumber++;
       }
     }
@@ -91,6 +198,37 @@ class Polygon {
     return Math.abs(sum/2);
   }
   
+  // "transform" refreshes the cached vertices, but only when the polygon has
+  // been moved or rotated since they were last computed.
+  private void transform() {
+    if (position.x == cachedX && position.y == cachedY
+        && rotation == cachedRotation) {
+      return;
+    }
+    double cos = TrigTable.cos(rotation), sin = TrigTable.sin(rotation);
+    double offsetX = center.x/2 + position.x;
+    double offsetY = center.y/2 + position.y;
+    minX = minY = Double.MAX_VALUE;
+    maxX = maxY = -Double.MAX_VALUE;
+    for (int i = 0; i < shape.length; i++) {
+      double dx = shape[i].x-center.x, dy = shape[i].y-center.y;
+      xs[i] = (dx * cos) - (dy * sin) + offsetX;
+      ys[i] = (dx * sin) + (dy * cos) + offsetY;
+      xCoords[i] = (int) xs[i];
+      yCoords[i] = (int) ys[i];
+      points[i].x = xs[i];
+      points[i].y = ys[i];
+      minX = Math.min(minX, xs[i]);
+      maxX = Math.max(maxX, xs[i]);
+      minY = Math.min(minY, ys[i]);
+      maxY = Math.max(maxY, ys[i]);
+    }
+    Collision.bound(xs, ys, pieces, pieceBounds);
+    cachedX = position.x;
+    cachedY = position.y;
+    cachedRotation = rotation;
+  }
+  
   // "findCenter" implements another bit of math.
   private Point findCenter() {
     Point sum = new Point(0,0);
@@ -100,20 +238,53 @@ class Polygon {
       sum.y += (shape[i].y + shape[j].y)
                * (shape[i].x * shape[j].y - shape[j].x * shape[i].y);
     }
-    double area = findArea();
     return new Point(Math.abs(sum.x/(6*area)),Math.abs(sum.y/(6*area)));
   }
   
   /**
-   * Checks for collision with another Polygon.
+   * Checks for collision with another Polygon. The bounding boxes are
+   * compared first, and only if they overlap are the shapes tested exactly
+   * by Collision.
+   *
+   * @param other The Polygon object to check for collision.
+   * @return true if the two Polygons overlap, false otherwise.
+   */
+  public boolean collides(Polygon other) {
+    return collides(other, null);
+  }
+  
+  /**
+   * Checks for collision with another Polygon and reports how they touch.
+   *
+   * @param other   The Polygon object to check for collision.
+   * @param contact Filled with the direction and depth of the overlap if
+   * there is one, may be null.
+   * @return true if the two Polygons overlap, false otherwise.
+   */
+  public boolean collides(Polygon other, Contact contact) {
+    if (!Collision.boxesOverlap(getMinX(), getMinY(), getMaxX(), getMaxY(),
+        other.getMinX(), other.getMinY(), other.getMaxX(), other.getMaxY())) {
+      return false;
+    }
+    return Collision.overlaps(xs, ys, pieces, pieceBounds, other.xs, other.ys,
+        other.pieces, other.pieceBounds, contact);
+  }
+  
+  /**
+   * Checks for collision with another Polygon the way the game first did,
+   * by testing each vertex of the other Polygon with contains. It misses
+   * overlaps where only edges cross, and is kept as a reference to check
+   * and measure collides against.
    *
    * @param other The Polygon object to check for collision.
    * @return true if any point of the other Polygon is within this Polygon, 
    * false otherwise.
    */
-  public boolean collides(Polygon other) {
-	  for (Point p : other.getPoints()) {
-		  if (this.contains(p)) {
+  public boolean collidesByRayCasting(Polygon other) {
+	  double[] otherXs = other.getXs();
+	  double[] otherYs = other.getYs();
+	  for (int i = 0; i < other.getPointCount(); i++) {
+		  if (this.contains(otherXs[i], otherYs[i])) {
 			  return true;
 		  }
 	  }
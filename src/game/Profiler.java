@@ -0,0 +1,140 @@
+package game;
+
+/**
+ * The Profiler class times the phases of a simulation tick and of a painted
+ * frame: moving the players, testing them against the coins, respawning
+ * coins, talking to the server, painting and waiting for the next frame.
+ * Every duration goes into a LatencyHistogram per phase and, if a flight
+ * recording is running, into a PhaseEvent.
+ *
+ * Profiling is switched on with -Dsurvivor.profile=true. ENABLED is a
+ * constant, so when it is off the JIT removes the timing calls altogether
+ * and they cost nothing; the calls can therefore stay in production builds.
+ * A phase is timed like this:
+ *
+ *     long start = Profiler.start();
+ *     ...
+ *     Profiler.stop(Profiler.MOVE, start);
+ *
+ * Phases may nest: RESPAWN happens inside COLLIDE and is counted in both.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public final class Profiler {
+    // Whether phases are timed, read once at startup
+    public static final boolean ENABLED = Boolean.getBoolean("survivor.profile");
+
+    // The phases
+    public static final int MOVE = 0;
+    public static final int COLLIDE = 1;
+    public static final int RESPAWN = 2;
+    public static final int NETWORK = 3;
+    public static final int PAINT = 4;
+    public static final int WAIT = 5;
+    public static final int PHASE_COUNT = 6;
+
+    private static final String[] NAMES = {"move", "collide", "respawn",
+            "network", "paint", "wait"};
+    private static final LatencyHistogram[] HISTOGRAMS =
+            new LatencyHistogram[PHASE_COUNT];
+
+    static {
+        for (int p = 0; p < PHASE_COUNT; p++) {
+            HISTOGRAMS[p] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Profiler is not instantiated.
+     */
+    private Profiler() {
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return The start time to pass to stop, 0 when profiling is off.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Finishes timing a phase.
+     *
+     * @param phase The phase.
+     * @param start The time returned by start.
+     */
+    public static void stop(int phase, long start) {
+        if (!ENABLED) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        HISTOGRAMS[phase].record(elapsed);
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = NAMES[phase];
+            event.elapsed = elapsed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets the durations recorded for a phase.
+     *
+     * @param phase The phase.
+     * @return The histogram.
+     */
+    public static LatencyHistogram getHistogram(int phase) {
+        return HISTOGRAMS[phase];
+    }
+
+    /**
+     * Gets the name of a phase.
+     *
+     * @param phase The phase.
+     * @return The name.
+     */
+    public static String getName(int phase) {
+        return NAMES[phase];
+    }
+
+    /**
+     * Sums up one phase in a line: how often it ran and its median, 99th
+     * percentile and longest duration in microseconds.
+     *
+     * @param phase The phase.
+     * @return The summary.
+     */
+    public static String summarize(int phase) {
+        LatencyHistogram histogram = HISTOGRAMS[phase];
+        return String.format("%-8s %7d  p50 %8.1f  p99 %8.1f  max %8.1f us",
+                NAMES[phase], histogram.getCount(),
+                histogram.getPercentile(0.5) / 1e3,
+                histogram.getPercentile(0.99) / 1e3, histogram.getMax() / 1e3);
+    }
+
+    /**
+     * Prints a summary of every phase that ran, if profiling is on.
+     */
+    public static void printReport() {
+        if (!ENABLED) {
+            return;
+        }
+        for (int p = 0; p < PHASE_COUNT; p++) {
+            if (HISTOGRAMS[p].getCount() > 0) {
+                System.out.println(summarize(p));
+            }
+        }
+    }
+
+    /**
+     * Forgets the durations recorded for every phase.
+     */
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+}
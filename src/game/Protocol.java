@@ -0,0 +1,121 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The Protocol class defines the messages passed between a GameServer and its
+ * clients. Every message is a frame made of a 4 byte length, a 1 byte type
+ * and a payload; the length counts the type and payload bytes.
+ *
+ * WELCOME (server to client): player index (int), player count (int), tick
+ * length in nanoseconds (long), world width (int), world height (int).
+ * INPUT (client to server): input sequence number (int), input bits (byte),
+ * tick of the last snapshot the client decoded (long).
+ * STATE (server to client): the sequence number of the last input applied
+ * (int), then a snapshot encoded by SnapshotCodec.
+ * WATCH (spectator to server): the number of the room to watch (int), or
+ * ANY_ROOM for the busiest one.
+ *
+ * Spectators connect to a port of their own and send a single WATCH. They
+ * are welcomed with a seat of -1 and then get the same STATE frames as the
+ * players, with an acknowledged sequence of 0, every one a delta against
+ * the last keyframe, so a spectator that missed some states can carry on
+ * from any later one.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public final class Protocol {
+    // Port used when none is given
+    public static final int DEFAULT_PORT = 4500;
+
+    // Port spectators connect to when none is given
+    public static final int DEFAULT_SPECTATOR_PORT = 4501;
+
+    // Message types
+    public static final byte WELCOME = 1;
+    public static final byte INPUT = 2;
+    public static final byte STATE = 3;
+    public static final byte WATCH = 4;
+
+    // Room number in a WATCH that asks for the room with the most players
+    public static final int ANY_ROOM = -1;
+
+    // Bytes in front of every payload: the length and the type
+    public static final int HEADER_BYTES = 5;
+
+    // Payload sizes of the fixed length messages
+    public static final int WELCOME_BYTES = 24;
+    public static final int INPUT_BYTES = 13;
+    public static final int WATCH_BYTES = 4;
+
+    // Largest frame a client accepts, counting the type but not the length,
+    // far more than a full state of the largest world takes
+    public static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    // Offset of the acknowledged input sequence inside a STATE payload, so a
+    // state encoded once can be patched for each client
+    public static final int STATE_ACK_OFFSET = 0;
+
+    private Protocol() {
+    }
+
+    /**
+     * Writes the length and type of a frame whose payload will follow.
+     *
+     * @param out         The buffer to write to.
+     * @param type        The message type.
+     * @param payloadSize The number of payload bytes that will follow.
+     */
+    public static void writeHeader(ByteBuffer out, byte type, int payloadSize) {
+        out.putInt(payloadSize + 1);
+        out.put(type);
+    }
+
+    /**
+     * Writes a complete WELCOME frame.
+     *
+     * @param out         The buffer to write to.
+     * @param playerIndex The seat given to the client.
+     * @param playerCount The number of seats in the match.
+     * @param tickNanos   The length of one server tick.
+     * @param worldWidth  The width of the world the match is played in.
+     * @param worldHeight The height of the world the match is played in.
+     */
+    public static void writeWelcome(ByteBuffer out, int playerIndex,
+            int playerCount, long tickNanos, int worldWidth, int worldHeight) {
+        writeHeader(out, WELCOME, WELCOME_BYTES);
+        out.putInt(playerIndex);
+        out.putInt(playerCount);
+        out.putLong(tickNanos);
+        out.putInt(worldWidth);
+        out.putInt(worldHeight);
+    }
+
+    /**
+     * Writes a complete INPUT frame.
+     *
+     * @param out          The buffer to write to.
+     * @param sequence     The number of this input, counting up from 1.
+     * @param input        The input bit flags.
+     * @param snapshotTick The tick of the last snapshot decoded, 0 for none.
+     */
+    public static void writeInput(ByteBuffer out, int sequence, int input,
+            long snapshotTick) {
+        writeHeader(out, INPUT, INPUT_BYTES);
+        out.putInt(sequence);
+        out.put((byte) input);
+        out.putLong(snapshotTick);
+    }
+
+    /**
+     * Writes a complete WATCH frame.
+     *
+     * @param out  The buffer to write to.
+     * @param room The number of the room to watch, or ANY_ROOM.
+     */
+    public static void writeWatch(ByteBuffer out, int room) {
+        writeHeader(out, WATCH, WATCH_BYTES);
+        out.putInt(room);
+    }
+}
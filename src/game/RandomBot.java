@@ -0,0 +1,40 @@
+package game;
+
+import java.util.Random;
+
+/**
+ * The RandomBot class holds a random combination of keys and picks a new
+ * one every few ticks, like the players of HeadlessRunner. It is the
+ * baseline other bots should beat.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class RandomBot implements Bot {
+    // Number of ticks an input is held before a new one is picked
+    private static final int HOLD_TICKS = 20;
+
+    // Instance variables for the current choice
+    private final Random random;
+    private int input;
+    private int held = HOLD_TICKS;
+
+    /**
+     * Constructs a RandomBot.
+     *
+     * @param seed The seed of its choices.
+     */
+    public RandomBot(long seed) {
+        random = new Random(seed);
+    }
+
+    @Override
+    public int decide(MatchView view, int seat) {
+        if (held == HOLD_TICKS) {
+            input = random.nextInt(16);
+            held = 0;
+        }
+        held++;
+        return input;
+    }
+}
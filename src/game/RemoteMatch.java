@@ -0,0 +1,451 @@
+package game;
+
+/**
+ * The RemoteMatch class holds the match state received from a GameServer, in
+ * a form the Survivor canvas can paint. It hides the network latency in two
+ * ways:
+ *
+ * The local player is predicted. Every input sent is also applied here with
+ * the same Player.move the server uses and kept in a ring. When a state
+ * arrives the local player is reset to the server's position and the inputs
+ * the server has not applied yet are replayed on top of it.
+ *
+ * Everything else is interpolated. Received snapshots are buffered and the
+ * other players are drawn a few ticks in the past, between the two buffered
+ * snapshots around that time, so they move smoothly even when states arrive
+ * unevenly or some are skipped. Coins are shown as of the same time; the
+ * store is only told about the coins that differ from the snapshot shown
+ * before, found by walking both snapshots' coins in id order.
+ *
+ * Player objects and the coin store are reused from one frame to the next.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class RemoteMatch implements MatchView {
+    // Number of inputs kept for replay, a power of two
+    private static final int INPUT_HISTORY = 128;
+
+    // Number of received snapshots kept for interpolation
+    private static final int BUFFER_SIZE = 32;
+
+    // How far behind the newest state other players are drawn, and how far
+    // the render time may drift from that before it is reset, in ticks
+    private static final double INTERPOLATION_DELAY = 3;
+    private static final double MAX_DRIFT = 6;
+
+    // Instance variables for the state of the match as last received
+    private Player[] players = new Player[0];
+    private boolean[] active = new boolean[0];
+    private int[] scores = new int[0];
+    private final CoinStore coins = new CoinStore();
+    private int worldWidth = Simulation.WIDTH, worldHeight = Simulation.HEIGHT;
+    private int scoreLimit = Simulation.SCORE_LIMIT;
+    private long tick = -1;
+    private int acknowledgedInput;
+
+    // Instance variables for interpolation
+    private final Snapshot[] buffer = new Snapshot[BUFFER_SIZE];
+    private int newest = -1;
+    private double renderTick;
+    private final Snapshot shownCoins = new Snapshot();
+
+    // Instance variables for prediction
+    private int seat = -1;
+    private final int[] sentInputs = new int[INPUT_HISTORY];
+    private int lastSequence;
+    private double correction;
+
+    /**
+     * Constructs an empty RemoteMatch.
+     */
+    public RemoteMatch() {
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            buffer[i] = new Snapshot();
+        }
+    }
+
+    /**
+     * Sets the seat of the local player, the one that is predicted.
+     *
+     * @param inSeat The player index of this client, or -1 for none.
+     */
+    public void setLocalSeat(int inSeat) {
+        seat = inSeat;
+    }
+
+    /**
+     * Sets the size of the world the server runs the match in, which the
+     * local player is kept inside when predicted.
+     *
+     * @param width  The width of the world.
+     * @param height The height of the world.
+     */
+    public void setWorldSize(int width, int height) {
+        worldWidth = width;
+        worldHeight = height;
+        for (Player player : players) {
+            player.setWorldSize(worldWidth, worldHeight);
+        }
+    }
+
+    /**
+     * Applies an input of the local player right away, before the server has
+     * seen it. Called once per client tick, which also moves the render time
+     * of everything else forward by one tick.
+     *
+     * @param sequence The sequence number the input was sent with.
+     * @param input    The input bit flags.
+     */
+    public void predict(int sequence, int input) {
+        sentInputs[sequence & (INPUT_HISTORY - 1)] = input;
+        lastSequence = sequence;
+        renderTick++;
+        if (isLocal(seat)) {
+            players[seat].move(input);
+        }
+    }
+
+    /**
+     * Buffers a decoded snapshot and reconciles the local player with it.
+     *
+     * @param snapshot       The snapshot sent by the server.
+     * @param inAcknowledged The last input of this client the server applied.
+     */
+    public void applySnapshot(Snapshot snapshot, int inAcknowledged) {
+        if (snapshot.tick <= tick) {
+            return;
+        }
+        newest = (newest + 1) % BUFFER_SIZE;
+        buffer[newest].copyFrom(snapshot);
+        tick = snapshot.tick;
+        acknowledgedInput = inAcknowledged;
+        scoreLimit = snapshot.scoreLimit;
+
+        if (players.length != snapshot.playerCount) {
+            resize(snapshot.playerCount);
+        }
+        for (int i = 0; i < snapshot.playerCount; i++) {
+            active[i] = snapshot.active[i];
+            scores[i] = snapshot.score[i];
+        }
+
+        // Keeps the render time a fixed distance behind the server
+        double target = tick - INTERPOLATION_DELAY;
+        if (Math.abs(renderTick - target) > MAX_DRIFT) {
+            renderTick = target;
+        }
+
+        reconcile(snapshot);
+    }
+
+    /**
+     * Resets the local player to the server's state and replays the inputs
+     * the server had not applied yet.
+     *
+     * @param snapshot The newest snapshot.
+     */
+    private void reconcile(Snapshot snapshot) {
+        if (!isLocal(seat)) {
+            return;
+        }
+        Player player = players[seat];
+        double predictedX = player.position.x;
+        double predictedY = player.position.y;
+        setPlayer(player, snapshot, seat);
+        int pending = lastSequence - acknowledgedInput;
+        if (pending > INPUT_HISTORY) {
+            pending = INPUT_HISTORY;
+        }
+        for (int sequence = lastSequence - pending + 1; sequence - lastSequence <= 0; sequence++) {
+            player.move(sentInputs[sequence & (INPUT_HISTORY - 1)]);
+        }
+        correction = Math.hypot(player.position.x - predictedX,
+                player.position.y - predictedY);
+    }
+
+    /**
+     * Moves the other players and the coins to where they were at the render
+     * time, which lies the given fraction of a tick past the current one.
+     *
+     * @param alpha The fraction of the next tick that has passed.
+     */
+    public void interpolate(double alpha) {
+        if (newest < 0) {
+            return;
+        }
+        double time = renderTick + alpha;
+
+        // Finds the newest buffered snapshot at or before the render time
+        Snapshot from = null;
+        Snapshot to = null;
+        for (int n = 0; n < BUFFER_SIZE; n++) {
+            Snapshot snapshot = buffer[Math.floorMod(newest - n, BUFFER_SIZE)];
+            if (snapshot.tick == 0) {
+                break;
+            }
+            if (snapshot.tick <= time) {
+                from = snapshot;
+                break;
+            }
+            to = snapshot;
+        }
+        if (from == null) {
+            from = to;
+        }
+        if (to == null || to.playerCount != from.playerCount) {
+            to = from;
+        }
+        double t = to == from ? 0 : (time - from.tick) / (to.tick - from.tick);
+
+        for (int i = 0; i < players.length && i < from.playerCount; i++) {
+            if (i == seat) {
+                continue;
+            }
+            Player player = players[i];
+            player.position.x = lerp(from.x[i], to.x[i], t) / Snapshot.POSITION_SCALE;
+            player.position.y = lerp(from.y[i], to.y[i], t) / Snapshot.POSITION_SCALE;
+            int toRotation = from.rotation[i]
+                    + SnapshotCodec.wrapTurn(to.rotation[i] - from.rotation[i]);
+            player.rotation = lerp(from.rotation[i], toRotation, t) / Snapshot.ROTATION_SCALE;
+            player.stepSize = from.stepSize[i];
+        }
+
+        if (from.tick != shownCoins.tick) {
+            showCoins(from);
+        }
+    }
+
+    /**
+     * Interpolates between two quantized values.
+     *
+     * @param a The value at t = 0.
+     * @param b The value at t = 1.
+     * @param t The fraction of the way from a to b.
+     * @return The interpolated value.
+     */
+    private static double lerp(int a, int b, double t) {
+        return a + (b - a) * t;
+    }
+
+    /**
+     * Updates the coins to those of a snapshot. Both the snapshot and the one
+     * shown before list their coins by id, so walking them side by side finds
+     * the coins that went, came or changed, and only those touch the store.
+     *
+     * @param snapshot The snapshot to show.
+     */
+    private void showCoins(Snapshot snapshot) {
+        int s = 0, n = 0;
+        while (s < shownCoins.coinCount || n < snapshot.coinCount) {
+            int shownId = s < shownCoins.coinCount ? shownCoins.coinId[s]
+                    : Integer.MAX_VALUE;
+            int newId = n < snapshot.coinCount ? snapshot.coinId[n]
+                    : Integer.MAX_VALUE;
+            if (shownId < newId) {
+                coins.remove(coins.indexOf(shownId));
+                s++;
+                continue;
+            }
+            if (shownId == newId) {
+                boolean same = shownCoins.coinType[s] == snapshot.coinType[n]
+                        && shownCoins.coinX[s] == snapshot.coinX[n]
+                        && shownCoins.coinY[s] == snapshot.coinY[n];
+                s++;
+                if (same) {
+                    n++;
+                    continue;
+                }
+                coins.remove(coins.indexOf(newId));
+            }
+            coins.put(newId, snapshot.coinType[n],
+                    (double) snapshot.coinX[n] / Snapshot.POSITION_SCALE,
+                    (double) snapshot.coinY[n] / Snapshot.POSITION_SCALE);
+            n++;
+        }
+        shownCoins.copyFrom(snapshot);
+    }
+
+    /**
+     * Copies the state of one player in a snapshot onto a player object.
+     *
+     * @param player   The player to update.
+     * @param snapshot The snapshot to copy from.
+     * @param index    The index of the player in the snapshot.
+     */
+    private static void setPlayer(Player player, Snapshot snapshot, int index) {
+        player.position.x = (double) snapshot.x[index] / Snapshot.POSITION_SCALE;
+        player.position.y = (double) snapshot.y[index] / Snapshot.POSITION_SCALE;
+        player.rotation = (double) snapshot.rotation[index] / Snapshot.ROTATION_SCALE;
+        player.stepSize = snapshot.stepSize[index];
+    }
+
+    /**
+     * Checks if a seat is the local player and there is a state to predict
+     * from.
+     *
+     * @param index The seat.
+     * @return True if the player at the seat is predicted.
+     */
+    private boolean isLocal(int index) {
+        return index >= 0 && index < players.length && active[index];
+    }
+
+    /**
+     * Makes room for a different number of players.
+     *
+     * @param playerCount The new number of players.
+     */
+    private void resize(int playerCount) {
+        players = Simulation.createPlayers(playerCount);
+        for (Player player : players) {
+            player.setWorldSize(worldWidth, worldHeight);
+        }
+        active = new boolean[playerCount];
+        scores = new int[playerCount];
+    }
+
+    /**
+     * Gets the server tick of the latest state.
+     *
+     * @return The tick, or -1 before the first state.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the sequence number of the last input of this client the server
+     * had applied when it sent the latest state.
+     *
+     * @return The acknowledged input sequence.
+     */
+    public int getAcknowledgedInput() {
+        return acknowledgedInput;
+    }
+
+    /**
+     * Gets the tick other players are currently drawn at.
+     *
+     * @return The render time in ticks.
+     */
+    public double getRenderTick() {
+        return renderTick;
+    }
+
+    /**
+     * Gets how far the local player was moved by the last reconciliation,
+     * i.e. how wrong the prediction was. Only rounding should show up here
+     * unless the server dropped or held inputs.
+     *
+     * @return The correction in pixels.
+     */
+    public double getCorrection() {
+        return correction;
+    }
+
+    @Override
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    @Override
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    @Override
+    public boolean isPlayerActive(int index) {
+        return active[index];
+    }
+
+    @Override
+    public int getScore(int index) {
+        return index < scores.length ? scores[index] : 0;
+    }
+
+    @Override
+    public int getCoinCount() {
+        return coins.size();
+    }
+
+    @Override
+    public Coin getCoin(int index) {
+        return coins.getCoin(index);
+    }
+
+    @Override
+    public int getCoinId(int index) {
+        return coins.getId(index);
+    }
+
+    @Override
+    public byte getCoinType(int index) {
+        return coins.getType(index);
+    }
+
+    @Override
+    public int getCoinValue(int index) {
+        return coins.getValue(index);
+    }
+
+    @Override
+    public double getCoinX(int index) {
+        return coins.getX(index);
+    }
+
+    @Override
+    public double getCoinY(int index) {
+        return coins.getY(index);
+    }
+
+    @Override
+    public int findCoins(double minX, double minY, double maxX, double maxY) {
+        return coins.query(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public int getFoundCoin(int n) {
+        return coins.getFound(n);
+    }
+
+    @Override
+    public int orderCoinsById() {
+        return coins.orderById();
+    }
+
+    @Override
+    public int getOrderedCoin(int n) {
+        return coins.getOrdered(n);
+    }
+
+    @Override
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    @Override
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    @Override
+    public int getScoreLimit() {
+        return scoreLimit;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return getWinner() >= 0;
+    }
+
+    @Override
+    public int getWinner() {
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] >= scoreLimit) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
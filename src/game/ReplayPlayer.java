@@ -0,0 +1,348 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The ReplayPlayer class plays back a file written by a ReplayRecorder. It
+ * re-simulates the match tick by tick from the recorded inputs, as fast as
+ * asked: the Survivor canvas steps it in time with the clock, while the main
+ * method runs it headless at full speed.
+ *
+ * When the file is opened every keyframe is indexed, so seeking restores the
+ * nearest keyframe at or before the wanted tick and only simulates the few
+ * ticks after it. In verify mode every keyframe passed during playback is
+ * compared with the re-simulated state, and the first tick where they differ
+ * is kept: that is where the recording and the simulation went apart.
+ *
+ * Usage: java game.ReplayPlayer file [--verify] [--seek tick]
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class ReplayPlayer {
+    // Instance variables for the file
+    private final ByteBuffer data;
+    private final long seed;
+    private final int keyframeInterval;
+    private final long length;
+
+    // Keyframes in tick order: the tick and where its record starts
+    private long[] keyframeTicks = new long[16];
+    private int[] keyframeOffsets = new int[16];
+    private int keyframeCount;
+
+    // Instance variables for playback
+    private final Simulation simulation;
+    private final int[] inputs;
+    private long position;
+    private int offset;
+    private boolean verify;
+    private ByteBuffer scratch;
+    private long firstDesync = -1;
+
+    /**
+     * Opens a replay file and puts the match at its first tick.
+     *
+     * @param file The file to play.
+     * @throws IOException If the file cannot be read or is not a replay.
+     */
+    public ReplayPlayer(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Replay is too large to map: " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.limit() < ReplayRecorder.HEADER_BYTES
+                || data.getInt(0) != ReplayRecorder.MAGIC) {
+            throw new IOException("Not a replay file: " + file);
+        }
+        if (data.getInt(4) != ReplayRecorder.VERSION) {
+            throw new IOException("Unsupported replay version " + data.getInt(4));
+        }
+        seed = data.getLong(8);
+        int playerCount = data.getInt(16);
+        long tickNanos = data.getLong(20);
+        keyframeInterval = data.getInt(28);
+        long recorded = data.getLong(ReplayRecorder.TICK_COUNT_OFFSET);
+        int worldWidth = data.getInt(ReplayRecorder.WORLD_OFFSET);
+        int worldHeight = data.getInt(ReplayRecorder.WORLD_OFFSET + 4);
+
+        simulation = new Simulation(Simulation.createPlayers(playerCount),
+                seed, tickNanos, worldWidth, worldHeight);
+        inputs = new int[playerCount];
+        length = index(recorded);
+        if (keyframeCount == 0) {
+            throw new IOException("Replay has no keyframe: " + file);
+        }
+        offset = keyframeOffsets[0];
+        applyRecord(true);
+    }
+
+    /**
+     * Walks every record once to find the keyframes, stopping early if the
+     * file ends in the middle of a record.
+     *
+     * @param recorded The tick count in the header.
+     * @return The number of complete ticks in the file.
+     */
+    private long index(long recorded) {
+        int playerCount = inputs.length;
+        int at = ReplayRecorder.HEADER_BYTES;
+        long tick = 0;
+        while (tick < recorded && at < data.limit()) {
+            int start = at;
+            int flags = data.get(at++);
+            if ((flags & ReplayRecorder.ACTIVE_FLAG) != 0) {
+                at += (playerCount + 7) / 8;
+            }
+            if ((flags & ReplayRecorder.KEYFRAME_FLAG) != 0) {
+                if (at + 4 > data.limit() || data.getInt(at) < 0) {
+                    break;
+                }
+                at += 4 + data.getInt(at);
+            }
+            at += (playerCount + 1) / 2;
+            if (at < 0 || at > data.limit()) {
+                break;
+            }
+            if ((flags & ReplayRecorder.KEYFRAME_FLAG) != 0) {
+                addKeyframe(tick, start);
+            }
+            tick++;
+        }
+        return tick;
+    }
+
+    /**
+     * Adds a keyframe to the index.
+     *
+     * @param tick  The tick of the keyframe.
+     * @param start Where its record starts.
+     */
+    private void addKeyframe(long tick, int start) {
+        if (keyframeCount == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeTicks[keyframeCount] = tick;
+        keyframeOffsets[keyframeCount] = start;
+        keyframeCount++;
+    }
+
+    /**
+     * Moves playback to a tick: the nearest keyframe at or before it is
+     * restored and the ticks after the keyframe are simulated.
+     *
+     * @param tick The tick to go to, clamped to the recording.
+     */
+    public void seek(long tick) {
+        tick = Math.max(0, Math.min(tick, length));
+        int k = Arrays.binarySearch(keyframeTicks, 0, keyframeCount, tick);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        // Seeking forward within the current stretch just plays on
+        if (tick < position || keyframeTicks[k] > position) {
+            offset = keyframeOffsets[k];
+            position = keyframeTicks[k];
+            applyRecord(true);
+        }
+        while (position < tick) {
+            step();
+        }
+    }
+
+    /**
+     * Plays the next recorded tick.
+     *
+     * @return False if the end of the recording was reached, true otherwise.
+     */
+    public boolean step() {
+        if (position >= length) {
+            return false;
+        }
+        applyRecord(false);
+        simulation.tick(inputs);
+        position++;
+        return true;
+    }
+
+    /**
+     * Plays up to the given number of ticks.
+     *
+     * @param ticks The number of ticks to play.
+     * @return The number of ticks played.
+     */
+    public int play(int ticks) {
+        int played = 0;
+        while (played < ticks && step()) {
+            played++;
+        }
+        return played;
+    }
+
+    /**
+     * Reads the record at the current offset, leaving the inputs of the tick
+     * in the inputs array. The keyframe is either restored, checked against
+     * the simulation in verify mode, or skipped.
+     *
+     * @param restore True to restore the keyframe of this record.
+     */
+    private void applyRecord(boolean restore) {
+        int playerCount = inputs.length;
+        int at = offset;
+        int flags = data.get(at++);
+        if ((flags & ReplayRecorder.ACTIVE_FLAG) != 0) {
+            for (int i = 0; i < playerCount; i++) {
+                int mask = data.get(at + i / 8);
+                simulation.setPlayerActive(i, (mask & (1 << (i % 8))) != 0);
+            }
+            at += (playerCount + 7) / 8;
+        }
+        if ((flags & ReplayRecorder.KEYFRAME_FLAG) != 0) {
+            int size = data.getInt(at);
+            ByteBuffer saved = data.slice(at + 4, size);
+            if (restore) {
+                simulation.restore(saved);
+            } else if (verify && firstDesync < 0 && !matches(saved)) {
+                firstDesync = position;
+            }
+            at += 4 + size;
+        }
+        for (int i = 0; i < playerCount; i += 2) {
+            int packed = data.get(at++);
+            inputs[i] = packed & 0xF;
+            if (i + 1 < playerCount) {
+                inputs[i + 1] = (packed >> 4) & 0xF;
+            }
+        }
+        // A restore leaves the record to be played by the next step
+        if (!restore) {
+            offset = at;
+        }
+    }
+
+    /**
+     * Compares the simulation with a keyframe.
+     *
+     * @param saved The keyframe.
+     * @return True if the simulation is in exactly the saved state.
+     */
+    private boolean matches(ByteBuffer saved) {
+        int size = simulation.stateSize();
+        if (scratch == null || scratch.capacity() < size) {
+            scratch = ByteBuffer.allocate(size * 2);
+        }
+        scratch.clear();
+        simulation.save(scratch);
+        scratch.flip();
+        return scratch.equals(saved);
+    }
+
+    /**
+     * Turns checking keyframes during playback on or off.
+     *
+     * @param inVerify True to compare every keyframe passed.
+     */
+    public void setVerify(boolean inVerify) {
+        verify = inVerify;
+    }
+
+    /**
+     * Gets the first tick whose keyframe did not match the re-simulated
+     * match.
+     *
+     * @return The tick, or -1 if every keyframe checked so far matched.
+     */
+    public long getFirstDesync() {
+        return firstDesync;
+    }
+
+    /**
+     * Gets the match being played back.
+     *
+     * @return The simulation.
+     */
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Gets the number of ticks in the recording.
+     *
+     * @return The length in ticks.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the number of ticks played so far.
+     *
+     * @return The current tick.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the number of ticks between keyframes.
+     *
+     * @return The keyframe interval.
+     */
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * The main method to play a replay headless at full speed.
+     *
+     * @param args The file, then optionally --verify and --seek tick.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java game.ReplayPlayer file [--verify] [--seek tick]");
+            return;
+        }
+        ReplayPlayer replay = new ReplayPlayer(Paths.get(args[0]));
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--verify")) {
+                replay.setVerify(true);
+            } else if (args[i].equals("--seek") && i + 1 < args.length) {
+                long seekStart = System.nanoTime();
+                replay.seek(Long.parseLong(args[++i]));
+                System.out.printf("Seek to tick %d in %.3f ms%n",
+                        replay.getPosition(), (System.nanoTime() - seekStart) / 1e6);
+            }
+        }
+
+        long from = replay.getPosition();
+        long start = System.nanoTime();
+        while (replay.step()) {
+            // Plays to the end
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long ticks = replay.getPosition() - from;
+        System.out.printf("%d ticks in %.3f s: %.0f ticks/s%n", ticks, seconds,
+                ticks / Math.max(seconds, 1e-9));
+
+        Simulation simulation = replay.getSimulation();
+        for (int i = 0; i < simulation.getPlayerCount(); i++) {
+            System.out.println("Player " + (i + 1) + ": " + simulation.getScore(i));
+        }
+        System.out.printf("Checksum: %08x%n", simulation.checksum());
+        if (replay.verify) {
+            long desync = replay.getFirstDesync();
+            System.out.println(desync < 0 ? "All keyframes match"
+                    : "First desync at tick " + desync);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ReplayRecorder class writes a match to a replay file as it is played,
+ * so it can be reproduced exactly by a ReplayPlayer. Since a Simulation only
+ * depends on its seed and the inputs of each tick, the file holds little
+ * more than the inputs: half a byte per player per tick.
+ *
+ * The file is appended to through a memory mapping that is extended a
+ * megabyte at a time, so recording a tick is a few memory writes and never
+ * a system call. The tick count in the header is updated after every tick,
+ * which keeps the file readable even if the process dies without closing
+ * the recorder.
+ *
+ * File layout, all numbers big-endian:
+ *
+ * Header (HEADER_BYTES): magic (int), version (int), seed (long), player
+ * count (int), tick length in nanoseconds (long), keyframe interval (int),
+ * number of ticks recorded (long), world width (int), world height (int).
+ *
+ * Then one record per tick: a flags byte; if ACTIVE_FLAG is set, the active
+ * players as a bit mask of (players + 7) / 8 bytes; if KEYFRAME_FLAG is set,
+ * the length (int) and bytes of Simulation.save taken before the tick; and
+ * finally the inputs, two players per byte, the even player in the low
+ * four bits. The first record always has both flags.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class ReplayRecorder {
+    // File identification
+    public static final int MAGIC = 0x53565250;
+
+    // Bumped whenever the same inputs would play out differently: version 2
+    // changed pickups to the separating axis test, version 3 movement to
+    // TrigTable, version 4 respawns to the CoinRegistry alias table and
+    // version 5 added the world size to the header
+    public static final int VERSION = 5;
+
+    // Header layout
+    public static final int HEADER_BYTES = 48;
+    public static final int TICK_COUNT_OFFSET = 32;
+    public static final int WORLD_OFFSET = 40;
+
+    // Flags at the start of each tick record
+    public static final int ACTIVE_FLAG = 1;
+    public static final int KEYFRAME_FLAG = 2;
+
+    // Ticks between keyframes when none is given, 10 seconds of play
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1000;
+
+    // How much the mapping grows by at a time
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    // Instance variables for the file
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer body;
+    private long bodyStart;
+
+    // Instance variables for the match being recorded
+    private final Simulation simulation;
+    private final int keyframeInterval;
+    private final boolean[] lastActive;
+    private ByteBuffer keyframe;
+    private long tickCount;
+    private boolean closed;
+
+    /**
+     * Creates a replay file for a match, replacing any file already there.
+     * The first keyframe is taken on the first recorded tick, so a match that
+     * was set up further (more coins, a different score limit) before
+     * recording started replays correctly.
+     *
+     * @param file               The file to write.
+     * @param inSimulation       The match to record.
+     * @param inKeyframeInterval The number of ticks between keyframes.
+     * @throws IOException If the file cannot be created.
+     */
+    public ReplayRecorder(Path file, Simulation inSimulation,
+            int inKeyframeInterval) throws IOException {
+        if (inKeyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive");
+        }
+        simulation = inSimulation;
+        keyframeInterval = inKeyframeInterval;
+        lastActive = new boolean[simulation.getPlayerCount()];
+        keyframe = ByteBuffer.allocate(simulation.stateSize());
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(simulation.getSeed());
+        header.putInt(simulation.getPlayerCount());
+        header.putLong(simulation.getTickNanos());
+        header.putInt(keyframeInterval);
+        header.putLong(0);
+        header.putInt(simulation.getWorldWidth());
+        header.putInt(simulation.getWorldHeight());
+        bodyStart = HEADER_BYTES;
+        body = channel.map(FileChannel.MapMode.READ_WRITE, bodyStart, CHUNK_BYTES);
+    }
+
+    /**
+     * Records the inputs of the next tick. Call it right before passing the
+     * same inputs to Simulation.tick.
+     *
+     * @param inputs The input bit flags of each player, indexed like the
+     * players. Missing entries count as no keys held.
+     * @throws IOException If the file cannot be extended.
+     */
+    public void record(int[] inputs) throws IOException {
+        if (closed) {
+            return;
+        }
+        int playerCount = lastActive.length;
+        boolean activeChanged = tickCount == 0;
+        for (int i = 0; i < playerCount; i++) {
+            activeChanged |= simulation.isPlayerActive(i) != lastActive[i];
+        }
+        boolean takeKeyframe = tickCount % keyframeInterval == 0;
+
+        int flags = (activeChanged ? ACTIVE_FLAG : 0)
+                | (takeKeyframe ? KEYFRAME_FLAG : 0);
+        int size = 1 + (playerCount + 1) / 2;
+        if (activeChanged) {
+            size += (playerCount + 7) / 8;
+        }
+        if (takeKeyframe) {
+            if (keyframe.capacity() < simulation.stateSize()) {
+                keyframe = ByteBuffer.allocate(simulation.stateSize() * 2);
+            }
+            keyframe.clear();
+            simulation.save(keyframe);
+            keyframe.flip();
+            size += 4 + keyframe.remaining();
+        }
+        ensure(size);
+
+        body.put((byte) flags);
+        if (activeChanged) {
+            for (int i = 0; i < playerCount; i += 8) {
+                int mask = 0;
+                for (int bit = 0; bit < 8 && i + bit < playerCount; bit++) {
+                    lastActive[i + bit] = simulation.isPlayerActive(i + bit);
+                    if (lastActive[i + bit]) {
+                        mask |= 1 << bit;
+                    }
+                }
+                body.put((byte) mask);
+            }
+        }
+        if (takeKeyframe) {
+            body.putInt(keyframe.remaining());
+            body.put(keyframe);
+        }
+        for (int i = 0; i < playerCount; i += 2) {
+            int low = input(inputs, i);
+            int high = i + 1 < playerCount ? input(inputs, i + 1) : 0;
+            body.put((byte) (low | (high << 4)));
+        }
+
+        tickCount++;
+        header.putLong(TICK_COUNT_OFFSET, tickCount);
+    }
+
+    /**
+     * Gets the input of one player, 0 if it is missing.
+     *
+     * @param inputs The inputs of the tick, may be null.
+     * @param index  The index of the player.
+     * @return The four input bits.
+     */
+    private static int input(int[] inputs, int index) {
+        return inputs != null && index < inputs.length ? inputs[index] & 0xF : 0;
+    }
+
+    /**
+     * Makes sure the mapping has room for a record, mapping the next part of
+     * the file if it does not.
+     *
+     * @param size The size of the record in bytes.
+     * @throws IOException If the file cannot be extended.
+     */
+    private void ensure(int size) throws IOException {
+        if (body.remaining() >= size) {
+            return;
+        }
+        bodyStart += body.position();
+        body = channel.map(FileChannel.MapMode.READ_WRITE, bodyStart,
+                Math.max(CHUNK_BYTES, size));
+    }
+
+    /**
+     * Gets the number of ticks recorded so far.
+     *
+     * @return The tick count.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Finishes the file, cutting off the unused end of the last mapped part.
+     * Later calls to record are ignored.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        header.force();
+        body.force();
+        channel.truncate(bodyStart + body.position());
+        channel.close();
+    }
+}
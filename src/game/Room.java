@@ -0,0 +1,886 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Room class is one match hosted by a GameServer, together with the
+ * clients seated in it. Everything a match needs lives here: its Simulation,
+ * its seats, the snapshot history its deltas are encoded against and the
+ * sockets of its clients. Rooms share nothing with each other, so the server
+ * can run thousands of them on a shared thread pool.
+ *
+ * A room is only ever run by one pool thread at a time. Each run reads what
+ * its clients have sent, runs the ticks that are due, sends every client the
+ * new state and writes as much as the sockets take. The sockets are polled
+ * rather than watched by a selector, since the room looks at all of them
+ * once per tick anyway.
+ *
+ * Spectators get the match too, without a seat. Each tick the state is
+ * encoded for them once, as a delta against the last keyframe, into a
+ * direct buffer that every spectator is handed a read-only view of; the
+ * views are written with gathering writes, so the bytes are never copied
+ * per spectator. A spectator whose socket falls behind is not buffered for:
+ * once it has MAX_PENDING frames unwritten, further states skip it, and if
+ * it missed a keyframe that way it gets nothing until the next one. One that
+ * has not taken anything for so long that its oldest frame is about to be
+ * reused is disconnected.
+ *
+ * A client that takes a seat someone left starts from that seat's spawn
+ * point with no points. Once a match is won the room offers no more seats,
+ * so new clients go to a match they can still play; it starts over when its
+ * last client leaves.
+ *
+ * The only ways into a room from other threads are the seat count and the
+ * finished flag, which the server uses to place new clients, and the queues
+ * of clients and spectators waiting to be let in.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class Room implements Runnable {
+    // Sizes of the per-connection buffers
+    private static final int READ_BUFFER_BYTES = 4096;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    // Number of snapshots kept as baselines, and of distinct baselines
+    // whose encoding is shared between clients in one tick
+    private static final int HISTORY_SIZE = 64;
+    private static final int SHARED_ENCODINGS = 16;
+
+    // Inputs a client may be ahead of the server by before the oldest are
+    // dropped, a power of two
+    private static final int INPUT_QUEUE_SIZE = 8;
+
+    // Ticks between spectator keyframes, fewer than HISTORY_SIZE so the
+    // keyframe is still a baseline on both ends, and the number of encoded
+    // spectator frames kept, one per tick
+    private static final int KEYFRAME_INTERVAL = 32;
+    private static final int FRAME_RING = 64;
+    private static final int FRAME_BYTES = 4096;
+
+    // Socket send buffer of a spectator, small so that hundreds of them do
+    // not each hold megabytes in the kernel and a slow one is noticed soon
+    private static final int SPECTATOR_SEND_BUFFER = 64 * 1024;
+
+    // Frames a spectator may have unwritten before states skip it
+    private static final int MAX_PENDING = 16;
+
+    /**
+     * The Connection class holds the socket, buffers and seat of one client.
+     */
+    private static class Connection {
+        final SocketChannel channel;
+        final int seat;
+        final String name;
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        int input;
+        int lastSequence;
+        long snapshotTick;
+
+        // Inputs received but not yet applied, one is used per tick
+        final int[] queuedInputs = new int[INPUT_QUEUE_SIZE];
+        final int[] queuedSequences = new int[INPUT_QUEUE_SIZE];
+        int queueHead;
+        int queueCount;
+        int lastReceived;
+
+        Connection(SocketChannel inChannel, int inSeat, String inName) {
+            channel = inChannel;
+            seat = inSeat;
+            name = inName;
+            // The write buffer is kept in read mode between flushes
+            writeBuffer.flip();
+        }
+    }
+
+    /**
+     * The Spectator class holds the socket of a spectator and the frames
+     * queued for it, each a view of a shared frame with its own position.
+     */
+    private static class Spectator {
+        final SocketChannel channel;
+        final ByteBuffer[] pending = new ByteBuffer[MAX_PENDING];
+        final long[] pendingTicks = new long[MAX_PENDING];
+        int count;
+        boolean synced;
+
+        Spectator(SocketChannel inChannel) {
+            channel = inChannel;
+        }
+    }
+
+    // Instance variables shared with the server threads
+    private final int number;
+    private final int seatCount;
+    private final AtomicInteger occupied = new AtomicInteger();
+    private final ConcurrentLinkedQueue<SocketChannel> arrivals =
+            new ConcurrentLinkedQueue<SocketChannel>();
+    private final ConcurrentLinkedQueue<SocketChannel> watchers =
+            new ConcurrentLinkedQueue<SocketChannel>();
+    private final AtomicInteger watching = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean failed;
+    private volatile boolean finished;
+
+    // Instance variables only used by the thread running the room
+    private final long seed;
+    private final int worldWidth, worldHeight;
+    private Simulation simulation;
+    private final TickClock clock;
+    private final Connection[] seats;
+    private final ArrayList<Connection> connections;
+    private final int[] inputs;
+    private final SnapshotHistory history;
+    private ByteBuffer stateBuffer;
+    private final long[] encodedBase = new long[SHARED_ENCODINGS];
+    private final int[] encodedStart = new int[SHARED_ENCODINGS];
+    private final int[] encodedEnd = new int[SHARED_ENCODINGS];
+    private long bytesQueued;
+    private int matches;
+
+    // Instance variables for the spectators and the ring of frames encoded
+    // for them
+    private final ArrayList<Spectator> spectators = new ArrayList<Spectator>();
+    private final ByteBuffer[] frames = new ByteBuffer[FRAME_RING];
+    private long keyframeTick;
+    private long framesSkipped;
+
+    // Instance variables for keeping results, the store set before the
+    // room first runs
+    private MatchStore store;
+    private long matchId;
+    private boolean resultStored;
+
+    // Histogram of the time each run takes, shared with other rooms, or
+    // null
+    private LatencyHistogram runTimes;
+
+    /**
+     * Constructs an empty Room.
+     *
+     * @param inNumber    The number of the room on its server.
+     * @param inSeatCount The most players in the match.
+     * @param inSeed      The seed for coin spawns.
+     * @param tickNanos   The length of one tick in nanoseconds.
+     */
+    public Room(int inNumber, int inSeatCount, long inSeed, long tickNanos) {
+        this(inNumber, inSeatCount, inSeed, tickNanos, Simulation.WIDTH,
+                Simulation.HEIGHT);
+    }
+
+    /**
+     * Constructs an empty Room whose matches are played in a world of the
+     * given size.
+     *
+     * @param inNumber    The number of the room on its server.
+     * @param inSeatCount The most players in the match.
+     * @param inSeed      The seed for coin spawns.
+     * @param tickNanos   The length of one tick in nanoseconds.
+     * @param inWidth     The width of the world.
+     * @param inHeight    The height of the world.
+     */
+    public Room(int inNumber, int inSeatCount, long inSeed, long tickNanos,
+            int inWidth, int inHeight) {
+        number = inNumber;
+        seatCount = inSeatCount;
+        seed = inSeed;
+        worldWidth = inWidth;
+        worldHeight = inHeight;
+        seats = new Connection[seatCount];
+        connections = new ArrayList<Connection>();
+        inputs = new int[seatCount];
+        history = new SnapshotHistory(HISTORY_SIZE);
+        stateBuffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        clock = new TickClock(tickNanos);
+        newMatch();
+    }
+
+    /**
+     * Starts a fresh match with every seat empty.
+     */
+    private void newMatch() {
+        simulation = new Simulation(Simulation.createPlayers(seatCount),
+                seed + matches++, clock.getTickNanos(), worldWidth, worldHeight);
+        for (int i = 0; i < seatCount; i++) {
+            simulation.setPlayerActive(i, false);
+        }
+        keyframeTick = 0;
+        if (store != null) {
+            matchId = store.newMatchId();
+            simulation.setPickupListener(store.pickupsOf(matchId));
+        }
+        resultStored = false;
+        finished = false;
+    }
+
+    /**
+     * Keeps the pickups and results of this room's matches in a store,
+     * starting with the current match. Call it before the room first runs.
+     *
+     * @param inStore The store.
+     */
+    public void setMatchStore(MatchStore inStore) {
+        store = inStore;
+        matchId = store.newMatchId();
+        simulation.setPickupListener(store.pickupsOf(matchId));
+    }
+
+    /**
+     * Records how long every run of the room takes, for watching the load
+     * of a server. Call it before the room first runs.
+     *
+     * @param inRunTimes The histogram to record into, which may be shared
+     * with other rooms.
+     */
+    public void setRunTimes(LatencyHistogram inRunTimes) {
+        runTimes = inRunTimes;
+    }
+
+    /**
+     * Reserves a seat for a new client if one is free and the match is not
+     * over yet. Called by the server before handing the client over with
+     * admit.
+     *
+     * @return True if a seat was reserved, false if the room is full or its
+     * match is over.
+     */
+    public boolean reserveSeat() {
+        while (true) {
+            int taken = occupied.get();
+            if (taken >= seatCount || failed || finished) {
+                return false;
+            }
+            if (occupied.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hands a client with a reserved seat to the room. It is seated and
+     * welcomed on the room's next run.
+     *
+     * @param channel The socket of the client.
+     */
+    public void admit(SocketChannel channel) {
+        arrivals.add(channel);
+    }
+
+    /**
+     * Hands a spectator to the room. It is welcomed on the room's next run
+     * and gets states from the next keyframe on.
+     *
+     * @param channel The socket of the spectator, in non-blocking mode.
+     */
+    public void admitSpectator(SocketChannel channel) {
+        watching.incrementAndGet();
+        watchers.add(channel);
+    }
+
+    /**
+     * Marks the room as running if it is idle, so that only one thread runs
+     * it at a time.
+     *
+     * @return True if the caller may now run the room.
+     */
+    public boolean tryStart() {
+        return !failed && running.compareAndSet(false, true);
+    }
+
+    /**
+     * Runs the room once: seats new clients, reads their inputs, runs the
+     * due ticks and sends the resulting state. A failure only takes this
+     * room down, never the server or other rooms.
+     */
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        try {
+            seatArrivals();
+            welcomeSpectators();
+            for (int i = connections.size() - 1; i >= 0; i--) {
+                read(connections.get(i));
+            }
+            // An empty room keeps its clock but does not simulate
+            int due = clock.advance(System.nanoTime());
+            for (int t = 0; t < due && !connections.isEmpty(); t++) {
+                tick();
+            }
+            for (int i = connections.size() - 1; i >= 0; i--) {
+                flush(connections.get(i));
+            }
+            for (int i = spectators.size() - 1; i >= 0; i--) {
+                flush(spectators.get(i));
+            }
+        } catch (RuntimeException exc) {
+            System.err.println("Room " + number + " failed: " + exc);
+            failed = true;
+            close();
+        } finally {
+            if (runTimes != null) {
+                runTimes.record(System.nanoTime() - start);
+            }
+            running.set(false);
+        }
+    }
+
+    /**
+     * Seats and welcomes the clients handed over since the last run, each
+     * starting afresh in its seat. A client whose socket cannot be set up is
+     * dropped, as is one that reserved its seat just as the match ended.
+     */
+    private void seatArrivals() {
+        SocketChannel channel;
+        while ((channel = arrivals.poll()) != null) {
+            int seat = -1;
+            for (int i = 0; i < seats.length && seat < 0; i++) {
+                if (seats[i] == null) {
+                    seat = i;
+                }
+            }
+            String name;
+            try {
+                if (seat < 0) {
+                    throw new IOException("No free seat");
+                }
+                if (simulation.isGameOver()) {
+                    throw new IOException("Match is over");
+                }
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                name = ((InetSocketAddress) channel.getRemoteAddress())
+                        .getHostString() + " #" + (seat + 1);
+            } catch (IOException exc) {
+                occupied.decrementAndGet();
+                closeQuietly(channel);
+                continue;
+            }
+
+            Connection connection = new Connection(channel, seat, name);
+            seats[seat] = connection;
+            connections.add(connection);
+            simulation.resetPlayer(seat);
+            simulation.setPlayerActive(seat, true);
+
+            ByteBuffer welcome = ByteBuffer.allocate(Protocol.HEADER_BYTES
+                    + Protocol.WELCOME_BYTES);
+            Protocol.writeWelcome(welcome, seat, seats.length,
+                    simulation.getTickNanos(), worldWidth, worldHeight);
+            welcome.flip();
+            queue(connection, welcome);
+        }
+    }
+
+    /**
+     * Welcomes the spectators handed over since the last run. They get no
+     * state until the next keyframe.
+     */
+    private void welcomeSpectators() {
+        SocketChannel channel;
+        while ((channel = watchers.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                channel.socket().setSendBufferSize(SPECTATOR_SEND_BUFFER);
+            } catch (IOException exc) {
+                watching.decrementAndGet();
+                closeQuietly(channel);
+                continue;
+            }
+            Spectator spectator = new Spectator(channel);
+            ByteBuffer welcome = ByteBuffer.allocate(Protocol.HEADER_BYTES
+                    + Protocol.WELCOME_BYTES);
+            Protocol.writeWelcome(welcome, -1, seats.length,
+                    simulation.getTickNanos(), worldWidth, worldHeight);
+            welcome.flip();
+            spectator.pending[0] = welcome;
+            spectator.pendingTicks[0] = simulation.getTickCount();
+            spectator.count = 1;
+            spectators.add(spectator);
+        }
+    }
+
+    /**
+     * Runs one tick of the match with the next queued input of every seat
+     * and sends the new state to every client.
+     */
+    private void tick() {
+        for (int i = 0; i < seats.length; i++) {
+            Connection connection = seats[i];
+            if (connection == null) {
+                inputs[i] = 0;
+                continue;
+            }
+            // One input per tick, as the client predicted. With nothing
+            // queued the last input is held and the ack does not move.
+            if (connection.queueCount > 0) {
+                int head = connection.queueHead;
+                connection.input = connection.queuedInputs[head];
+                connection.lastSequence = connection.queuedSequences[head];
+                connection.queueHead = (head + 1) & (INPUT_QUEUE_SIZE - 1);
+                connection.queueCount--;
+            }
+            inputs[i] = connection.input;
+        }
+        simulation.tick(inputs);
+        if (simulation.isGameOver()) {
+            finished = true;
+            if (store != null && !resultStored) {
+                storeResult();
+            }
+        }
+        broadcastState();
+    }
+
+    /**
+     * Queues the result of the finished match in the store, with the
+     * players seated at the end. Each is named by their host address and
+     * seat number, so clients behind one address keep separate standings.
+     */
+    private void storeResult() {
+        int count = connections.size();
+        String[] names = new String[count];
+        int[] scores = new int[count];
+        int winner = -1;
+        for (int i = 0; i < count; i++) {
+            Connection connection = connections.get(i);
+            names[i] = connection.name;
+            scores[i] = simulation.getScore(connection.seat);
+            if (connection.seat == simulation.getWinner()) {
+                winner = i;
+            }
+        }
+        store.recordResult(new MatchResult(matchId,
+                System.currentTimeMillis(), simulation.getTickCount(), winner,
+                names, scores));
+        resultStored = true;
+    }
+
+    /**
+     * Captures a snapshot of the tick and queues it for every client as a
+     * delta against the snapshot that client last acknowledged, or in full
+     * if that snapshot is no longer in the history. Each distinct baseline
+     * is encoded once, and every copy gets its client's input sequence
+     * patched in.
+     */
+    private void broadcastState() {
+        if (connections.isEmpty() && spectators.isEmpty()) {
+            return;
+        }
+        long tick = simulation.getTickCount();
+        Snapshot current = history.slot(tick);
+        current.capture(tick, simulation);
+
+        int shared = 0, used = 0;
+        int ackOffset = Protocol.HEADER_BYTES + Protocol.STATE_ACK_OFFSET;
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            Snapshot baseline = history.get(connection.snapshotTick);
+            long baseTick = baseline == null ? 0 : baseline.tick;
+
+            int entry = -1;
+            for (int k = 0; k < shared && entry < 0; k++) {
+                if (encodedBase[k] == baseTick) {
+                    entry = k;
+                }
+            }
+            int start, end;
+            if (entry >= 0) {
+                start = encodedStart[entry];
+                end = encodedEnd[entry];
+            } else {
+                start = used;
+                end = encodeFrame(start, current, baseline);
+                used = end;
+                if (shared < SHARED_ENCODINGS) {
+                    encodedBase[shared] = baseTick;
+                    encodedStart[shared] = start;
+                    encodedEnd[shared] = end;
+                    shared++;
+                }
+            }
+
+            stateBuffer.limit(end);
+            stateBuffer.position(start);
+            stateBuffer.putInt(start + ackOffset, connection.lastSequence);
+            bytesQueued += end - start;
+            queue(connection, stateBuffer);
+        }
+        if (!spectators.isEmpty()) {
+            broadcastToSpectators(current);
+        }
+    }
+
+    /**
+     * Encodes a snapshot once for all spectators, in full every
+     * KEYFRAME_INTERVAL ticks and otherwise against the last keyframe, and
+     * queues a view of the frame for every spectator that can take it.
+     * Spectators whose oldest frame would be overwritten by the next tick's
+     * are disconnected.
+     *
+     * @param current The snapshot of this tick.
+     */
+    private void broadcastToSpectators(Snapshot current) {
+        long tick = current.tick;
+        Snapshot baseline = history.get(keyframeTick);
+        boolean keyframe = baseline == null
+                || tick - keyframeTick >= KEYFRAME_INTERVAL;
+        if (keyframe) {
+            baseline = null;
+            keyframeTick = tick;
+        }
+
+        int slot = (int) Math.floorMod(tick, (long) FRAME_RING);
+        int needed = Protocol.HEADER_BYTES + 4
+                + SnapshotCodec.maxSize(current, baseline);
+        ByteBuffer frame = frames[slot];
+        if (frame == null || frame.capacity() < needed) {
+            // Views of the old buffer stay valid, so it is never reused
+            frame = ByteBuffer.allocateDirect(Math.max(FRAME_BYTES, needed * 2));
+            frames[slot] = frame;
+        }
+        frame.clear();
+        frame.position(Protocol.HEADER_BYTES);
+        frame.putInt(0);
+        SnapshotCodec.encode(frame, current, baseline);
+        frame.flip();
+        frame.putInt(0, frame.limit() - 4);
+        frame.put(4, Protocol.STATE);
+        ByteBuffer shared = frame.asReadOnlyBuffer();
+
+        long oldestKept = tick + 1 - FRAME_RING;
+        for (int i = spectators.size() - 1; i >= 0; i--) {
+            Spectator spectator = spectators.get(i);
+            if (spectator.count > 0 && spectator.pendingTicks[0] <= oldestKept) {
+                disconnect(spectator);
+                continue;
+            }
+            boolean fits = spectator.count < MAX_PENDING;
+            if (keyframe) {
+                spectator.synced = fits;
+            }
+            if (!fits || !spectator.synced) {
+                framesSkipped++;
+                continue;
+            }
+            spectator.pending[spectator.count] = shared.duplicate();
+            spectator.pendingTicks[spectator.count] = tick;
+            spectator.count++;
+        }
+    }
+
+    /**
+     * Encodes a STATE frame at the given offset of the state buffer, growing
+     * the buffer first if the frame might not fit.
+     *
+     * @param start    Where the frame starts.
+     * @param current  The snapshot to send.
+     * @param baseline The snapshot to encode against, or null.
+     * @return Where the frame ends.
+     */
+    private int encodeFrame(int start, Snapshot current, Snapshot baseline) {
+        int needed = start + Protocol.HEADER_BYTES + 4
+                + SnapshotCodec.maxSize(current, baseline);
+        if (needed > stateBuffer.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocate(needed * 2);
+            bigger.put(stateBuffer.array(), 0, start);
+            stateBuffer = bigger;
+        }
+        stateBuffer.limit(stateBuffer.capacity());
+        stateBuffer.position(start + Protocol.HEADER_BYTES);
+        stateBuffer.putInt(0);
+        SnapshotCodec.encode(stateBuffer, current, baseline);
+        int end = stateBuffer.position();
+        stateBuffer.putInt(start, end - start - 4);
+        stateBuffer.put(start + 4, Protocol.STATE);
+        return end;
+    }
+
+    /**
+     * Reads what a client has sent and queues every complete INPUT frame.
+     * Partial frames stay in the buffer until the rest arrives.
+     *
+     * @param connection The client to read from.
+     */
+    private void read(Connection connection) {
+        ByteBuffer buffer = connection.readBuffer;
+        try {
+            if (connection.channel.read(buffer) < 0) {
+                disconnect(connection);
+                return;
+            }
+        } catch (IOException exc) {
+            disconnect(connection);
+            return;
+        }
+
+        buffer.flip();
+        while (buffer.remaining() >= Protocol.HEADER_BYTES) {
+            int length = buffer.getInt(buffer.position());
+            if (length < 1 || length > buffer.capacity() - 4) {
+                disconnect(connection);
+                return;
+            }
+            if (buffer.remaining() < 4 + length) {
+                break;
+            }
+            int frameEnd = buffer.position() + 4 + length;
+            buffer.getInt();
+            byte type = buffer.get();
+            if (type == Protocol.INPUT && length - 1 >= Protocol.INPUT_BYTES) {
+                int sequence = buffer.getInt();
+                int input = buffer.get();
+                long snapshotTick = buffer.getLong();
+                // Inputs that arrive out of date are ignored
+                if (sequence - connection.lastReceived > 0) {
+                    connection.lastReceived = sequence;
+                    queueInput(connection, sequence, input);
+                }
+                if (snapshotTick > connection.snapshotTick) {
+                    connection.snapshotTick = snapshotTick;
+                }
+            }
+            buffer.position(frameEnd);
+        }
+        buffer.compact();
+    }
+
+    /**
+     * Queues an input to be applied on a later tick. If the client has got
+     * too far ahead the oldest queued input is dropped, which keeps its
+     * inputs from lagging further and further behind.
+     *
+     * @param connection The client that sent the input.
+     * @param sequence   The sequence number of the input.
+     * @param input      The input bit flags.
+     */
+    private static void queueInput(Connection connection, int sequence, int input) {
+        if (connection.queueCount == INPUT_QUEUE_SIZE) {
+            connection.queueHead = (connection.queueHead + 1) & (INPUT_QUEUE_SIZE - 1);
+            connection.queueCount--;
+        }
+        int tail = (connection.queueHead + connection.queueCount) & (INPUT_QUEUE_SIZE - 1);
+        connection.queuedInputs[tail] = input;
+        connection.queuedSequences[tail] = sequence;
+        connection.queueCount++;
+    }
+
+    /**
+     * Adds a frame to the write buffer of a client if it fits. A client that
+     * cannot keep up skips states rather than queueing them, since every
+     * state replaces the one before it.
+     *
+     * @param connection The client to send to.
+     * @param frame      The frame, positioned at its start.
+     * @return True if the frame was queued, false if it was dropped.
+     */
+    private static boolean queue(Connection connection, ByteBuffer frame) {
+        ByteBuffer buffer = connection.writeBuffer;
+        buffer.compact();
+        boolean fits = buffer.remaining() >= frame.remaining();
+        if (fits) {
+            buffer.put(frame);
+        }
+        buffer.flip();
+        return fits;
+    }
+
+    /**
+     * Writes as much of the write buffer as the socket takes. Whatever is
+     * left is written on the next run.
+     *
+     * @param connection The client to write to.
+     */
+    private void flush(Connection connection) {
+        if (!connection.writeBuffer.hasRemaining()) {
+            return;
+        }
+        try {
+            connection.channel.write(connection.writeBuffer);
+        } catch (IOException exc) {
+            disconnect(connection);
+        }
+    }
+
+    /**
+     * Writes as many of a spectator's frames as its socket takes in one
+     * gathering write, and forgets the ones written in full.
+     *
+     * @param spectator The spectator to write to.
+     */
+    private void flush(Spectator spectator) {
+        if (spectator.count == 0) {
+            return;
+        }
+        try {
+            spectator.channel.write(spectator.pending, 0, spectator.count);
+        } catch (IOException exc) {
+            disconnect(spectator);
+            return;
+        }
+        int written = 0;
+        while (written < spectator.count
+                && !spectator.pending[written].hasRemaining()) {
+            written++;
+        }
+        if (written > 0) {
+            int left = spectator.count - written;
+            System.arraycopy(spectator.pending, written, spectator.pending, 0, left);
+            System.arraycopy(spectator.pendingTicks, written,
+                    spectator.pendingTicks, 0, left);
+            for (int i = left; i < spectator.count; i++) {
+                spectator.pending[i] = null;
+            }
+            spectator.count = left;
+        }
+    }
+
+    /**
+     * Closes a spectator connection.
+     *
+     * @param spectator The spectator to drop.
+     */
+    private void disconnect(Spectator spectator) {
+        if (spectators.remove(spectator)) {
+            closeQuietly(spectator.channel);
+            watching.decrementAndGet();
+        }
+    }
+
+    /**
+     * Closes a client connection and frees its seat. When the last client
+     * leaves, the room starts over with a fresh match for the next ones,
+     * and the spectators of the old match are let go.
+     *
+     * @param connection The client to drop.
+     */
+    private void disconnect(Connection connection) {
+        if (seats[connection.seat] != connection) {
+            return;
+        }
+        seats[connection.seat] = null;
+        connections.remove(connection);
+        simulation.setPlayerActive(connection.seat, false);
+        closeQuietly(connection.channel);
+        if (connections.isEmpty() && simulation.getTickCount() > 0) {
+            for (int i = spectators.size() - 1; i >= 0; i--) {
+                disconnect(spectators.get(i));
+            }
+            newMatch();
+        }
+        occupied.decrementAndGet();
+    }
+
+    /**
+     * Closes every connection of the room, including spectators and clients
+     * still waiting to be let in. Only called by the thread running the room, or once no
+     * thread runs it any more.
+     */
+    public void close() {
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            disconnect(connections.get(i));
+        }
+        SocketChannel channel;
+        while ((channel = arrivals.poll()) != null) {
+            occupied.decrementAndGet();
+            closeQuietly(channel);
+        }
+        for (int i = spectators.size() - 1; i >= 0; i--) {
+            disconnect(spectators.get(i));
+        }
+        while ((channel = watchers.poll()) != null) {
+            watching.decrementAndGet();
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Closes a socket, ignoring errors.
+     *
+     * @param channel The socket to close.
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException exc) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Gets the number of seats taken or reserved.
+     *
+     * @return The number of clients in the room.
+     */
+    public int getOccupied() {
+        return occupied.get();
+    }
+
+    /**
+     * Gets the number of spectators watching or about to.
+     *
+     * @return The number of spectators.
+     */
+    public int getSpectatorCount() {
+        return watching.get();
+    }
+
+    /**
+     * Gets the number of the room on its server.
+     *
+     * @return The room number.
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Checks if the room was shut down by an error.
+     *
+     * @return True if the room has failed.
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the number of state bytes queued for clients so far, including
+     * the frames of states that were dropped for slow clients. Only exact
+     * when read from the thread running the room.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesQueued() {
+        return bytesQueued;
+    }
+
+    /**
+     * Gets the number of ticks the room skipped because it fell too far
+     * behind to catch up. Only exact when read from the thread running the
+     * room.
+     *
+     * @return The number of skipped ticks.
+     */
+    public long getTicksDropped() {
+        return clock.getDropped();
+    }
+
+    /**
+     * Gets the number of times a state was not sent to a spectator because
+     * it was behind or waiting for a keyframe. Only exact when read from the
+     * thread running the room.
+     *
+     * @return The number of skipped frames.
+     */
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+}
@@ -2,6 +2,7 @@ package game;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 
 /**
@@ -13,6 +14,18 @@ import java.awt.Graphics;
  * @version 1.0
  */
 public class Scoreboard extends Polygon {
+    // The font is made once rather than on every frame
+    private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 12);
+
+    // Where the title and the labels of a two player match start. With more
+    // players the labels are packed outwards from the title, odd players to
+    // the left and even ones to the right, this far apart.
+    private static final int TITLE_X = 365, P1_X = 205, P2_X = 515;
+    private static final int LABEL_GAP = 8;
+
+    // The score labels are only rebuilt when a score changes
+    private int[] shownScores = new int[0];
+    private String[] texts = new String[0];
 
     /**
      * Constructs a Scoreboard object with the specified shape, position, and 
@@ -27,37 +40,55 @@ public class Scoreboard extends Polygon {
     }
 
     /**
-     * Paints the Scoreboard on the canvas using brush, displays player scores 
-     * and and has the title for the scoreboard.
+     * Paints the Scoreboard on the canvas using brush, displays the score of
+     * every player in the match and has the title for the scoreboard.
      *
-     * @param brush The graphics object used to paint the Scoreboard.
+     * @param brush  The graphics object used to paint the Scoreboard.
+     * @param view   The match whose scores are shown.
+     * @param colors The colors of the players, reused in turn if there are
+     * more players than colors.
      */
-    public void paint(Graphics brush) {
-        int[] xCords = new int[getPoints().length];
-        int[] yCords = new int[getPoints().length];
-
-        int i = 0, j = 0;
-        for (Point p : getPoints()) {
-            xCords[i++] = (int) p.getX();
-            yCords[j++] = (int) p.getY();
-        }
-
+    public void paint(Graphics brush, MatchView view, Color[] colors) {
         // Fill the scoreboard polygon with gray color
         brush.setColor(Color.GRAY);
-        brush.fillPolygon(xCords, yCords, getPoints().length);
+        brush.fillPolygon(getXCoords(), getYCoords(), getPointCount());
 
         // Display Scoreboard title
         brush.setColor(Color.WHITE);
-        brush.setFont(new Font("Arial", Font.BOLD, 12));
-        brush.drawString("| Scoreboard |", 365, 15);
+        brush.setFont(SCORE_FONT);
+        brush.drawString("| Scoreboard |", TITLE_X, 15);
 
-        // Display Player 1 score in red color
-        brush.setColor(Color.RED);
-        brush.drawString("| Player 1: " + Survivor.p1Score + " |", 205, 15);
-
-        // Display Player 2 score in blue color
-        brush.setColor(Color.BLUE);
-        brush.drawString("| Player 2: " + Survivor.p2Score + " |", 515, 15);
+        int playerCount = view.getPlayerCount();
+        if (texts.length < playerCount) {
+            texts = new String[playerCount];
+            shownScores = new int[playerCount];
+        }
+        FontMetrics metrics = brush.getFontMetrics();
+        int left = TITLE_X - LABEL_GAP;
+        int right = TITLE_X + metrics.stringWidth("| Scoreboard |") + LABEL_GAP;
+        for (int i = 0; i < playerCount; i++) {
+            if (!view.isPlayerActive(i)) {
+                continue;
+            }
+            // Rebuild the score label only if the score has changed
+            int score = view.getScore(i);
+            if (score != shownScores[i] || texts[i] == null) {
+                texts[i] = "| Player " + (i + 1) + ": " + score + " |";
+                shownScores[i] = score;
+            }
+            int x;
+            if (playerCount <= 2) {
+                x = i == 0 ? P1_X : P2_X;
+            } else if (i % 2 == 0) {
+                left -= metrics.stringWidth(texts[i]);
+                x = left;
+                left -= LABEL_GAP;
+            } else {
+                x = right;
+                right += metrics.stringWidth(texts[i]) + LABEL_GAP;
+            }
+            brush.setColor(colors[i % colors.length]);
+            brush.drawString(texts[i], x, 15);
+        }
     }
 }
- 
\ No newline at end of file
@@ -0,0 +1,194 @@
+package game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The SelfPlay class plays many headless Survivor matches between bots at
+ * once, to see how changes to the coins and the score limit play out
+ * without anyone sitting at the keyboard. The matches are split among all
+ * processor cores by a fork-join pool; every match has its own Simulation
+ * and bots and only adds its result to shared counters when it ends, so the
+ * matches never wait on each other.
+ *
+ * Bots are named in a comma separated list, one per seat, repeated if there
+ * are more seats than names. Each match moves every bot one seat along, so
+ * no bot keeps the advantage of a spawn point. At the end the win rate of
+ * each bot, the spread of match lengths and the number of matches and ticks
+ * played per second are printed. Match i always plays out the same for the
+ * same arguments, however the work is split.
+ *
+ * Usage: java game.SelfPlay [matches] [players] [bots] [score limit]
+ *        [max ticks] [seed]
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class SelfPlay {
+    // Matches a task plays itself instead of splitting further
+    private static final int BATCH = 4;
+
+    // Instance variables for the setup of every match
+    private final int playerCount;
+    private final String[] botNames;
+    private final int scoreLimit;
+    private final long maxTicks;
+    private final long seed;
+
+    // Instance variables for the results, added to by every match
+    private final AtomicLongArray wins;
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong ticks = new AtomicLong();
+    private final LatencyHistogram lengths = new LatencyHistogram();
+
+    /**
+     * Constructs a SelfPlay.
+     *
+     * @param inPlayerCount The number of players in every match.
+     * @param inBotNames    The bot of each seat in the first match.
+     * @param inScoreLimit  The score that wins a match.
+     * @param inMaxTicks    The ticks after which a match is given up as a
+     * draw.
+     * @param inSeed        The seed of the first match, each later match
+     * uses the next one.
+     */
+    public SelfPlay(int inPlayerCount, String[] inBotNames, int inScoreLimit,
+            long inMaxTicks, long inSeed) {
+        playerCount = inPlayerCount;
+        botNames = inBotNames;
+        scoreLimit = inScoreLimit;
+        maxTicks = inMaxTicks;
+        seed = inSeed;
+        wins = new AtomicLongArray(inBotNames.length);
+    }
+
+    /**
+     * Plays matches on the given pool and waits for them all.
+     *
+     * @param pool    The pool to play on.
+     * @param matches The number of matches.
+     */
+    public void play(ForkJoinPool pool, int matches) {
+        pool.invoke(new Batch(0, matches));
+    }
+
+    /**
+     * Plays one match to the end and adds its result.
+     *
+     * @param match The number of the match.
+     */
+    private void playMatch(int match) {
+        long matchSeed = seed + match;
+        Simulation simulation = new Simulation(
+                Simulation.createPlayers(playerCount), matchSeed,
+                Simulation.DEFAULT_TICK_NANOS);
+        simulation.setScoreLimit(scoreLimit);
+        Bot[] bots = new Bot[playerCount];
+        int[] kinds = new int[playerCount];
+        for (int seat = 0; seat < playerCount; seat++) {
+            kinds[seat] = (seat + match) % botNames.length;
+            bots[seat] = Bot.create(botNames[kinds[seat]], matchSeed * 31 + seat);
+        }
+
+        int[] inputs = new int[playerCount];
+        long played = 0;
+        while (!simulation.isGameOver() && played < maxTicks) {
+            for (int seat = 0; seat < playerCount; seat++) {
+                inputs[seat] = bots[seat].decide(simulation, seat);
+            }
+            simulation.tick(inputs);
+            played++;
+        }
+
+        ticks.addAndGet(played);
+        lengths.record(played);
+        int winner = simulation.getWinner();
+        if (winner >= 0) {
+            wins.incrementAndGet(kinds[winner]);
+        } else {
+            timeouts.incrementAndGet();
+        }
+    }
+
+    /**
+     * The Batch class is a range of matches, split in half until it is
+     * small enough to play.
+     */
+    private class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // Instance variables for the range, from inclusive, to exclusive
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a Batch.
+         *
+         * @param inFrom The first match.
+         * @param inTo   One past the last match.
+         */
+        Batch(int inFrom, int inTo) {
+            from = inFrom;
+            to = inTo;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH) {
+                for (int match = from; match < to; match++) {
+                    playMatch(match);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(from, middle), new Batch(middle, to));
+        }
+    }
+
+    /**
+     * The main method to play a batch of matches and print the results.
+     *
+     * @param args The optional match count, player count, bots, score limit,
+     * tick limit and seed.
+     */
+    public static void main(String[] args) {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int playerCount = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        String[] bots = (args.length > 2 ? args[2] : "greedy,random").split(",");
+        int scoreLimit = args.length > 3 ? Integer.parseInt(args[3])
+                : Simulation.SCORE_LIMIT;
+        long maxTicks = args.length > 4 ? Long.parseLong(args[4]) : 100_000L;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+        for (String bot : bots) {
+            Bot.create(bot, 0);
+        }
+
+        SelfPlay selfPlay = new SelfPlay(playerCount, bots, scoreLimit,
+                maxTicks, seed);
+        ForkJoinPool pool = new ForkJoinPool(
+                Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        selfPlay.play(pool, matches);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("%d matches of %d players to %d on %d threads%n",
+                matches, playerCount, scoreLimit, pool.getParallelism());
+        for (int b = 0; b < bots.length; b++) {
+            long won = selfPlay.wins.get(b);
+            System.out.printf("%-8s %6d wins  %5.1f%%%n", bots[b], won,
+                    100.0 * won / matches);
+        }
+        long timedOut = selfPlay.timeouts.get();
+        System.out.printf("%-8s %6d       %5.1f%%%n", "timeout", timedOut,
+                100.0 * timedOut / matches);
+        LatencyHistogram lengths = selfPlay.lengths;
+        System.out.printf("Ticks per match: p10 %d  p50 %d  p90 %d  max %d%n",
+                lengths.getPercentile(0.10), lengths.getPercentile(0.50),
+                lengths.getPercentile(0.90), lengths.getMax());
+        System.out.printf("%.3f s: %.1f matches/s, %.0f ticks/s%n", seconds,
+                matches / seconds, selfPlay.ticks.get() / seconds);
+    }
+}
@@ -0,0 +1,570 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The Simulation class runs the rules of the Survivor game without any window.
+ * Each call to tick advances the match by one fixed timestep: players move
+ * according to the inputs given for that tick, coins are picked up and
+ * respawned, scores are updated and the game over condition is applied.
+ * Because nothing here depends on AWT painting, a Simulation can be driven by
+ * the Survivor canvas, a server, a bot or a benchmark at any rate.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class Simulation implements MatchView {
+    // Static final constant defining the score limit for a win
+    public static final int SCORE_LIMIT = 25;
+
+    // Default length of one tick, matching the old 10 millisecond repaint loop
+    public static final long DEFAULT_TICK_NANOS = 10_000_000L;
+
+    // Size of the classic arena, which is also the window, and the smallest
+    // world a match can be played in
+    public static final int WIDTH = 800;
+    public static final int HEIGHT = 600;
+
+    // Constants defining relative points for coins and players
+    static final Point[] COIN_POINTS = {new Point(0, -5), new Point(5, 0),
+            new Point(0, 5), new Point(-5, 0)};
+    static final Point[] PLAYER_POINTS = {new Point(0, -20), new Point(5, -5),
+            new Point(20, 0), new Point(5, 5), new Point(0, 20), new Point(-5, 5),
+            new Point(-30, 0), new Point(-5, -5)};
+
+    // Instance variables for the state of the match
+    private final Player[] players;
+    private final boolean[] active;
+    private final int[] scores;
+    private final ScoreUpdater[] scoreUpdaters;
+    private final int worldWidth, worldHeight;
+    private final CoinRegistry registry;
+    private final CoinStore coins;
+    private int[] touched;
+    private int nextCoinId = 1;
+    private final long seed;
+    private final DeterministicRandom random;
+    private final long tickNanos;
+    private long tickCount;
+    private int scoreLimit = SCORE_LIMIT;
+    private PickupListener pickupListener;
+
+    /**
+     * Constructs a two player Simulation with the given random seed and the
+     * default tick length.
+     *
+     * @param seed The seed for coin spawns.
+     */
+    public Simulation(long seed) {
+        this(createPlayers(2), seed, DEFAULT_TICK_NANOS);
+    }
+
+    /**
+     * Constructs a Simulation for the given players. The players are moved by
+     * the simulation but still belong to the caller, so they can also be
+     * listening to a keyboard.
+     *
+     * @param inPlayers   The players taking part in the match.
+     * @param inSeed      The seed for coin spawns.
+     * @param inTickNanos The length of one tick in nanoseconds.
+     */
+    public Simulation(Player[] inPlayers, long inSeed, long inTickNanos) {
+        this(inPlayers, inSeed, inTickNanos, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Constructs a Simulation for the given players in a world of the given
+     * size. Players are kept inside it and coins spawn all over it.
+     *
+     * @param inPlayers   The players taking part in the match.
+     * @param inSeed      The seed for coin spawns.
+     * @param inTickNanos The length of one tick in nanoseconds.
+     * @param inWidth     The width of the world, at least WIDTH.
+     * @param inHeight    The height of the world, at least HEIGHT.
+     */
+    public Simulation(Player[] inPlayers, long inSeed, long inTickNanos,
+            int inWidth, int inHeight) {
+        this(inPlayers, inSeed, inTickNanos, inWidth, inHeight,
+                CoinRegistry.getDefault());
+    }
+
+    /**
+     * Constructs a Simulation for the given players in a world of the given
+     * size with the given kinds of coin.
+     *
+     * @param inPlayers   The players taking part in the match.
+     * @param inSeed      The seed for coin spawns.
+     * @param inTickNanos The length of one tick in nanoseconds.
+     * @param inWidth     The width of the world, at least WIDTH.
+     * @param inHeight    The height of the world, at least HEIGHT.
+     * @param inRegistry  The coin types of the match.
+     */
+    public Simulation(Player[] inPlayers, long inSeed, long inTickNanos,
+            int inWidth, int inHeight, CoinRegistry inRegistry) {
+        if (inPlayers.length == 0) {
+            throw new IllegalArgumentException("A match needs at least one player");
+        }
+        if (inTickNanos <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive");
+        }
+        if (inWidth < WIDTH || inHeight < HEIGHT) {
+            throw new IllegalArgumentException("The world must be at least "
+                    + WIDTH + " by " + HEIGHT);
+        }
+        players = inPlayers;
+        worldWidth = inWidth;
+        worldHeight = inHeight;
+        for (Player player : players) {
+            player.setWorldSize(worldWidth, worldHeight);
+        }
+        scores = new int[players.length];
+        active = new boolean[players.length];
+        Arrays.fill(active, true);
+        tickNanos = inTickNanos;
+        seed = inSeed;
+        random = new DeterministicRandom(seed);
+        registry = inRegistry;
+        coins = new CoinStore(registry);
+        touched = new int[16];
+
+        // One ScoreUpdater per player, created once instead of every frame
+        scoreUpdaters = new ScoreUpdater[players.length];
+        for (int i = 0; i < players.length; i++) {
+            final int index = i;
+            scoreUpdaters[i] = (coinVal) -> {
+                scores[index] += coinVal;
+            };
+        }
+
+        // Initialize the starting coins of each type randomly across the map
+        for (int t = 0; t < registry.size(); t++) {
+            for (int i = 0; i < registry.get(t).getInitial(); i++) {
+                addCoin((byte) t, random.nextInt(worldWidth + 1),
+                        random.nextInt(worldHeight + 1));
+            }
+        }
+    }
+
+    /**
+     * Creates plain players at their starting positions, for matches where no
+     * keyboard is involved.
+     *
+     * @param count The number of players to create.
+     * @return The new players.
+     */
+    public static Player[] createPlayers(int count) {
+        Player[] created = new Player[count];
+        for (int i = 0; i < count; i++) {
+            created[i] = new Player(PLAYER_POINTS, spawnPoint(i), 0);
+        }
+        return created;
+    }
+
+    /**
+     * Gets the starting position of a player. The first two players start at
+     * the classic positions, further players fill a three by three grid.
+     *
+     * @param index The index of the player.
+     * @return The starting position of the player.
+     */
+    public static Point spawnPoint(int index) {
+        int column = index % 3;
+        int row = (index / 3 + 1) % 3;
+        return new Point(250 + 200 * column, 100 + 150 * row);
+    }
+
+    /**
+     * Advances the match by one tick.
+     *
+     * @param inputs The input bit flags of each player for this tick, indexed
+     * like the players. Missing entries count as no keys held.
+     */
+    public void tick(int[] inputs) {
+        // Move every player according to its input
+        long start = Profiler.start();
+        for (int i = 0; i < players.length; i++) {
+            if (active[i]) {
+                players[i].move(inputs != null && i < inputs.length ? inputs[i] : 0);
+            }
+        }
+        Profiler.stop(Profiler.MOVE, start);
+
+        // Each player only tests the coins filed near it in the grid, in
+        // player order, and picks up every coin it touches
+        start = Profiler.start();
+        for (int i = 0; i < players.length; i++) {
+            if (active[i]) {
+                pickUpTouched(i);
+            }
+        }
+        Profiler.stop(Profiler.COLLIDE, start);
+
+        // Once the game is over the map is cleared
+        if (isGameOver() && coins.size() > 0) {
+            coins.clear();
+        }
+
+        tickCount++;
+    }
+
+    /**
+     * Picks up every coin a player touches. The touched coins are collected
+     * first and picked up from the highest index down, so removing one (which
+     * moves the last coin into its slot) never moves another touched coin.
+     *
+     * @param playerIndex The index of the player.
+     */
+    private void pickUpTouched(int playerIndex) {
+        Player player = players[playerIndex];
+        int found = coins.query(player.getMinX(), player.getMinY(),
+                player.getMaxX(), player.getMaxY());
+        int hits = 0;
+        for (int f = 0; f < found; f++) {
+            int index = coins.getFound(f);
+            if (coins.touches(index, player)) {
+                if (hits == touched.length) {
+                    touched = Arrays.copyOf(touched, hits * 2);
+                }
+                touched[hits++] = index;
+            }
+        }
+        if (hits > 1) {
+            Arrays.sort(touched, 0, hits);
+        }
+        for (int h = hits - 1; h >= 0; h--) {
+            pickUp(playerIndex, touched[h]);
+        }
+    }
+
+    /**
+     * Applies a pickup: the coin is removed, its value is added to the score
+     * of the player, its effect is applied and a replacement coin is spawned.
+     * The effect and the replacement are looked up by type code in the
+     * registry, so this costs the same however many types there are.
+     *
+     * @param playerIndex The index of the player that picked up the coin.
+     * @param coin        The index of the coin that was picked up.
+     */
+    private void pickUp(int playerIndex, int coin) {
+        Player player = players[playerIndex];
+        byte type = coins.getType(coin);
+        scoreUpdaters[playerIndex].updateScore(coins.getValue(coin));
+        if (pickupListener != null) {
+            pickupListener.pickedUp(tickCount, playerIndex, type,
+                    coins.getValue(coin));
+        }
+        coins.remove(coin);
+
+        player.stepSize = registry.stepAfter(type, player.stepSize);
+        addRandomCoin(registry.respawnOf(type, random));
+    }
+
+    /**
+     * Scatters extra coins of the first type across the whole world, for
+     * arenas that start with more than the usual handful of coins.
+     *
+     * @param count The number of coins to add.
+     */
+    public void spawnCoins(int count) {
+        coins.reserve(coins.size() + count);
+        for (int i = 0; i < count; i++) {
+            addCoin((byte) 0, random.nextInt(worldWidth + 1),
+                    random.nextInt(worldHeight + 1));
+        }
+    }
+
+    /**
+     * Puts a coin with a new id on the map.
+     *
+     * @param type The type code of the coin.
+     * @param x    The x position of the coin.
+     * @param y    The y position of the coin.
+     */
+    private void addCoin(byte type, double x, double y) {
+        coins.add(nextCoinId++, type, x, y);
+    }
+
+    /**
+     * Puts a respawned coin at a random position, away from the edges.
+     *
+     * @param type The type code of the coin.
+     */
+    private void addRandomCoin(byte type) {
+        long start = Profiler.start();
+        int x = random.nextInt(worldWidth - 70) + 35;
+        int y = random.nextInt(worldHeight - 85) + 35;
+        addCoin(type, x, y);
+        Profiler.stop(Profiler.RESPAWN, start);
+    }
+
+    /**
+     * Gets the number of bytes save writes for the current state.
+     *
+     * @return The size in bytes.
+     */
+    public int stateSize() {
+        return 8 + 4 + 8 + 4 + 4 + players.length * (1 + 8 + 8 + 8 + 4 + 4)
+                + coins.stateSize();
+    }
+
+    /**
+     * Writes the complete state of the match: tick count, random generator,
+     * players, scores and coins. Restoring it into a Simulation with the same
+     * number of players continues the match exactly as this one would.
+     *
+     * @param out The buffer to write to, with at least stateSize() bytes left.
+     */
+    public void save(ByteBuffer out) {
+        out.putLong(tickCount);
+        out.putInt(scoreLimit);
+        out.putLong(random.getState());
+        out.putInt(nextCoinId);
+        out.putInt(players.length);
+        for (int i = 0; i < players.length; i++) {
+            Player player = players[i];
+            out.put((byte) (active[i] ? 1 : 0));
+            out.putDouble(player.position.x);
+            out.putDouble(player.position.y);
+            out.putDouble(player.rotation);
+            out.putInt(player.stepSize);
+            out.putInt(scores[i]);
+        }
+        coins.save(out);
+    }
+
+    /**
+     * Replaces the state of the match with one written by save.
+     *
+     * @param in The buffer to read from.
+     */
+    public void restore(ByteBuffer in) {
+        tickCount = in.getLong();
+        scoreLimit = in.getInt();
+        random.setState(in.getLong());
+        nextCoinId = in.getInt();
+        if (in.getInt() != players.length) {
+            throw new IllegalArgumentException("Saved match has a different number of players");
+        }
+        for (int i = 0; i < players.length; i++) {
+            Player player = players[i];
+            active[i] = in.get() != 0;
+            player.position.x = in.getDouble();
+            player.position.y = in.getDouble();
+            player.rotation = in.getDouble();
+            player.stepSize = in.getInt();
+            scores[i] = in.getInt();
+        }
+        coins.restore(in);
+    }
+
+    /**
+     * Gets a checksum of the complete state of the match, as written by
+     * save. The simulation is bit-for-bit deterministic, so two runs from the
+     * same seed and inputs have the same checksum on any machine, and any
+     * difference means they went apart.
+     *
+     * @return The CRC-32 of the saved state.
+     */
+    public long checksum() {
+        ByteBuffer state = ByteBuffer.allocate(stateSize());
+        save(state);
+        state.flip();
+        CRC32 crc = new CRC32();
+        crc.update(state);
+        return crc.getValue();
+    }
+
+    @Override
+    public boolean isGameOver() {
+        for (int score : scores) {
+            if (score >= scoreLimit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getWinner() {
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] >= scoreLimit) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the score a player needs to win, SCORE_LIMIT unless changed.
+     * Integer.MAX_VALUE gives a match that never ends.
+     *
+     * @param limit The new score limit.
+     */
+    public void setScoreLimit(int limit) {
+        scoreLimit = limit;
+    }
+
+    /**
+     * Sets who is told about every pickup, for instance a MatchStore. It is
+     * not part of the saved state.
+     *
+     * @param listener The listener, or null for none.
+     */
+    public void setPickupListener(PickupListener listener) {
+        pickupListener = listener;
+    }
+
+    @Override
+    public int getScoreLimit() {
+        return scoreLimit;
+    }
+
+    /**
+     * Takes a player in or out of the match. Inactive players neither move
+     * nor pick up coins and are not painted, for seats nobody is using.
+     *
+     * @param index    The index of the player.
+     * @param isActive True to take part in the match, false to sit out.
+     */
+    public void setPlayerActive(int index, boolean isActive) {
+        active[index] = isActive;
+    }
+
+    /**
+     * Puts a player back the way it started the match: at its spawn point,
+     * facing east, at the starting speed and with no points. Used when
+     * someone new takes over a seat in a match that is already running.
+     *
+     * @param index The index of the player.
+     */
+    public void resetPlayer(int index) {
+        Player player = players[index];
+        player.position = spawnPoint(index);
+        player.rotation = 0;
+        player.stepSize = Player.START_STEP_SIZE;
+        scores[index] = 0;
+    }
+
+    @Override
+    public boolean isPlayerActive(int index) {
+        return active[index];
+    }
+
+    @Override
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    @Override
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    @Override
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    @Override
+    public Player getPlayer(int index) {
+        return players[index];
+    }
+
+    @Override
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    @Override
+    public int getCoinCount() {
+        return coins.size();
+    }
+
+    @Override
+    public Coin getCoin(int index) {
+        return coins.getCoin(index);
+    }
+
+    @Override
+    public int getCoinId(int index) {
+        return coins.getId(index);
+    }
+
+    @Override
+    public byte getCoinType(int index) {
+        return coins.getType(index);
+    }
+
+    @Override
+    public int getCoinValue(int index) {
+        return coins.getValue(index);
+    }
+
+    @Override
+    public double getCoinX(int index) {
+        return coins.getX(index);
+    }
+
+    @Override
+    public double getCoinY(int index) {
+        return coins.getY(index);
+    }
+
+    @Override
+    public int findCoins(double minX, double minY, double maxX, double maxY) {
+        return coins.query(minX, minY, maxX, maxY);
+    }
+
+    @Override
+    public int getFoundCoin(int n) {
+        return coins.getFound(n);
+    }
+
+    @Override
+    public int orderCoinsById() {
+        return coins.orderById();
+    }
+
+    @Override
+    public int getOrderedCoin(int n) {
+        return coins.getOrdered(n);
+    }
+
+    /**
+     * Gets the seed the match was started with.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the length of one tick.
+     *
+     * @return The tick length in nanoseconds.
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Gets the number of ticks simulated so far.
+     *
+     * @return The tick count.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Gets the store the coins live in, to read its pool statistics.
+     *
+     * @return The coin store.
+     */
+    public CoinStore getCoinStore() {
+        return coins;
+    }
+}
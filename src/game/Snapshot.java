@@ -0,0 +1,183 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * The Snapshot class is a quantized copy of a match at one tick, the unit
+ * that is replicated from a GameServer to its clients. Positions are kept in
+ * eighths of a pixel and rotations in sixteenths of a degree, both as ints,
+ * so two snapshots can be compared exactly and sent as small deltas. Coins
+ * are kept sorted by id.
+ *
+ * All arrays are reused when a snapshot is captured again, so a snapshot
+ * only allocates when the match grows past the largest size it has seen.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class Snapshot {
+    // Quantization steps: units per pixel and per degree
+    public static final int POSITION_SCALE = 8;
+    public static final int ROTATION_SCALE = 16;
+
+    // The tick this snapshot belongs to, 0 for an empty snapshot
+    long tick;
+    int scoreLimit = Simulation.SCORE_LIMIT;
+
+    // Per player state, indexed by seat
+    int playerCount;
+    boolean[] active = new boolean[0];
+    int[] x = new int[0], y = new int[0], rotation = new int[0];
+    int[] stepSize = new int[0], score = new int[0];
+
+    // Per coin state, sorted by id
+    int coinCount;
+    int[] coinId = new int[0];
+    byte[] coinType = new byte[0];
+    int[] coinX = new int[0], coinY = new int[0];
+
+    /**
+     * Captures the current state of a match.
+     *
+     * @param inTick The tick the state belongs to.
+     * @param match  The match to copy.
+     */
+    public void capture(long inTick, MatchView match) {
+        tick = inTick;
+        scoreLimit = match.getScoreLimit();
+
+        setPlayerCount(match.getPlayerCount());
+        for (int i = 0; i < playerCount; i++) {
+            Player player = match.getPlayer(i);
+            active[i] = match.isPlayerActive(i);
+            x[i] = quantizePosition(player.position.x);
+            y[i] = quantizePosition(player.position.y);
+            rotation[i] = quantizeRotation(player.rotation);
+            stepSize[i] = player.stepSize;
+            score[i] = match.getScore(i);
+        }
+
+        setCoinCount(match.orderCoinsById());
+        for (int i = 0; i < coinCount; i++) {
+            captureCoin(i, match.getOrderedCoin(i), match);
+        }
+    }
+
+    /**
+     * Copies one coin of a match into a slot of this snapshot.
+     *
+     * @param slot  The slot to fill.
+     * @param index The index of the coin in the match.
+     * @param match The match.
+     */
+    private void captureCoin(int slot, int index, MatchView match) {
+        coinId[slot] = match.getCoinId(index);
+        coinType[slot] = match.getCoinType(index);
+        coinX[slot] = quantizePosition(match.getCoinX(index));
+        coinY[slot] = quantizePosition(match.getCoinY(index));
+    }
+
+    /**
+     * Makes this snapshot an exact copy of another.
+     *
+     * @param other The snapshot to copy.
+     */
+    public void copyFrom(Snapshot other) {
+        tick = other.tick;
+        scoreLimit = other.scoreLimit;
+        setPlayerCount(other.playerCount);
+        System.arraycopy(other.active, 0, active, 0, playerCount);
+        System.arraycopy(other.x, 0, x, 0, playerCount);
+        System.arraycopy(other.y, 0, y, 0, playerCount);
+        System.arraycopy(other.rotation, 0, rotation, 0, playerCount);
+        System.arraycopy(other.stepSize, 0, stepSize, 0, playerCount);
+        System.arraycopy(other.score, 0, score, 0, playerCount);
+        setCoinCount(other.coinCount);
+        System.arraycopy(other.coinId, 0, coinId, 0, coinCount);
+        System.arraycopy(other.coinType, 0, coinType, 0, coinCount);
+        System.arraycopy(other.coinX, 0, coinX, 0, coinCount);
+        System.arraycopy(other.coinY, 0, coinY, 0, coinCount);
+    }
+
+    /**
+     * Empties the snapshot, it then stands for "nothing known yet".
+     */
+    public void clear() {
+        tick = 0;
+        playerCount = 0;
+        coinCount = 0;
+    }
+
+    /**
+     * Sets the number of players, growing the player arrays if needed.
+     *
+     * @param count The number of players.
+     */
+    void setPlayerCount(int count) {
+        if (active.length < count) {
+            active = Arrays.copyOf(active, count);
+            x = Arrays.copyOf(x, count);
+            y = Arrays.copyOf(y, count);
+            rotation = Arrays.copyOf(rotation, count);
+            stepSize = Arrays.copyOf(stepSize, count);
+            score = Arrays.copyOf(score, count);
+        }
+        playerCount = count;
+    }
+
+    /**
+     * Sets the number of coins, growing the coin arrays if needed. Existing
+     * entries are kept.
+     *
+     * @param count The number of coins.
+     */
+    void setCoinCount(int count) {
+        if (coinId.length < count) {
+            int size = Math.max(count, coinId.length * 2);
+            coinId = Arrays.copyOf(coinId, size);
+            coinType = Arrays.copyOf(coinType, size);
+            coinX = Arrays.copyOf(coinX, size);
+            coinY = Arrays.copyOf(coinY, size);
+        }
+        coinCount = count;
+    }
+
+    /**
+     * Gets the tick this snapshot belongs to.
+     *
+     * @return The tick, or 0 for an empty snapshot.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the number of coins in the snapshot.
+     *
+     * @return The number of coins.
+     */
+    public int getCoinCount() {
+        return coinCount;
+    }
+
+    /**
+     * Converts a coordinate to eighths of a pixel.
+     *
+     * @param value The coordinate in pixels.
+     * @return The quantized coordinate.
+     */
+    public static int quantizePosition(double value) {
+        return (int) Math.round(value * POSITION_SCALE);
+    }
+
+    /**
+     * Converts an angle to sixteenths of a degree within one turn.
+     *
+     * @param degrees The angle in degrees, any range.
+     * @return The quantized angle, from 0 to 360 * ROTATION_SCALE - 1.
+     */
+    public static int quantizeRotation(double degrees) {
+        int turn = 360 * ROTATION_SCALE;
+        return Math.floorMod((int) Math.round(degrees * ROTATION_SCALE), turn);
+    }
+}
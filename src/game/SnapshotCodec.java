@@ -0,0 +1,443 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The SnapshotCodec class writes a Snapshot as a compact delta against an
+ * older snapshot the receiver already has (its baseline), and reads it back.
+ * With no baseline the same format carries the full state, measured against
+ * an empty match.
+ *
+ * Numbers are written as variable length integers (7 bits per byte), signed
+ * differences in zigzag form so small changes either way take one byte.
+ * Only players whose fields changed are sent, and for those only the changed
+ * fields. Coins are sent as three lists ordered by id: removed ids, added
+ * coins and coins whose type or position changed. A tick where nobody moves
+ * and no coin is picked up encodes to a handful of bytes.
+ *
+ * Layout: tick, baseline tick (0 for none), score limit, player count,
+ * changed player count, then per changed player its index, a field mask and
+ * the masked fields; then the removed, added and changed coin lists, each a
+ * count followed by entries whose ids are sent as gaps from the previous id.
+ *
+ * Encoding never allocates. Decoding reuses scratch arrays held by the
+ * codec, so a codec must not be shared between threads.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class SnapshotCodec {
+    // Field mask bits for a changed player
+    private static final int ACTIVE = 1;
+    private static final int X = 2;
+    private static final int Y = 4;
+    private static final int ROTATION = 8;
+    private static final int STEP = 16;
+    private static final int SCORE = 32;
+
+    // Quantized length of a full turn
+    private static final int TURN = 360 * Snapshot.ROTATION_SCALE;
+
+    // Scratch lists used while decoding, grown as needed
+    private int[] removedIds = new int[16];
+    private int[] addedIds = new int[16];
+    private byte[] addedTypes = new byte[16];
+    private int[] addedX = new int[16], addedY = new int[16];
+    private int[] changedIds = new int[16];
+    private byte[] changedTypes = new byte[16];
+    private int[] changedX = new int[16], changedY = new int[16];
+
+    /**
+     * Writes a snapshot as a delta against a baseline.
+     *
+     * @param out      The buffer to write to.
+     * @param current  The snapshot to send.
+     * @param baseline The snapshot the receiver has, or null to send it all.
+     */
+    public static void encode(ByteBuffer out, Snapshot current,
+            Snapshot baseline) {
+        putVarLong(out, current.tick);
+        putVarLong(out, baseline == null ? 0 : baseline.tick);
+        putVarInt(out, current.scoreLimit);
+        putVarInt(out, current.playerCount);
+
+        int basePlayers = baseline == null ? 0 : baseline.playerCount;
+        int changed = 0;
+        for (int i = 0; i < current.playerCount; i++) {
+            if (playerMask(current, i, baseline, basePlayers) != 0) {
+                changed++;
+            }
+        }
+        putVarInt(out, changed);
+        for (int i = 0; i < current.playerCount; i++) {
+            int mask = playerMask(current, i, baseline, basePlayers);
+            if (mask == 0) {
+                continue;
+            }
+            boolean known = i < basePlayers;
+            putVarInt(out, i);
+            out.put((byte) mask);
+            if ((mask & ACTIVE) != 0) {
+                out.put((byte) (current.active[i] ? 1 : 0));
+            }
+            if ((mask & X) != 0) {
+                putSigned(out, current.x[i] - (known ? baseline.x[i] : 0));
+            }
+            if ((mask & Y) != 0) {
+                putSigned(out, current.y[i] - (known ? baseline.y[i] : 0));
+            }
+            if ((mask & ROTATION) != 0) {
+                int turn = current.rotation[i] - (known ? baseline.rotation[i] : 0);
+                putSigned(out, wrapTurn(turn));
+            }
+            if ((mask & STEP) != 0) {
+                putVarInt(out, current.stepSize[i]);
+            }
+            if ((mask & SCORE) != 0) {
+                putSigned(out, current.score[i] - (known ? baseline.score[i] : 0));
+            }
+        }
+
+        int baseCoins = baseline == null ? 0 : baseline.coinCount;
+        encodeRemoved(out, current, baseline, baseCoins);
+        encodeAdded(out, current, baseline, baseCoins);
+        encodeChanged(out, current, baseline, baseCoins);
+    }
+
+    /**
+     * Works out which fields of a player differ from the baseline.
+     *
+     * @return The field mask, 0 if nothing changed.
+     */
+    private static int playerMask(Snapshot current, int i, Snapshot baseline,
+            int basePlayers) {
+        boolean known = i < basePlayers;
+        int mask = 0;
+        if (current.active[i] != (known && baseline.active[i])) {
+            mask |= ACTIVE;
+        }
+        if (current.x[i] != (known ? baseline.x[i] : 0)) {
+            mask |= X;
+        }
+        if (current.y[i] != (known ? baseline.y[i] : 0)) {
+            mask |= Y;
+        }
+        if (current.rotation[i] != (known ? baseline.rotation[i] : 0)) {
+            mask |= ROTATION;
+        }
+        if (current.stepSize[i] != (known ? baseline.stepSize[i] : 0)) {
+            mask |= STEP;
+        }
+        if (current.score[i] != (known ? baseline.score[i] : 0)) {
+            mask |= SCORE;
+        }
+        return mask;
+    }
+
+    /*
+    The three coin lists are each found by walking the id-sorted coins of the
+    baseline and the current snapshot side by side. Each list is walked twice,
+    once to count it and once to write it, so nothing has to be buffered.
+    */
+
+    private static void encodeRemoved(ByteBuffer out, Snapshot current,
+            Snapshot baseline, int baseCoins) {
+        for (int pass = 0; pass < 2; pass++) {
+            int count = 0, previous = 0;
+            for (int b = 0, c = 0; b < baseCoins; b++) {
+                int id = baseline.coinId[b];
+                while (c < current.coinCount && current.coinId[c] < id) {
+                    c++;
+                }
+                if (c < current.coinCount && current.coinId[c] == id) {
+                    continue;
+                }
+                if (pass == 0) {
+                    count++;
+                } else {
+                    putVarInt(out, id - previous);
+                    previous = id;
+                }
+            }
+            if (pass == 0) {
+                putVarInt(out, count);
+            }
+        }
+    }
+
+    private static void encodeAdded(ByteBuffer out, Snapshot current,
+            Snapshot baseline, int baseCoins) {
+        for (int pass = 0; pass < 2; pass++) {
+            int count = 0, previous = 0;
+            for (int c = 0, b = 0; c < current.coinCount; c++) {
+                int id = current.coinId[c];
+                while (b < baseCoins && baseline.coinId[b] < id) {
+                    b++;
+                }
+                if (b < baseCoins && baseline.coinId[b] == id) {
+                    continue;
+                }
+                if (pass == 0) {
+                    count++;
+                } else {
+                    putVarInt(out, id - previous);
+                    previous = id;
+                    out.put(current.coinType[c]);
+                    putSigned(out, current.coinX[c]);
+                    putSigned(out, current.coinY[c]);
+                }
+            }
+            if (pass == 0) {
+                putVarInt(out, count);
+            }
+        }
+    }
+
+    private static void encodeChanged(ByteBuffer out, Snapshot current,
+            Snapshot baseline, int baseCoins) {
+        for (int pass = 0; pass < 2; pass++) {
+            int count = 0, previous = 0;
+            for (int c = 0, b = 0; c < current.coinCount; c++) {
+                int id = current.coinId[c];
+                while (b < baseCoins && baseline.coinId[b] < id) {
+                    b++;
+                }
+                if (b >= baseCoins || baseline.coinId[b] != id
+                        || (baseline.coinType[b] == current.coinType[c]
+                            && baseline.coinX[b] == current.coinX[c]
+                            && baseline.coinY[b] == current.coinY[c])) {
+                    continue;
+                }
+                if (pass == 0) {
+                    count++;
+                } else {
+                    putVarInt(out, id - previous);
+                    previous = id;
+                    out.put(current.coinType[c]);
+                    putSigned(out, current.coinX[c] - baseline.coinX[b]);
+                    putSigned(out, current.coinY[c] - baseline.coinY[b]);
+                }
+            }
+            if (pass == 0) {
+                putVarInt(out, count);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot written by encode. The baseline it was encoded against
+     * is looked up in the history.
+     *
+     * @param in      The buffer to read from, positioned at the snapshot.
+     * @param history The snapshots the receiver still has.
+     * @param out     The snapshot to fill, must not be in use as a baseline.
+     * @return True if the snapshot was read, false if its baseline is no
+     * longer in the history. The buffer position is then undefined.
+     */
+    public boolean decode(ByteBuffer in, SnapshotHistory history, Snapshot out) {
+        long tick = getVarLong(in);
+        long baseTick = getVarLong(in);
+        Snapshot baseline = baseTick == 0 ? null : history.get(baseTick);
+        if (baseTick != 0 && (baseline == null || baseline == out)) {
+            return false;
+        }
+
+        // Players start as a copy of the baseline, then get their changes
+        out.tick = tick;
+        out.scoreLimit = getVarInt(in);
+        int playerCount = getVarInt(in);
+        int basePlayers = baseline == null ? 0 : baseline.playerCount;
+        out.setPlayerCount(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            boolean known = i < basePlayers;
+            out.active[i] = known && baseline.active[i];
+            out.x[i] = known ? baseline.x[i] : 0;
+            out.y[i] = known ? baseline.y[i] : 0;
+            out.rotation[i] = known ? baseline.rotation[i] : 0;
+            out.stepSize[i] = known ? baseline.stepSize[i] : 0;
+            out.score[i] = known ? baseline.score[i] : 0;
+        }
+        int changed = getVarInt(in);
+        for (int k = 0; k < changed; k++) {
+            int i = getVarInt(in);
+            int mask = in.get();
+            if ((mask & ACTIVE) != 0) {
+                out.active[i] = in.get() != 0;
+            }
+            if ((mask & X) != 0) {
+                out.x[i] += getSigned(in);
+            }
+            if ((mask & Y) != 0) {
+                out.y[i] += getSigned(in);
+            }
+            if ((mask & ROTATION) != 0) {
+                out.rotation[i] = Math.floorMod(out.rotation[i] + getSigned(in), TURN);
+            }
+            if ((mask & STEP) != 0) {
+                out.stepSize[i] = getVarInt(in);
+            }
+            if ((mask & SCORE) != 0) {
+                out.score[i] += getSigned(in);
+            }
+        }
+
+        // Coin lists are read in full, then merged with the baseline coins
+        int removed = getVarInt(in);
+        ensureScratch(removed);
+        for (int k = 0, id = 0; k < removed; k++) {
+            id += getVarInt(in);
+            removedIds[k] = id;
+        }
+        int added = getVarInt(in);
+        ensureScratch(added);
+        for (int k = 0, id = 0; k < added; k++) {
+            id += getVarInt(in);
+            addedIds[k] = id;
+            addedTypes[k] = in.get();
+            addedX[k] = getSigned(in);
+            addedY[k] = getSigned(in);
+        }
+        int moved = getVarInt(in);
+        ensureScratch(moved);
+        for (int k = 0, id = 0; k < moved; k++) {
+            id += getVarInt(in);
+            changedIds[k] = id;
+            changedTypes[k] = in.get();
+            changedX[k] = getSigned(in);
+            changedY[k] = getSigned(in);
+        }
+
+        int baseCoins = baseline == null ? 0 : baseline.coinCount;
+        out.setCoinCount(baseCoins - removed + added);
+        int count = 0;
+        int b = 0, a = 0, r = 0, m = 0;
+        while (b < baseCoins || a < added) {
+            boolean fromBase = a >= added
+                    || (b < baseCoins && baseline.coinId[b] < addedIds[a]);
+            if (fromBase) {
+                int id = baseline.coinId[b];
+                while (r < removed && removedIds[r] < id) {
+                    r++;
+                }
+                if (r < removed && removedIds[r] == id) {
+                    b++;
+                    continue;
+                }
+                out.coinId[count] = id;
+                out.coinType[count] = baseline.coinType[b];
+                out.coinX[count] = baseline.coinX[b];
+                out.coinY[count] = baseline.coinY[b];
+                while (m < moved && changedIds[m] < id) {
+                    m++;
+                }
+                if (m < moved && changedIds[m] == id) {
+                    out.coinType[count] = changedTypes[m];
+                    out.coinX[count] += changedX[m];
+                    out.coinY[count] += changedY[m];
+                }
+                b++;
+            } else {
+                out.coinId[count] = addedIds[a];
+                out.coinType[count] = addedTypes[a];
+                out.coinX[count] = addedX[a];
+                out.coinY[count] = addedY[a];
+                a++;
+            }
+            count++;
+        }
+        out.coinCount = count;
+        return true;
+    }
+
+    /**
+     * Grows the scratch lists to hold at least the given number of entries.
+     *
+     * @param size The number of entries needed.
+     */
+    private void ensureScratch(int size) {
+        if (removedIds.length >= size) {
+            return;
+        }
+        int length = Math.max(size, removedIds.length * 2);
+        removedIds = new int[length];
+        addedIds = new int[length];
+        addedTypes = new byte[length];
+        addedX = new int[length];
+        addedY = new int[length];
+        changedIds = new int[length];
+        changedTypes = new byte[length];
+        changedX = new int[length];
+        changedY = new int[length];
+    }
+
+    /**
+     * Gets the upper bound on the bytes encode can write for a snapshot.
+     *
+     * @param current The snapshot to send.
+     * @param baseline The snapshot the receiver has, or null.
+     * @return The most bytes the snapshot can take.
+     */
+    public static int maxSize(Snapshot current, Snapshot baseline) {
+        int baseCoins = baseline == null ? 0 : baseline.coinCount;
+        return 40 + 30 * current.playerCount
+                + 16 * (current.coinCount + baseCoins);
+    }
+
+    // Keeps a rotation difference within half a turn either way, so a turn
+    // past 360 degrees is sent as a small step.
+    static int wrapTurn(int difference) {
+        int wrapped = Math.floorMod(difference, TURN);
+        return wrapped >= TURN / 2 ? wrapped - TURN : wrapped;
+    }
+
+    /*
+    Variable length integer helpers.
+    */
+
+    static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putSigned(ByteBuffer out, int value) {
+        putVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static int getSigned(ByteBuffer in) {
+        int raw = getVarInt(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
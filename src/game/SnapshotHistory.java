@@ -0,0 +1,52 @@
+package game;
+
+/**
+ * The SnapshotHistory class keeps the most recent snapshots in a ring, so a
+ * delta can be encoded or decoded against any snapshot from the last few
+ * ticks. Slots are reused, the history never allocates once it is built.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class SnapshotHistory {
+    // Instance variables for the ring of snapshots
+    private final Snapshot[] ring;
+
+    /**
+     * Constructs an empty SnapshotHistory.
+     *
+     * @param size The number of snapshots kept.
+     */
+    public SnapshotHistory(int size) {
+        ring = new Snapshot[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Snapshot();
+        }
+    }
+
+    /**
+     * Gets the slot for a new snapshot, throwing out whatever was there.
+     *
+     * @param tick The tick the new snapshot will belong to.
+     * @return The slot, to be filled by the caller.
+     */
+    public Snapshot slot(long tick) {
+        Snapshot snapshot = ring[(int) Math.floorMod(tick, (long) ring.length)];
+        snapshot.clear();
+        return snapshot;
+    }
+
+    /**
+     * Finds the snapshot of a tick if it is still in the history.
+     *
+     * @param tick The tick to look for.
+     * @return The snapshot, or null if it is too old or was never stored.
+     */
+    public Snapshot get(long tick) {
+        if (tick <= 0) {
+            return null;
+        }
+        Snapshot snapshot = ring[(int) Math.floorMod(tick, (long) ring.length)];
+        return snapshot.tick == tick ? snapshot : null;
+    }
+}
@@ -0,0 +1,352 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/**
+ * The SpriteCache class draws polygons from images made once instead of
+ * filling the polygon again every frame. The first time a shape is drawn in
+ * a color at a rotation it is filled into a small transparent image made
+ * compatible with the screen, which Java2D keeps in video memory where it
+ * can; from then on drawing it is a single image copy.
+ *
+ * Rotations are rounded to a fixed number of steps, by default one per whole
+ * degree, which is all a player ever turns by. Only so many images are kept,
+ * by default enough for every rotation of eight shapes in eight colors, so
+ * six players and the coins all fit. The sprites are kept in a list from
+ * most to least recently drawn; when the cache is full, the one at the end
+ * is dropped to make room, without looking at the others.
+ * A sprite can land a pixel away from where fillPolygon would put the same
+ * polygon, since its corners are rounded relative to the image rather than
+ * to the canvas.
+ *
+ * Without hardware acceleration, copying an image with transparent pixels
+ * costs more per pixel than filling the polygon does, so a thin shape like
+ * the player's star is slower to draw as a sprite. A small shape like a
+ * coin is still faster, since filling a polygon costs about the same however
+ * few pixels it covers. So when drawing to something that cannot be
+ * accelerated, such as an offscreen BufferedImage, the cache fills shapes
+ * whose sprites would be larger than SMALL_SPRITE_PIXELS as before, unless
+ * it was made to use sprites everywhere. The size is decided once per
+ * shape, from the box its corners can reach at any rotation.
+ *
+ * The cache is not thread safe; it is only used by the thread that paints.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class SpriteCache {
+    // Defaults of the shared cache: one rotation per degree, and images kept
+    public static final int DEFAULT_STEPS = 360;
+    public static final int DEFAULT_MAX_SPRITES = 8 * DEFAULT_STEPS;
+
+    // Largest sprite, in pixels of its box, that is drawn as an image even
+    // where images are not accelerated
+    public static final int SMALL_SPRITE_PIXELS = 400;
+
+    // The cache the players and coins paint through
+    private static final SpriteCache SHARED = new SpriteCache(DEFAULT_STEPS,
+            DEFAULT_MAX_SPRITES, false);
+
+    /**
+     * The Sprite class is one shape in one color at one rotation, with where
+     * its image goes relative to the position of the polygon, the slot it
+     * fills, and its neighbours in the list of sprites by when they were
+     * last drawn.
+     */
+    private static class Sprite {
+        final Image image;
+        final int offsetX, offsetY;
+        final Variant variant;
+        final int step;
+        Sprite newer, older;
+
+        Sprite(Image inImage, int inOffsetX, int inOffsetY, Variant inVariant,
+                int inStep) {
+            image = inImage;
+            offsetX = inOffsetX;
+            offsetY = inOffsetY;
+            variant = inVariant;
+            step = inStep;
+        }
+    }
+
+    /**
+     * The Variant class is one shape in one color, with its sprite for each
+     * rotation step, null until first drawn, and whether its sprites are
+     * small enough to draw where images are not accelerated.
+     */
+    private static class Variant {
+        final Point[] shape;
+        final int rgb;
+        final Sprite[] sprites;
+        final boolean small;
+
+        Variant(Point[] inShape, int inRgb, int steps) {
+            shape = inShape;
+            rgb = inRgb;
+            sprites = new Sprite[steps];
+            // Turned any way, the shape fits a square as wide as the
+            // diagonal of its unturned box
+            double width = 0, height = 0;
+            for (Point corner : shape) {
+                width = Math.max(width, corner.x);
+                height = Math.max(height, corner.y);
+            }
+            int side = (int) Math.ceil(Math.hypot(width, height)) + 1;
+            small = side * side <= SMALL_SPRITE_PIXELS;
+        }
+    }
+
+    // Instance variables for the layout of the cache
+    private final int steps;
+    private final int maxSprites;
+    private final boolean everywhere;
+    private final ArrayList<Variant> variants = new ArrayList<Variant>();
+    private int spriteCount;
+
+    // Ends of the list of sprites, from the one drawn last to the one drawn
+    // longest ago
+    private Sprite newest, oldest;
+
+    // Scratch space for the corners of the shape being made into a sprite
+    private double[] outlineXs = new double[0], outlineYs = new double[0];
+    private int[] cornerXs = new int[0], cornerYs = new int[0];
+
+    // The screen configuration last drawn to, and whether it accelerates
+    // images
+    private GraphicsConfiguration checkedConfig;
+    private boolean accelerated;
+
+    // Statistics: draws served from the cache, sprites made, sprites dropped
+    private long hits, misses, evictions;
+
+    /**
+     * Constructs an empty SpriteCache.
+     *
+     * @param inSteps      The number of rotations per full turn.
+     * @param inMaxSprites The most images kept at once.
+     * @param inEverywhere True to draw sprites even where images are not
+     * accelerated, false to fill polygons with large sprites there.
+     */
+    public SpriteCache(int inSteps, int inMaxSprites, boolean inEverywhere) {
+        if (inSteps <= 0 || inMaxSprites <= 0) {
+            throw new IllegalArgumentException("Steps and size must be positive");
+        }
+        steps = inSteps;
+        maxSprites = inMaxSprites;
+        everywhere = inEverywhere;
+    }
+
+    /**
+     * Gets the cache the players and coins paint through.
+     *
+     * @return The shared cache.
+     */
+    public static SpriteCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Draws a polygon filled with a color, as fillPolygon would, at the
+     * rotation step nearest to its rotation.
+     *
+     * @param brush   The graphics object to draw with.
+     * @param polygon The polygon.
+     * @param color   The color to fill it with.
+     */
+    public void fill(Graphics brush, Polygon polygon, Color color) {
+        Variant variant = variantOf(polygon.getShape(), color.getRGB());
+        if (!everywhere && !variant.small && !isAccelerated(brush)) {
+            brush.setColor(color);
+            brush.fillPolygon(polygon.getXCoords(), polygon.getYCoords(),
+                    polygon.getPointCount());
+            return;
+        }
+        int step = (int) Math.round(polygon.rotation * steps / 360.0);
+        step = Math.floorMod(step, steps);
+        Sprite sprite = variant.sprites[step];
+        if (sprite == null) {
+            if (spriteCount == maxSprites) {
+                evictOldest();
+            }
+            sprite = make(brush, polygon, color, variant, step);
+            variant.sprites[step] = sprite;
+            spriteCount++;
+            misses++;
+        } else {
+            unlink(sprite);
+            hits++;
+        }
+        linkNewest(sprite);
+        brush.drawImage(sprite.image,
+                (int) Math.floor(polygon.position.x) + sprite.offsetX,
+                (int) Math.floor(polygon.position.y) + sprite.offsetY, null);
+    }
+
+    /**
+     * Gets the number of draws that found their sprite in the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of draws that had to make their sprite first.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of sprites dropped to make room for others.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of sprites held.
+     *
+     * @return The number of sprites.
+     */
+    public int size() {
+        return spriteCount;
+    }
+
+    /**
+     * Drops every sprite, for instance after the display changed.
+     */
+    public void clear() {
+        for (Variant variant : variants) {
+            for (int s = 0; s < steps; s++) {
+                if (variant.sprites[s] != null) {
+                    variant.sprites[s].image.flush();
+                    variant.sprites[s] = null;
+                }
+            }
+        }
+        spriteCount = 0;
+        newest = null;
+        oldest = null;
+    }
+
+    /*
+    The following methods are private helpers for finding, making and
+    dropping sprites.
+    */
+
+    private boolean isAccelerated(Graphics brush) {
+        if (!(brush instanceof Graphics2D)) {
+            return false;
+        }
+        GraphicsConfiguration config =
+                ((Graphics2D) brush).getDeviceConfiguration();
+        if (config != checkedConfig) {
+            checkedConfig = config;
+            accelerated = config.getImageCapabilities().isAccelerated();
+        }
+        return accelerated;
+    }
+
+    private Variant variantOf(Point[] shape, int rgb) {
+        for (int v = 0; v < variants.size(); v++) {
+            Variant variant = variants.get(v);
+            if (variant.shape == shape && variant.rgb == rgb) {
+                return variant;
+            }
+        }
+        Variant variant = new Variant(shape, rgb, steps);
+        variants.add(variant);
+        return variant;
+    }
+
+    private Sprite make(Graphics brush, Polygon polygon, Color color,
+            Variant variant, int step) {
+        double degrees = 360.0 * step / steps;
+        int n = polygon.getPointCount();
+        if (outlineXs.length < n) {
+            outlineXs = new double[n];
+            outlineYs = new double[n];
+            cornerXs = new int[n];
+            cornerYs = new int[n];
+        }
+        polygon.getOutline(degrees, outlineXs, outlineYs);
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, outlineXs[i]);
+            minY = Math.min(minY, outlineYs[i]);
+            maxX = Math.max(maxX, outlineXs[i]);
+            maxY = Math.max(maxY, outlineYs[i]);
+        }
+        int offsetX = (int) Math.floor(minX), offsetY = (int) Math.floor(minY);
+        for (int i = 0; i < n; i++) {
+            cornerXs[i] = (int) (outlineXs[i] - offsetX);
+            cornerYs[i] = (int) (outlineYs[i] - offsetY);
+        }
+        int w = (int) Math.ceil(maxX) - offsetX + 1;
+        int h = (int) Math.ceil(maxY) - offsetY + 1;
+
+        Image image;
+        if (brush instanceof Graphics2D) {
+            GraphicsConfiguration config =
+                    ((Graphics2D) brush).getDeviceConfiguration();
+            image = config.createCompatibleImage(w, h, Transparency.BITMASK);
+        } else {
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics spriteBrush = image.getGraphics();
+        spriteBrush.setColor(color);
+        spriteBrush.fillPolygon(cornerXs, cornerYs, n);
+        spriteBrush.dispose();
+        return new Sprite(image, offsetX, offsetY, variant, step);
+    }
+
+    private void evictOldest() {
+        Sprite sprite = oldest;
+        unlink(sprite);
+        sprite.variant.sprites[sprite.step] = null;
+        sprite.image.flush();
+        spriteCount--;
+        evictions++;
+    }
+
+    private void linkNewest(Sprite sprite) {
+        sprite.older = newest;
+        sprite.newer = null;
+        if (newest != null) {
+            newest.newer = sprite;
+        } else {
+            oldest = sprite;
+        }
+        newest = sprite;
+    }
+
+    private void unlink(Sprite sprite) {
+        if (sprite.newer != null) {
+            sprite.newer.older = sprite.older;
+        } else {
+            newest = sprite.older;
+        }
+        if (sprite.older != null) {
+            sprite.older.newer = sprite.newer;
+        } else {
+            oldest = sprite.newer;
+        }
+        sprite.newer = null;
+        sprite.older = null;
+    }
+}
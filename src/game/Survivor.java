@@ -2,8 +2,10 @@ package game;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.Random;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.file.Paths;
 
 /**
  * The Survivor class represents the control center of the game, extending the 
@@ -15,307 +17,859 @@ import java.util.Random;
  */
 @SuppressWarnings("serial")
 class Survivor extends Game {
-    // Static variables to keep track of player scores and pre-made counter
-    static int p1Score = 0;
-    static int p2Score = 0;
-    static int counter = 0;
+    // Colors of the players, on the map and on the scoreboard
+    private static final Color[] PLAYER_COLORS = {Color.RED, Color.BLUE,
+            Color.CYAN, Color.PINK, Color.WHITE, Color.LIGHT_GRAY};
+
+    // Fonts are made once rather than on every frame
+    private static final Font BANNER_FONT = new Font("Arial", Font.BOLD, 20);
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 50);
+    private static final Font HINT_FONT = new Font("Arial", Font.BOLD, 30);
+    private static final Font OVERLAY_FONT = new Font("Monospaced", Font.PLAIN, 11);
 
     // Instance variables for game components
-    private Player player1;
-    private Player player2;
+    private InputDispatcher input;
+    private int[] localInputs;
     private Scoreboard scoreboard;
-    private ArrayList<Coin> coins;
-    Random random;
-
-    // Constants defining relative points for coins, players, and scoreboard
-    private static final Point[] COIN_POINTS = {new Point(0, -5), new Point(5, 0),
-            new Point(0, 5), new Point(-5, 0)};
-    private static final Point[] PLAYER_POINTS = {new Point(0, -20), new Point(5, -5),
-            new Point(20, 0), new Point(5, 5), new Point(0, 20), new Point(-5, 5),
-            new Point(-30, 0), new Point(-5, -5)};
+    private Simulation simulation;
+    private GameClient client;
+    private RemoteMatch remote;
+    private MatchView view;
+    private TickClock clock;
+    private int[] inputs;
+    private BackgroundManager backgroundManager;
+    private GameOverChecker gameOverChecker;
+
+    // Instance variables for recording and watching replays
+    private ReplayRecorder recorder;
+    private ReplayPlayer replay;
+    private double replaySpeed = 1;
+    private double replayCarry;
+    private boolean paused;
+
+    // Replay commands from the keyboard, posted by the event thread and
+    // applied by the render thread before it plays on: ticks to seek by,
+    // times to double (or halve, if negative) the speed, and pause presses
+    private final AtomicInteger pendingSeek = new AtomicInteger();
+    private final AtomicInteger pendingSpeedShift = new AtomicInteger();
+    private final AtomicInteger pendingPauses = new AtomicInteger();
+
+    // Instance variables for keeping the result of a local match
+    private MatchStore store;
+    private long matchId;
+    private boolean resultStored;
+
+    // Ticks skipped by one press of the left or right arrow in a replay
+    private static final int SEEK_TICKS = 500;
+
+    // Instance variables for the profiling overlay, toggled with F3 when
+    // profiling is on. It shows the phases of the last second.
+    private boolean showOverlay = Profiler.ENABLED;
+    private String[] overlayLines = new String[0];
+    private long overlayUpdated;
+    private static final long OVERLAY_NANOS = 1_000_000_000L;
+    private static final int OVERLAY_WIDTH = 470;
+    private static final int OVERLAY_TOP = 35;
+
+    // Instance variables for incremental painting: what the last frame
+    // showed, compared with the match to find what has to be painted again.
+    // Players are kept as their bounding box and rotation, NaN if not shown,
+    // and coins as their id and bounding box, in the order of the match.
+    private double[] shownPlayers = new double[0];
+    private int[] shownCoinIds = new int[0];
+    private double[] shownCoins = new double[0];
+    private int shownCoinCount;
+    private Color shownColor;
+    private int[] shownScores = new int[0];
+    private boolean shownGameOver;
+    private int shownOverlayLines;
+
+    // Instance variables for worlds larger than the canvas: one camera per
+    // viewport, null while the whole world fits on the canvas. A local game
+    // splits the canvas between its players, up to MAX_VIEWPORTS of them.
+    private Camera[] cameras;
+    private static final int MAX_VIEWPORTS = 4;
+    private static final Color EDGE_COLOR = Color.DARK_GRAY;
+
+    // Constant defining relative points for the scoreboard
     private static final Point[] SCOREBOARD_POINTS = {new Point(0, -30), 
     		new Point(0, 0), new Point(400, 0), new Point(400, -30)};
 
     /**
      * Constructs a new Survivor instance, initializing the game components
-     * including the coins, players, and scoreboard
+     * including the simulation, players, and scoreboard
      */
     public Survivor() {
-        super("Survivor!", 800, 600);
+        this(2);
+    }
+
+    /**
+     * Constructs a new Survivor instance for a local game of several players
+     * sharing the keyboard: the arrow keys, WASD, IJKL and the number pad.
+     *
+     * @param localPlayers The number of players, from 2 up to
+     * KeyBindings.getDefaultPlayerCount().
+     */
+    public Survivor(int localPlayers) {
+        this(localPlayers, Simulation.WIDTH, Simulation.HEIGHT);
+    }
+
+    /**
+     * Constructs a new Survivor instance for a local game in a world of the
+     * given size. A world larger than the canvas is shown through one camera
+     * per player, each following its player.
+     *
+     * @param localPlayers The number of players, from 2 up to
+     * KeyBindings.getDefaultPlayerCount().
+     * @param worldWidth   The width of the world.
+     * @param worldHeight  The height of the world.
+     * @throws IllegalArgumentException If the number of players is out of
+     * range.
+     */
+    public Survivor(int localPlayers, int worldWidth, int worldHeight) {
+        this(null, checkLocalPlayers(localPlayers), worldWidth, worldHeight);
+    }
+
+    /**
+     * Constructs a new Survivor instance that plays in a match on a
+     * GameServer. The arrow keys control this client's player and the
+     * canvas paints the state sent by the server.
+     *
+     * @param inClient The connection to the server, or null for a local game.
+     */
+    public Survivor(GameClient inClient) {
+        this(inClient, inClient == null ? 2 : 1, Simulation.WIDTH,
+                Simulation.HEIGHT);
+    }
+
+    /**
+     * Constructs a new Survivor instance, either local or on a server.
+     *
+     * @param inClient     The connection to the server, or null for a local
+     * game.
+     * @param localPlayers The number of players at this keyboard.
+     * @param worldWidth   The width of the world of a local game.
+     * @param worldHeight  The height of the world of a local game.
+     */
+    private Survivor(GameClient inClient, int localPlayers, int worldWidth,
+            int worldHeight) {
+        super("Survivor!", Simulation.WIDTH, Simulation.HEIGHT);
         this.setFocusable(true);
         this.requestFocus();
-        coins = new ArrayList<Coin>();
-        random = new Random();
-
-        // Initialize 10 default coins randomly across the map
-        for (int i = 0; i < 10; i++) {
-            coins.add(new DefaultCoin(COIN_POINTS, new Point(random.nextInt(801),
-                    random.nextInt(601)), 0));
-        }
-
-        // Initialize 1 speed coin randomly across the map
-        coins.add(new SpeedCoin(COIN_POINTS, new Point(random.nextInt(801),
-                random.nextInt(601)), 0));
-
-        // Initialize player 1 and allows it to use keyboard functions
-        player1 = new Player(PLAYER_POINTS, new Point(250, 250), 0);
-        this.addKeyListener(player1);
-
-        // Initialize player 2 through an anonymous class using the Player class
-        player2 = new Player(PLAYER_POINTS, new Point(450, 250), 0) {
-         
-        	/**
-        	 * Handles the key pressed event for the Player, updating movement 
-        	 * based on the keys pressed.
-        	 *
-        	 * @param e The KeyEvent object representing the key pressed event.
-        	 */
-        	@Override
-        	public void keyPressed(KeyEvent e) {
-        	    switch (e.getKeyCode()) {
-        	        case KeyEvent.VK_W:
-        	            forward = true;
-        	            break;
-        	        case KeyEvent.VK_S:
-        	            backward = true;
-        	            break;
-        	        case KeyEvent.VK_D:
-        	            rotateRight = true;
-        	            break;
-        	        case KeyEvent.VK_A:
-        	            rotateLeft = true;
-        	            break;
-        	    }
-        	}
-
-        	/**
-        	 * Handles the key released event for the Player, updating movement 
-        	 * based on the keys released.
-        	 *
-        	 * @param e The KeyEvent object representing the key released event.
-        	 */
-        	@Override
-        	public void keyReleased(KeyEvent e) {
-        	    switch (e.getKeyCode()) {
-        	        case KeyEvent.VK_W:
-        	            forward = false;
-        	            break;
-        	        case KeyEvent.VK_S:
-        	            backward = false;
-        	            break;
-        	        case KeyEvent.VK_D:
-        	            rotateRight = false;
-        	            break;
-        	        case KeyEvent.VK_A:
-        	            rotateLeft = false;
-        	            break;
-        	    }
-        	}
-        };
-
-        this.addKeyListener(player2);
+
+        // Every key goes through one dispatcher, which hands out the input of
+        // each local player once per tick. Keys held when the window loses
+        // focus are let go, since their releases would never arrive.
+        input = new InputDispatcher(KeyBindings.defaults(localPlayers),
+                localPlayers);
+        localInputs = new int[localPlayers];
+        this.addKeyListener(input);
+        this.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                input.releaseAll();
+            }
+        });
+
+        // The simulation owns the match rules, this canvas only feeds it the
+        // keyboard state and paints the result. In a remote game the server
+        // runs the simulation instead.
+        client = inClient;
+        if (client == null) {
+            simulation = new Simulation(Simulation.createPlayers(localPlayers),
+                    System.nanoTime(), Simulation.DEFAULT_TICK_NANOS,
+                    worldWidth, worldHeight);
+            view = simulation;
+            clock = new TickClock(simulation.getTickNanos());
+            inputs = new int[simulation.getPlayerCount()];
+        } else {
+            remote = new RemoteMatch();
+            remote.setLocalSeat(client.getSeat());
+            remote.setWorldSize(client.getWorldWidth(), client.getWorldHeight());
+            view = remote;
+            clock = new TickClock(client.getTickNanos());
+        }
 
         // Initializes the scoreboard at the top of the screen
         scoreboard = new Scoreboard(SCOREBOARD_POINTS, new Point(300, 0), 0);
+
+        // Initializes the BackgroundManager and GameOverChecker objects that
+        // are used by every frame
+        backgroundManager = new BackgroundManager();
+        gameOverChecker = new GameOverChecker();
+
+        if (Profiler.ENABLED) {
+            this.addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyPressed(KeyEvent e) {
+                    if (e.getKeyCode() == KeyEvent.VK_F3) {
+                        showOverlay = !showOverlay;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Constructs a new Survivor instance that plays back a recorded match.
+     * The left and right arrows seek back and forward, up and down double and
+     * halve the speed, and space pauses. Keys only post these commands; the
+     * render thread carries them out between ticks, so the simulation is
+     * only ever touched by one thread.
+     *
+     * @param inReplay The replay to watch.
+     * @param speed    The number of recorded ticks played per real tick.
+     */
+    public Survivor(ReplayPlayer inReplay, double speed) {
+        this((GameClient) null);
+        replay = inReplay;
+        replaySpeed = speed;
+        simulation = replay.getSimulation();
+        view = simulation;
+        clock = new TickClock(simulation.getTickNanos());
+        this.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_LEFT:
+                        pendingSeek.addAndGet(-SEEK_TICKS);
+                        break;
+                    case KeyEvent.VK_RIGHT:
+                        pendingSeek.addAndGet(SEEK_TICKS);
+                        break;
+                    case KeyEvent.VK_UP:
+                        pendingSpeedShift.incrementAndGet();
+                        break;
+                    case KeyEvent.VK_DOWN:
+                        pendingSpeedShift.decrementAndGet();
+                        break;
+                    case KeyEvent.VK_SPACE:
+                        pendingPauses.incrementAndGet();
+                        break;
+                }
+            }
+        });
+    }
+
+    /**
+     * Records this local match to a replay file from the next tick on.
+     *
+     * @param inRecorder The recorder, made for this canvas's simulation.
+     */
+    public void setRecorder(ReplayRecorder inRecorder) {
+        recorder = inRecorder;
+    }
+
+    /**
+     * Keeps the pickups and the result of this local match in a store.
+     *
+     * @param inStore The store.
+     */
+    public void setMatchStore(MatchStore inStore) {
+        store = inStore;
+        matchId = store.newMatchId();
+        simulation.setPickupListener(store.pickupsOf(matchId));
+    }
+
+    /**
+     * Gets the local match, for making a recorder for it.
+     *
+     * @return The simulation, or null in a remote game.
+     */
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Runs however many fixed timestep ticks are due since the last frame,
+     * sampling the input of each player from the dispatcher before every
+     * tick.
+     */
+    private void runDueTicks() {
+        int due = clock.advance(System.nanoTime());
+        if (client != null) {
+            exchangeWithServer(due);
+            return;
+        }
+        if (replay != null) {
+            applyReplayCommands();
+            // Fractions of a tick at slow speeds add up over frames
+            replayCarry = paused ? 0 : replayCarry + due * replaySpeed;
+            replay.play((int) replayCarry);
+            replayCarry -= (int) replayCarry;
+            return;
+        }
+        for (int t = 0; t < due; t++) {
+            input.sample(inputs);
+            record();
+            simulation.tick(inputs);
+        }
+        if (store != null && !resultStored && simulation.isGameOver()) {
+            String[] names = new String[simulation.getPlayerCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "Player " + (i + 1);
+            }
+            store.recordResult(MatchResult.of(matchId, simulation, names));
+            resultStored = true;
+        }
+    }
+
+    /**
+     * Carries out the replay commands posted by the keyboard since the last
+     * frame.
+     */
+    private void applyReplayCommands() {
+        int seek = pendingSeek.getAndSet(0);
+        if (seek != 0) {
+            replay.seek(replay.getPosition() + seek);
+        }
+        replaySpeed = Math.scalb(replaySpeed, pendingSpeedShift.getAndSet(0));
+        if (pendingPauses.getAndSet(0) % 2 != 0) {
+            paused = !paused;
+        }
+    }
+
+    /**
+     * Writes the inputs of the coming tick to the replay file, if recording.
+     * Recording stops for good if the file cannot be written.
+     */
+    private void record() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.record(inputs);
+        } catch (IOException exc) {
+            exc.printStackTrace();
+            recorder = null;
+        }
+    }
+
+    /**
+     * Sends the arrow key state once for every tick that is due, predicting
+     * its effect on this client's player, applies whatever states the server
+     * has sent since the last frame and moves everything else to where it is
+     * drawn this frame.
+     *
+     * @param due The number of ticks due.
+     */
+    private void exchangeWithServer(int due) {
+        long start = Profiler.start();
+        try {
+            for (int t = 0; t < due; t++) {
+                input.sample(localInputs);
+                // An input the server is too far behind to take is not
+                // predicted either
+                int sequence = client.sendInput(localInputs[0]);
+                if (sequence >= 0) {
+                    remote.predict(sequence, localInputs[0]);
+                }
+            }
+            if (client.poll(remote) < 0) {
+                on = false;
+            }
+        } catch (IOException exc) {
+            on = false;
+        }
+        remote.interpolate(clock.getAlpha());
+        Profiler.stop(Profiler.NETWORK, start);
     }
 
     /**
      * The main paint method responsible for rendering the game elements on the 
-     * canvas.
+     * canvas. The game logic itself runs in the simulation. Only the parts of
+     * the canvas where something changed since the last frame are painted
+     * again, over what the last frame left there. In a world larger than the
+     * canvas every frame is painted whole, since the cameras move with the
+     * players, but only what is in view is looked at.
      *
      * @param brush The graphics object used for painting.
      */
     public void paint(Graphics brush) {
-        // Initializes BackgroundManager object
-    	BackgroundManager bm = new BackgroundManager();
+        // A window uncovered by the system gets a whole new frame instead
+        if (isSystemPaint()) {
+            damage.markAll();
+            repaint();
+            return;
+        }
+        runDueTicks();
+        long paintStart = Profiler.start();
+
+    	BackgroundManager bm = backgroundManager;
 
-        // Update background color based on game state, draws corresponding 
-    	// text if the background is updated
+        // Update background color based on game state, the whole canvas is
+        // painted again if it changed
         bm.updateBackgroundColor();
-        brush.setColor(bm.getCurrentColor());
-        brush.fillRect(0, 0, width, height);
+        if (view.getWorldWidth() > width || view.getWorldHeight() > height) {
+            followPlayers();
+            damage.markAll();
+            if (Profiler.ENABLED) {
+                trackOverlay();
+            }
+        } else {
+            trackDamage();
+        }
+
+        for (int b = 0; b < damage.getCount(); b++) {
+            brush.setClip(damage.getX(b), damage.getY(b), damage.getWidth(b),
+                    damage.getHeight(b));
+            paintDamaged(brush, b);
+        }
+        Profiler.stop(Profiler.PAINT, paintStart);
+
+        if (Profiler.ENABLED && showOverlay) {
+            for (int b = 0; b < damage.getCount(); b++) {
+                brush.setClip(damage.getX(b), damage.getY(b),
+                        damage.getWidth(b), damage.getHeight(b));
+                paintOverlay(brush);
+            }
+        }
+        brush.setClip(null);
+    }
+
+    /**
+     * Paints everything that shows in one damaged box, the brush is already
+     * clipped to it.
+     *
+     * @param brush The graphics object used for painting.
+     * @param box   The index of the box in the damage.
+     */
+    private void paintDamaged(Graphics brush, int box) {
+        BackgroundManager bm = backgroundManager;
+        if (cameras == null) {
+            paintWorld(brush, damage.getX(box), damage.getY(box),
+                    damage.getWidth(box), damage.getHeight(box));
+        } else {
+            for (Camera camera : cameras) {
+                paintView(brush, camera);
+            }
+            brush.setClip(damage.getX(box), damage.getY(box),
+                    damage.getWidth(box), damage.getHeight(box));
+            paintDividers(brush);
+        }
 
         brush.setColor(Color.BLACK);
-        brush.setFont(new Font("Arial", Font.BOLD, 20));
+        brush.setFont(BANNER_FONT);
         if (bm.getCurrentColor() == Color.MAGENTA) {
             brush.drawString("A Player has 20 points!", 293, 50);
         }
         if (bm.getCurrentColor() == Color.ORANGE) {
-            brush.drawString("Both Players have 20 points!", 275, 50);
+            brush.drawString(bm.countScoring() == 2 ? "Both Players have 20 points!"
+                    : "All Players have 20 points!", 275, 50);
         }
 
-        // Lambda expressions that initializes the functional interface
-        // ScoreUpdater and adds the value of the coin to the current score
-        // for each player
-        ScoreUpdater scoreUpdater1 = (coinVal) -> {
-            p1Score += coinVal;
-        };
-        ScoreUpdater scoreUpdater2 = (coinVal) -> {
-            p2Score += coinVal;
-        };
+        // Paints the scoreboard on the screen
+        if (damage.touches(box, 0, 0, width, getScoreboardBottom())) {
+            scoreboard.paint(brush, view, PLAYER_COLORS);
+        }
 
-        // Paints the player 1 on the screen in red
-        brush.setColor(Color.RED);
-        player1.move();
-        player1.paint(brush);
+        // Checks to see if the game is over, if it is then it displays
+        // GameOver screen
+        if (gameOverChecker.isGameOver()) {
+            gameOverChecker.displayGameOver(brush);
+        }
+    }
 
-        // Paints the player 2 on the screen in blue
-        brush.setColor(Color.BLUE);
-        player2.move();
-        player2.paint(brush);
+    /**
+     * Paints the part of the world in a box: the background, each player in
+     * its own color and the coins, which are found through the grid of the
+     * coin store rather than by looking at every coin. The brush is already
+     * clipped to the box and translated so it draws in world coordinates.
+     *
+     * @param brush     The graphics object used for painting.
+     * @param left      The left edge of the box in the world.
+     * @param top       The top edge of the box in the world.
+     * @param boxWidth  The width of the box.
+     * @param boxHeight The height of the box.
+     */
+    private void paintWorld(Graphics brush, int left, int top, int boxWidth,
+            int boxHeight) {
+        brush.setColor(backgroundManager.getCurrentColor());
+        brush.fillRect(left, top, boxWidth, boxHeight);
+        int right = left + boxWidth, bottom = top + boxHeight;
+
+        // Paints each player in view in its own color
+        for (int i = 0; i < view.getPlayerCount(); i++) {
+            Player player = view.getPlayer(i);
+            if (view.isPlayerActive(i) && inBox(left, top, right, bottom,
+                    player.getMinX(), player.getMinY(), player.getMaxX(),
+                    player.getMaxY())) {
+                brush.setColor(PLAYER_COLORS[i % PLAYER_COLORS.length]);
+                player.paint(brush);
+            }
+        }
 
-        // Paints the scoreboard on the screen
-        scoreboard.paint(brush);
-
-        // Paints all the coins on the screen
-        for (Coin c : coins) {
-            c.paint(brush);
-        }
-
-        for (Coin c : new ArrayList<Coin>(coins)) {
-
-            // Check for player1 collisions with default coins
-            if (c instanceof DefaultCoin) {
-                Coin coin = (DefaultCoin) c;
-                if (player1.collides((Polygon) coin)) {
-                    coins.remove(c);
-                    // Update player 1 score and choose the next coin type based
-                    // on a random variable that takes a value from 0-7 and
-                    // there is a 1/7 chance for a speed/slow coin to spawn
-                    scoreUpdater1.updateScore(coin.getCoinValue());
-                    int coinRandom = random.nextInt(8);
-                    if (coinRandom == 0) {
-                        coins.add(new SpeedCoin(COIN_POINTS,
-                                new Point(random.nextInt(730) + 35,
-                                        random.nextInt(515) + 35), 0));
-                        break;
-                    }
+        // Paints the coins in view
+        int found = view.findCoins(left, top, right, bottom);
+        for (int f = 0; f < found; f++) {
+            Coin coin = view.getCoin(view.getFoundCoin(f));
+            Polygon shape = (Polygon) coin;
+            if (inBox(left, top, right, bottom, shape.getMinX(),
+                    shape.getMinY(), shape.getMaxX(), shape.getMaxY())) {
+                coin.paint(brush);
+            }
+        }
+    }
 
-                    if (coinRandom == 1) {
-                        coins.add(new SlowCoin(COIN_POINTS,
-                                new Point(random.nextInt(730) + 35,
-                                        random.nextInt(515) + 35), 0));
-                        break;
-                    }
+    /**
+     * Paints what one camera sees into its viewport, with the edge of the
+     * world drawn where it comes into view.
+     *
+     * @param brush  The graphics object used for painting.
+     * @param camera The camera.
+     */
+    private void paintView(Graphics brush, Camera camera) {
+        int offsetX = camera.getScreenX() - camera.getX();
+        int offsetY = camera.getScreenY() - camera.getY();
+        brush.setClip(camera.getScreenX(), camera.getScreenY(),
+                camera.getWidth(), camera.getHeight());
+        brush.translate(offsetX, offsetY);
+        paintWorld(brush, camera.getX(), camera.getY(), camera.getWidth(),
+                camera.getHeight());
+        brush.setColor(EDGE_COLOR);
+        brush.drawRect(0, 0, view.getWorldWidth() - 1,
+                view.getWorldHeight() - 1);
+        brush.translate(-offsetX, -offsetY);
+    }
 
-                    coins.add(new DefaultCoin(COIN_POINTS,
-                            new Point(random.nextInt(730) + 35,
-                                    random.nextInt(515) + 35), 0));
-                    break;
-                }
+    /**
+     * Draws the lines between the viewports of a split canvas.
+     *
+     * @param brush The graphics object used for painting.
+     */
+    private void paintDividers(Graphics brush) {
+        brush.setColor(EDGE_COLOR);
+        for (Camera camera : cameras) {
+            if (camera.getScreenX() > 0) {
+                brush.drawLine(camera.getScreenX(), camera.getScreenY(),
+                        camera.getScreenX(),
+                        camera.getScreenY() + camera.getHeight());
+            }
+            if (camera.getScreenY() > 0) {
+                brush.drawLine(camera.getScreenX(), camera.getScreenY(),
+                        camera.getScreenX() + camera.getWidth(),
+                        camera.getScreenY());
+            }
+        }
+    }
 
-                // Check for player2 collisions with default coins
-                if (player2.collides((Polygon) coin)) {
-                    coins.remove(c);
-                    // Update player2 score and choose the next coin type based
-                    // on a random variable that takes a value from 0-7 and
-                    // there is a 1/7 chance for a speed/slow coin to spawn
-                    scoreUpdater2.updateScore(coin.getCoinValue());
-                    int coinRandom = random.nextInt(8);
-                    if (coinRandom == 0) {
-                        coins.add(new SpeedCoin(COIN_POINTS,
-                                new Point(random.nextInt(730) + 55,
-                                        random.nextInt(515) + 35), 0));
-                        break;
-                    }
-                    
-                    if (coinRandom == 1) {
-                        coins.add(new SlowCoin(COIN_POINTS,
-                                new Point(random.nextInt(730) + 35,
-                                        random.nextInt(515) + 35), 0));
-                        break;
-                    }
-                    
-                    coins.add(new DefaultCoin(COIN_POINTS,
-                            new Point(random.nextInt(730) + 35,
-                                    random.nextInt(515) + 35), 0));
-                    break;
-                }
+    /**
+     * Checks the number of players of a local game before any window is
+     * opened. The canvas paints the first two scores, so a game needs at
+     * least two players, and each needs its own set of default keys.
+     *
+     * @param localPlayers The number of players.
+     * @return The number of players.
+     * @throws IllegalArgumentException If it is out of range.
+     */
+    private static int checkLocalPlayers(int localPlayers) {
+        if (localPlayers < 2
+                || localPlayers > KeyBindings.getDefaultPlayerCount()) {
+            throw new IllegalArgumentException("A local game takes 2 to "
+                    + KeyBindings.getDefaultPlayerCount() + " players, not "
+                    + localPlayers);
+        }
+        return localPlayers;
+    }
+
+    /**
+     * Checks if a bounding box reaches into a box of whole pixels, the same
+     * way DamageTracker.touches does.
+     *
+     * @param left   The left edge of the pixel box.
+     * @param top    The top edge of the pixel box.
+     * @param right  The right edge of the pixel box, exclusive.
+     * @param bottom The bottom edge of the pixel box, exclusive.
+     * @param minX   The left edge of the bounding box.
+     * @param minY   The top edge of the bounding box.
+     * @param maxX   The right edge of the bounding box.
+     * @param maxY   The bottom edge of the bounding box.
+     * @return True if they overlap.
+     */
+    private static boolean inBox(int left, int top, int right, int bottom,
+            double minX, double minY, double maxX, double maxY) {
+        return minX < right && left <= maxX + 1 && minY < bottom
+                && top <= maxY + 1;
+    }
+
+    /**
+     * Sets up the cameras the first time the world turns out to be larger
+     * than the canvas, and moves each to the player it follows: in a local
+     * game or a replay every player up to MAX_VIEWPORTS has its own, on a
+     * server there is one for this client's player, and a spectator follows
+     * whoever is ahead.
+     */
+    private void followPlayers() {
+        if (cameras == null) {
+            int count = client != null ? 1
+                    : Math.min(view.getPlayerCount(), MAX_VIEWPORTS);
+            cameras = Camera.split(Math.max(count, 1), width, height);
+        }
+        for (int c = 0; c < cameras.length; c++) {
+            int followed = client != null ? client.getSeat() : c;
+            if (followed < 0 || followed >= view.getPlayerCount()
+                    || !view.isPlayerActive(followed)) {
+                followed = leader();
+            }
+            if (followed >= 0) {
+                Player player = view.getPlayer(followed);
+                cameras[c].follow(player.position.x, player.position.y,
+                        view.getWorldWidth(), view.getWorldHeight());
             }
+        }
+    }
 
-            // Check for player1 collisions with speed coins
-            if (c instanceof SpeedCoin) {
-                Coin coin = (SpeedCoin) c;
-                if (player1.collides((Polygon) coin)) {
-                    coins.remove(c);
-                    // Update player 1 score, increase player1 speed, and add a
-                    // default coin to the map
-                    scoreUpdater1.updateScore(coin.getCoinValue());
-                    player1.stepSize = (player1.stepSize >= 4 ? 6 : 4);
-                    coins.add(new DefaultCoin(COIN_POINTS,
-                            new Point(random.nextInt(730) + 35,
-                                    random.nextInt(515) + 35), 0));
-                    break;
-                }
+    /**
+     * Finds the active player with the highest score.
+     *
+     * @return The index of the player, or -1 if nobody is playing.
+     */
+    private int leader() {
+        int best = -1;
+        for (int i = 0; i < view.getPlayerCount(); i++) {
+            if (view.isPlayerActive(i)
+                    && (best < 0 || view.getScore(i) > view.getScore(best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
 
-                // Check for player2 collisions with speed coins
-                if (player2.collides((Polygon) coin)) {
-                    coins.remove(c);
-                    // Update player 2 score, increase player2 speed, and add a
-                    // default coin to the map
-                    scoreUpdater2.updateScore(coin.getCoinValue());
-                    player2.stepSize = (player2.stepSize >= 4 ? 6 : 4);
-                    coins.add(new DefaultCoin(COIN_POINTS,
-                            new Point(random.nextInt(730) + 35,
-                                    random.nextInt(515) + 35), 0));
-                    break;
-                }
+    /**
+     * Compares the match with what the last frame showed and marks
+     * everything that changed as damaged: where each player or coin was and
+     * where it is now, the scoreboard when a score changed, the overlay when
+     * its numbers change, and the whole canvas when the background or the
+     * game over screen comes or goes.
+     */
+    private void trackDamage() {
+        Color color = backgroundManager.getCurrentColor();
+        boolean gameOver = gameOverChecker.isGameOver();
+        if (color != shownColor || gameOver != shownGameOver) {
+            damage.markAll();
+            shownColor = color;
+            shownGameOver = gameOver;
+        }
+
+        int playerCount = view.getPlayerCount();
+        if (shownPlayers.length != 5 * playerCount) {
+            shownPlayers = new double[5 * playerCount];
+            Arrays.fill(shownPlayers, Double.NaN);
+        }
+        for (int i = 0; i < playerCount; i++) {
+            Player player = view.getPlayer(i);
+            boolean active = view.isPlayerActive(i);
+            int s = 5 * i;
+            if (active && player.getMinX() == shownPlayers[s]
+                    && player.getMinY() == shownPlayers[s + 1]
+                    && player.getMaxX() == shownPlayers[s + 2]
+                    && player.getMaxY() == shownPlayers[s + 3]
+                    && player.rotation == shownPlayers[s + 4]) {
+                continue;
+            }
+            if (!Double.isNaN(shownPlayers[s])) {
+                damage.add(shownPlayers[s], shownPlayers[s + 1],
+                        shownPlayers[s + 2], shownPlayers[s + 3]);
+                shownPlayers[s] = Double.NaN;
             }
+            if (active) {
+                damage.add(player.getMinX(), player.getMinY(),
+                        player.getMaxX(), player.getMaxY());
+                shownPlayers[s] = player.getMinX();
+                shownPlayers[s + 1] = player.getMinY();
+                shownPlayers[s + 2] = player.getMaxX();
+                shownPlayers[s + 3] = player.getMaxY();
+                shownPlayers[s + 4] = player.rotation;
+            }
+        }
 
-            // Check for player1 collisions with slow coins
-            if (c instanceof SlowCoin) {
-                Coin coin = (SlowCoin) c;
-                if (player1.collides((Polygon) coin)) {
-                    coins.remove(c);
-                    // Update player 1 score, decrease player1 speed, and add a
-                    // default coin to the map
-                    scoreUpdater1.updateScore(coin.getCoinValue());
-                    player1.stepSize = (player1.stepSize <= 4 ? 2 : 4);
-                    coins.add(new DefaultCoin(COIN_POINTS,
-                            new Point(random.nextInt(730) + 35,
-                                    random.nextInt(515) + 35), 0));
-                    break;
-                }
+        // Removing a coin moves another into its slot, so a coin compared
+        // at the same index as last frame is either the same or damaged
+        int coinCount = view.getCoinCount();
+        if (shownCoinIds.length < coinCount) {
+            shownCoinIds = Arrays.copyOf(shownCoinIds, 2 * coinCount);
+            shownCoins = Arrays.copyOf(shownCoins, 8 * coinCount);
+        }
+        for (int i = 0; i < Math.max(coinCount, shownCoinCount); i++) {
+            int c = 4 * i;
+            Polygon shape = i < coinCount ? (Polygon) view.getCoin(i) : null;
+            if (shape != null && i < shownCoinCount
+                    && view.getCoinId(i) == shownCoinIds[i]
+                    && shape.getMinX() == shownCoins[c]
+                    && shape.getMinY() == shownCoins[c + 1]) {
+                continue;
+            }
+            if (i < shownCoinCount) {
+                damage.add(shownCoins[c], shownCoins[c + 1], shownCoins[c + 2],
+                        shownCoins[c + 3]);
+            }
+            if (shape != null) {
+                damage.add(shape.getMinX(), shape.getMinY(), shape.getMaxX(),
+                        shape.getMaxY());
+                shownCoinIds[i] = view.getCoinId(i);
+                shownCoins[c] = shape.getMinX();
+                shownCoins[c + 1] = shape.getMinY();
+                shownCoins[c + 2] = shape.getMaxX();
+                shownCoins[c + 3] = shape.getMaxY();
+            }
+        }
+        shownCoinCount = coinCount;
 
-                // Check for player2 collisions with slow coins
-                if (player2.collides((Polygon) coin)) {
-                    coins.remove(c);
-                    // Update player2 score, decrease player2 speed, and add a
-                    // default coin to the mapp
-                    scoreUpdater2.updateScore(coin.getCoinValue());
-                    player2.stepSize = (player2.stepSize <= 4 ? 2 : 4);
-                    coins.add(new DefaultCoin(COIN_POINTS,
-                            new Point(random.nextInt(730) + 35,
-                                    random.nextInt(515) + 35), 0));
-                    break;
-                }
+        if (trackScores()) {
+            damage.add(0, 0, width, getScoreboardBottom());
+        }
+
+        if (Profiler.ENABLED) {
+            trackOverlay();
+        }
+    }
+
+    /**
+     * Gets the bottom of the strip at the top of the canvas the scoreboard
+     * and its labels cover.
+     *
+     * @return The y coordinate.
+     */
+    private double getScoreboardBottom() {
+        return Math.max(scoreboard.getMaxY(), 20);
+    }
+
+    /**
+     * Notes the score of every player, -1 for an empty seat, and tells if any
+     * changed since the last call, so the scoreboard needs painting again.
+     *
+     * @return True if a score or a seat changed.
+     */
+    private boolean trackScores() {
+        int playerCount = view.getPlayerCount();
+        boolean changed = shownScores.length != playerCount;
+        if (changed) {
+            shownScores = new int[playerCount];
+        }
+        for (int i = 0; i < playerCount; i++) {
+            int score = view.isPlayerActive(i) ? view.getScore(i) : -1;
+            if (score != shownScores[i]) {
+                shownScores[i] = score;
+                changed = true;
             }
         }
+        return changed;
+    }
 
-        // Initializes a GameOverChecker object and checks to see if the game
-        // is over, if it is then it clears the map and displays GameOver screen
-        GameOverChecker gameOverChecker = new GameOverChecker();
-        if (gameOverChecker.isGameOver()) {
-            coins.clear();
-            gameOverChecker.displayGameOver(brush);
+    /**
+     * Takes the timing of each phase once a second, after which the
+     * histograms start over, and marks the overlay as damaged when its
+     * numbers change or it is turned on or off.
+     */
+    private void trackOverlay() {
+        long now = System.nanoTime();
+        int lines = showOverlay ? overlayLines.length : 0;
+        if (showOverlay && now - overlayUpdated >= OVERLAY_NANOS) {
+            overlayLines = new String[Profiler.PHASE_COUNT];
+            for (int p = 0; p < Profiler.PHASE_COUNT; p++) {
+                overlayLines[p] = Profiler.summarize(p);
+            }
+            Profiler.reset();
+            overlayUpdated = now;
+            lines = overlayLines.length;
+        } else if (lines == shownOverlayLines) {
+            return;
         }
+        int shown = Math.max(lines, shownOverlayLines);
+        damage.add(0, OVERLAY_TOP, OVERLAY_WIDTH,
+                OVERLAY_TOP + 14 * shown + 6);
+        shownOverlayLines = lines;
     }
 
     /**
-     * The main method to start the Survivor game.
+     * Paints the timing of each phase below the scoreboard.
+     *
+     * @param brush The graphics object used for painting.
+     */
+    private void paintOverlay(Graphics brush) {
+        brush.setColor(Color.BLACK);
+        brush.fillRect(0, OVERLAY_TOP, OVERLAY_WIDTH,
+                14 * overlayLines.length + 6);
+        brush.setColor(Color.GREEN);
+        brush.setFont(OVERLAY_FONT);
+        for (int i = 0; i < overlayLines.length; i++) {
+            brush.drawString(overlayLines[i], 5, 50 + 14 * i);
+        }
+    }
+
+    /**
+     * The main method to start the Survivor game. With "--connect host[:port]"
+     * it joins a match on a GameServer instead of playing locally, with
+     * "--watch host[:port] [room]" it watches one as a spectator, and with
+     * "--replay file [speed]" it plays back a recorded match. A local game
+     * takes "--players n" for two to four players at one keyboard,
+     * "--world WIDTHxHEIGHT" for a world larger than the window, "--coins n"
+     * to scatter n more coins over it, "--record file" to record the match
+     * and "--results file" to keep the result in a MatchStore. Without it,
+     * or with "--results none", no result is kept.
      *
      * @param args The command line arguments.
+     * @throws IOException If the server cannot be reached or a replay file
+     * cannot be opened.
      */
-    public static void main(String[] args) {
-        Survivor a = new Survivor();
-        a.repaint();
+    public static void main(String[] args) throws IOException {
+        Survivor a;
+        if (args.length >= 2 && args[0].equals("--connect")) {
+            String[] address = args[1].split(":");
+            int port = address.length > 1 ? Integer.parseInt(address[1])
+                    : Protocol.DEFAULT_PORT;
+            a = new Survivor(new GameClient(address[0], port));
+        } else if (args.length >= 2 && args[0].equals("--watch")) {
+            String[] address = args[1].split(":");
+            int port = address.length > 1 ? Integer.parseInt(address[1])
+                    : Protocol.DEFAULT_SPECTATOR_PORT;
+            int room = args.length > 2 ? Integer.parseInt(args[2])
+                    : Protocol.ANY_ROOM;
+            a = new Survivor(new GameClient(address[0], port, room));
+        } else if (args.length >= 2 && args[0].equals("--replay")) {
+            double speed = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+            a = new Survivor(new ReplayPlayer(Paths.get(args[1])), speed);
+        } else {
+            int players = 2;
+            int worldWidth = Simulation.WIDTH, worldHeight = Simulation.HEIGHT;
+            int extraCoins = 0;
+            String recordFile = null;
+            String resultsFile = "none";
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                if (args[i].equals("--players")) {
+                    players = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--world")) {
+                    String[] size = args[i + 1].split("x");
+                    worldWidth = Integer.parseInt(size[0]);
+                    worldHeight = Integer.parseInt(size[1]);
+                } else if (args[i].equals("--coins")) {
+                    extraCoins = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--record")) {
+                    recordFile = args[i + 1];
+                } else if (args[i].equals("--results")) {
+                    resultsFile = args[i + 1];
+                }
+            }
+            a = new Survivor(players, worldWidth, worldHeight);
+            a.getSimulation().spawnCoins(extraCoins);
+            if (!resultsFile.equals("none")) {
+                a.setMatchStore(new MatchStore(Paths.get(resultsFile)));
+            }
+            if (recordFile != null) {
+                a.setRecorder(new ReplayRecorder(Paths.get(recordFile),
+                        a.getSimulation(),
+                        ReplayRecorder.DEFAULT_KEYFRAME_INTERVAL));
+            }
+        }
+        a.start();
     }
 
     /**
      * The BackgroundManager is an inner class that manages the background color
      * based on the the scores of each of the players.
      * It changes the background color to magenta if one player hit 20 points,
-     * orange if both players hit 20 points, and black if the game is over.
+     * orange if every player in the match hit 20 points, and black if the
+     * game is over.
      */
     public class BackgroundManager {
     	// Instance variable for the current color of the background
@@ -326,16 +880,18 @@ class Survivor extends Game {
          * above.
          */
         public void updateBackgroundColor() {
-            GameOverChecker checker = new GameOverChecker();
-            if (checker.isGameOver()) {
+            if (gameOverChecker.isGameOver()) {
                 currColor = Color.BLACK;
             } 
-            else if (p1Score >= 20 && p2Score >= 20) {
+            else if (countScoring() > 1 && countScoring() == countActive()) {
                 currColor = Color.ORANGE;
             } 
-            else if (p1Score >= 20 || p2Score >= 20) {
+            else if (countScoring() > 0) {
                 currColor = Color.MAGENTA;
             }
+            else {
+                currColor = Color.BLACK;
+            }
         }
 
         /**
@@ -347,6 +903,36 @@ class Survivor extends Game {
             return currColor;
         }
 
+        /**
+         * Counts the players in the match that have 20 points or more.
+         *
+         * @return The number of players.
+         */
+        public int countScoring() {
+            int scoring = 0;
+            for (int i = 0; i < view.getPlayerCount(); i++) {
+                if (view.isPlayerActive(i) && view.getScore(i) >= 20) {
+                    scoring++;
+                }
+            }
+            return scoring;
+        }
+
+        /**
+         * Counts the players in the match.
+         *
+         * @return The number of players whose seats are taken.
+         */
+        public int countActive() {
+            int active = 0;
+            for (int i = 0; i < view.getPlayerCount(); i++) {
+                if (view.isPlayerActive(i)) {
+                    active++;
+                }
+            }
+            return active;
+        }
+
     }
 
     /**
@@ -356,7 +942,10 @@ class Survivor extends Game {
      */
     public class GameOverChecker {
         // Static final constant defining the score limit for a win
-        public static final int SCORE_LIMIT = 25;
+        public static final int SCORE_LIMIT = Simulation.SCORE_LIMIT;
+
+        // Winner text, built once when the game ends
+        private String gameWinner;
 
         /**
          * Checks if the game has reached a win condition based on score limit.
@@ -364,7 +953,7 @@ class Survivor extends Game {
          * @return True if the game is over, false otherwise.
          */
         public boolean isGameOver() {
-            return p1Score >= SCORE_LIMIT || p2Score >= SCORE_LIMIT;
+            return view.isGameOver();
         }
 
         /**
@@ -377,16 +966,19 @@ class Survivor extends Game {
                 brush.setColor(Color.BLACK);
                 brush.fillRect(0, 30, width, height);
                 brush.setColor(Color.WHITE);
-                brush.setFont(new Font("Arial", Font.BOLD, 50));
+                brush.setFont(TITLE_FONT);
                 brush.drawString("   GAME OVER", 200, 230);
 
-                Color c = p1Score >= SCORE_LIMIT ? Color.RED : Color.BLUE;
+                int winner = view.getWinner();
+                Color c = PLAYER_COLORS[winner % PLAYER_COLORS.length];
                 brush.setColor(c);
-                String gameWinner = p1Score >= SCORE_LIMIT ? "PLAYER 1 WINS!" :
-                        "PLAYER 2 WINS";
+                if (gameWinner == null) {
+                    gameWinner = winner == 0 ? "PLAYER 1 WINS!" :
+                            "PLAYER " + (winner + 1) + " WINS";
+                }
                 brush.drawString(gameWinner, 200, 280);
 
-                brush.setFont(new Font("Arial", Font.BOLD, 30));
+                brush.setFont(HINT_FONT);
                 brush.drawString("Restart Game To Play Again",
                         +200, 325);
             }
@@ -0,0 +1,97 @@
+package game;
+
+/**
+ * The TickClock class turns elapsed wall clock time into a whole number of
+ * fixed length simulation ticks. Time that is left over after the last whole
+ * tick is carried into the next call, so the simulation advances at the same
+ * rate no matter how often or how regularly the clock is polled.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class TickClock {
+    // Upper bound on ticks handed out per call, so a long stall (a dragged
+    // window, a debugger) skips time instead of freezing to catch up
+    private static final int MAX_CATCH_UP = 10;
+
+    // Instance variables for the tick length and the time not yet simulated
+    private final long tickNanos;
+    private long lastNanos = -1;
+    private long accumulator;
+    private long dropped;
+
+    /**
+     * Constructs a TickClock with the given tick length.
+     *
+     * @param inTickNanos The length of one tick in nanoseconds.
+     */
+    public TickClock(long inTickNanos) {
+        if (inTickNanos <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive");
+        }
+        tickNanos = inTickNanos;
+    }
+
+    /**
+     * Advances the clock to the given time and returns how many ticks are due.
+     * The first call only starts the clock.
+     *
+     * @param nowNanos The current time, as returned by System.nanoTime.
+     * @return The number of ticks to simulate now.
+     */
+    public int advance(long nowNanos) {
+        if (lastNanos < 0) {
+            lastNanos = nowNanos;
+            return 0;
+        }
+        accumulator += nowNanos - lastNanos;
+        lastNanos = nowNanos;
+
+        long due = accumulator / tickNanos;
+        if (due > MAX_CATCH_UP) {
+            dropped += due - MAX_CATCH_UP;
+            accumulator = 0;
+            return MAX_CATCH_UP;
+        }
+        accumulator -= due * tickNanos;
+        return (int) due;
+    }
+
+    /**
+     * Gets how far the clock is into the next tick, for interpolating between
+     * the last two simulated states.
+     *
+     * @return A fraction from 0 (inclusive) to 1 (exclusive).
+     */
+    public double getAlpha() {
+        return (double) accumulator / tickNanos;
+    }
+
+    /**
+     * Gets the time until the next tick is due.
+     *
+     * @return The remaining time in nanoseconds.
+     */
+    public long nanosUntilNextTick() {
+        return tickNanos - accumulator;
+    }
+
+    /**
+     * Gets the number of ticks that fell due but were skipped, because the
+     * clock fell more than MAX_CATCH_UP ticks behind.
+     *
+     * @return The number of skipped ticks.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gets the length of one tick.
+     *
+     * @return The tick length in nanoseconds.
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+}
@@ -0,0 +1,66 @@
+package game;
+
+/**
+ * The TrigTable class gives the sine and cosine of angles in degrees from
+ * tables worked out once. Players only ever turn by whole degrees, so the
+ * movement and the vertex transform of every tick are a table lookup instead
+ * of a call into Math.
+ *
+ * The tables are filled with StrictMath, which gives the same bits on every
+ * JVM and machine, unlike Math.sin and Math.cos. Everything the simulation
+ * does with the results is plain double arithmetic, which Java has defined
+ * exactly since version 17, so a match run from the same seed and inputs ends
+ * in the same state on every machine, down to the last bit. Angles that are
+ * not whole degrees, which only come up when painting an interpolated remote
+ * player, are worked out with StrictMath too, so they agree with the tables.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public final class TrigTable {
+    // One entry per whole degree
+    private static final int DEGREES = 360;
+    private static final double[] SIN = new double[DEGREES];
+    private static final double[] COS = new double[DEGREES];
+
+    static {
+        for (int d = 0; d < DEGREES; d++) {
+            SIN[d] = StrictMath.sin(Math.toRadians(d));
+            COS[d] = StrictMath.cos(Math.toRadians(d));
+        }
+    }
+
+    /**
+     * TrigTable is not instantiated.
+     */
+    private TrigTable() {
+    }
+
+    /**
+     * Gets the sine of an angle.
+     *
+     * @param degrees The angle in degrees, any value.
+     * @return The sine.
+     */
+    public static double sin(double degrees) {
+        int whole = (int) degrees;
+        if (whole == degrees) {
+            return SIN[Math.floorMod(whole, DEGREES)];
+        }
+        return StrictMath.sin(Math.toRadians(degrees % DEGREES));
+    }
+
+    /**
+     * Gets the cosine of an angle.
+     *
+     * @param degrees The angle in degrees, any value.
+     * @return The cosine.
+     */
+    public static double cos(double degrees) {
+        int whole = (int) degrees;
+        if (whole == degrees) {
+            return COS[Math.floorMod(whole, DEGREES)];
+        }
+        return StrictMath.cos(Math.toRadians(degrees % DEGREES));
+    }
+}
@@ -0,0 +1,59 @@
+package game;
+
+import java.awt.Graphics;
+
+/**
+ * The TypedCoin class is a coin whose look and value come from its
+ * CoinType, so a new kind of coin needs an entry in the CoinRegistry rather
+ * than a class of its own.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class TypedCoin extends Polygon implements Coin {
+
+    // The type the coin is drawn and valued by
+    private final CoinType type;
+
+    /**
+     * Constructs a TypedCoin of the given type at the specified position and
+     * rotation.
+     *
+     * @param inType     The type of the coin, which also gives its shape.
+     * @param inPosition The initial position of the coin.
+     * @param inRotation The initial rotation angle of the coin.
+     */
+    public TypedCoin(CoinType inType, Point inPosition, double inRotation) {
+        super(inType.getShape(), inPosition, inRotation);
+        type = inType;
+    }
+
+    /**
+     * Paints the coin in the color of its type.
+     *
+     * @param brush The graphics object used to paint the coin.
+     */
+    @Override
+    public void paint(Graphics brush) {
+        SpriteCache.getShared().fill(brush, this, type.getColor());
+    }
+
+    /**
+     * Gets the value of the coin's type.
+     *
+     * @return The coin value.
+     */
+    @Override
+    public int getCoinValue() {
+        return type.getValue();
+    }
+
+    /**
+     * Gets the type of the coin.
+     *
+     * @return The type.
+     */
+    public CoinType getType() {
+        return type;
+    }
+}
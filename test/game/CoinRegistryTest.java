@@ -0,0 +1,207 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the alias table CoinRegistry draws random respawns from: every draw
+ * the table can make is counted, and each type must come up exactly as often
+ * as its spawn weight says, with one type taking every weight, with types of
+ * no weight in between and with the largest weights allowed. Also tests that
+ * loading refuses files that do not describe valid coin types.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class CoinRegistryTest {
+    // Draws made from a registry too large to count every draw of
+    private static final int DRAWS = 1_000_000;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void everyDrawFollowsWeights() {
+        assertExact(registry(6, 1, 1));
+        assertExact(registry(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        assertExact(registry(1000, 1, 1, 1, 1, 1, 1, 1, 1, 1));
+        assertExact(registry(17, 17, 17));
+    }
+
+    @Test
+    public void oneTypeTakesEveryWeight() {
+        CoinRegistry registry = registry(0, 0, 5, 0);
+        assertExact(registry);
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(2, registry.sample(random));
+        }
+    }
+
+    @Test
+    public void typesWithoutWeightAreNeverDrawn() {
+        assertExact(registry(0, 3, 0, 0, 1, 0, 4, 0));
+        assertExact(registry(2, 0, 0, 0, 0, 0, 0, 0, 0, 7));
+    }
+
+    @Test
+    public void largestWeightsAllowed() {
+        // Three types may share up to Integer.MAX_VALUE / 3
+        int share = Integer.MAX_VALUE / 3;
+        int[] weights = {share / 7, 2 * (share / 7), 4 * (share / 7)};
+        assertSampled(registry(weights), weights, new Random(7));
+
+        int[] lopsided = {1, Integer.MAX_VALUE / 2 - 1};
+        CoinRegistry registry = registry(lopsided);
+        assertSampled(registry, lopsided, new Random(8));
+        assertEquals(0, registry.sample(new Counting(0)));
+        assertEquals(1, registry.sample(new Counting(Integer.MAX_VALUE - 2)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> registry(1, Integer.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void loadReadsTypesInOrder() throws IOException {
+        CoinRegistry registry = CoinRegistry.load(write("good",
+                "types = default, speed",
+                "default.value = 1", "default.color = #FFFF00",
+                "default.weight = 6",
+                "speed.value = 2", "speed.color = #00FF00",
+                "speed.shape = 0 -5, 5 0, 0 5, -5 0",
+                "speed.step = 2", "speed.maxStep = 6",
+                "speed.respawn = default"));
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getCode("speed"));
+        assertEquals(2, registry.getValue(1));
+        assertEquals(6, registry.stepAfter(1, 5));
+        assertEquals(0, registry.respawnOf(1, new Random(1)));
+        assertEquals(0, registry.respawnOf(0, new Random(1)));
+    }
+
+    @Test
+    public void loadRefusesBadFiles() {
+        assertRefused("respawns unknown type", write("unknown",
+                "types = default",
+                "default.value = 1", "default.color = #FFFF00",
+                "default.weight = 1", "default.respawn = gold"));
+        assertRefused("needs a value and a color", write("noValue",
+                "types = default", "default.color = #FFFF00"));
+        assertRefused("needs a value and a color", write("noColor",
+                "types = default", "default.value = 1"));
+        assertRefused("defined twice", write("twice",
+                "types = default, slow, default",
+                "default.value = 1", "default.color = #FFFF00",
+                "default.weight = 1",
+                "slow.value = -1", "slow.color = #FF0000"));
+        assertRefused("No types listed", write("empty", "default.value = 1"));
+        assertRefused("need a coin type with a spawn weight", write("noWeight",
+                "types = default", "default.value = 1",
+                "default.color = #FFFF00"));
+    }
+
+    /*
+    The following methods and class are private helpers for making
+    registries and counting their draws.
+    */
+
+    // "registry" makes a registry of types with the given spawn weights,
+    // all respawning at random.
+    private static CoinRegistry registry(int... weights) {
+        CoinType[] types = new CoinType[weights.length];
+        for (int t = 0; t < weights.length; t++) {
+            types[t] = new CoinType("type" + t, 1, Color.YELLOW,
+                    Simulation.COIN_POINTS, weights[t], 0, 0, 1,
+                    Integer.MAX_VALUE, null);
+        }
+        return new CoinRegistry(types);
+    }
+
+    // "assertExact" makes every draw the table can make once, so each type
+    // must come up in proportion to its weight with nothing left over.
+    private static void assertExact(CoinRegistry registry) {
+        int n = registry.size();
+        long total = 0;
+        int weighted = 0;
+        for (int t = 0; t < n; t++) {
+            total += registry.get(t).getWeight();
+            if (registry.get(t).getWeight() > 0) {
+                weighted++;
+            }
+        }
+        long[] counts = new long[n];
+        Counting every = new Counting(0);
+        for (long d = 0; d < weighted * total; d++) {
+            counts[registry.sample(every)]++;
+        }
+        for (int t = 0; t < n; t++) {
+            assertEquals((long) registry.get(t).getWeight() * weighted,
+                    counts[t], "type " + t);
+        }
+    }
+
+    // "assertSampled" draws at random and checks every type came up within
+    // five standard deviations of its share.
+    private static void assertSampled(CoinRegistry registry, int[] weights,
+            Random random) {
+        long total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int[] counts = new int[weights.length];
+        for (int d = 0; d < DRAWS; d++) {
+            counts[registry.sample(random)]++;
+        }
+        for (int t = 0; t < weights.length; t++) {
+            double share = (double) weights[t] / total;
+            double expected = share * DRAWS;
+            double spread = Math.sqrt(DRAWS * share * (1 - share));
+            assertTrue(Math.abs(counts[t] - expected) <= 5 * spread + 1,
+                    "type " + t + " came up " + counts[t] + " times, not "
+                    + expected);
+        }
+    }
+
+    private static void assertRefused(String reason, Path file) {
+        IOException exc = assertThrows(IOException.class,
+                () -> CoinRegistry.load(file));
+        assertTrue(exc.getMessage().contains(reason), exc.getMessage());
+    }
+
+    private Path write(String name, String... lines) {
+        try {
+            Path file = folder.resolve(name + ".properties");
+            Files.write(file, String.join("\n", lines)
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            return file;
+        } catch (IOException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    // A generator that counts up through every value below the bound, so a
+    // run of draws covers every column and threshold of the table
+    private static final class Counting extends Random {
+        private long next;
+
+        Counting(long first) {
+            next = first;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return (int) (next++ % bound);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the order of coins by id that CoinStore keeps beside its arrays: after
+ * random adds, removals, puts and restores the order and the lookup by id
+ * must agree with a plain list of the ids, and a client fed a long match
+ * through the snapshot codec must end up with the same coins as the server.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class CoinStoreTest {
+    // Changes made to the store, and snapshots kept on each side of the match
+    private static final int STEPS = 20_000;
+    private static final int HISTORY_SIZE = 64;
+
+    @Test
+    public void idOrderFollowsAddsRemovesAndRestores() {
+        CoinStore store = new CoinStore();
+        List<Integer> ids = new ArrayList<>();
+        Random random = new Random(17);
+        ByteBuffer saved = ByteBuffer.allocate(1 << 20);
+        List<Integer> savedIds = new ArrayList<>();
+        int nextId = 1;
+        boolean isSaved = false;
+
+        for (int step = 0; step < STEPS; step++) {
+            int change = random.nextInt(20);
+            if (change < 8 || ids.isEmpty()) {
+                while (ids.contains(nextId)) {
+                    nextId++;
+                }
+                int coinId = nextId++;
+                store.add(coinId, (byte) 0, coordinate(random), coordinate(random));
+                ids.add(coinId);
+            } else if (change < 15) {
+                int index = random.nextInt(ids.size());
+                store.remove(index);
+                ids.set(index, ids.get(ids.size() - 1));
+                ids.remove(ids.size() - 1);
+            } else if (change < 18) {
+                // Ids out of order, as a client copies in the coins it is sent
+                int coinId = nextId + random.nextInt(50);
+                if (!ids.contains(coinId)) {
+                    store.put(coinId, (byte) 0, coordinate(random), coordinate(random));
+                    ids.add(coinId);
+                }
+            } else if (change < 19) {
+                saved.clear();
+                store.save(saved);
+                savedIds = new ArrayList<>(ids);
+                isSaved = true;
+            } else if (isSaved) {
+                saved.flip();
+                store.restore(saved);
+                ids = new ArrayList<>(savedIds);
+                nextId = Math.max(nextId, 1 + savedIds.stream()
+                        .mapToInt(Integer::intValue).max().orElse(0));
+            }
+            // Reading the order between changes in only some steps leaves
+            // several changes for the next read to catch up on
+            if (random.nextInt(3) == 0) {
+                assertAgrees(ids, store, random, "step " + step);
+            }
+        }
+        assertAgrees(ids, store, random, "end");
+    }
+
+    @Test
+    public void clientCoinsMatchServerAfterLongMatch() {
+        Simulation simulation = new Simulation(Simulation.createPlayers(4), 7,
+                Simulation.DEFAULT_TICK_NANOS, 4000, 3000);
+        simulation.setScoreLimit(Integer.MAX_VALUE);
+        simulation.spawnCoins(2000);
+        SnapshotHistory serverHistory = new SnapshotHistory(HISTORY_SIZE);
+        SnapshotHistory clientHistory = new SnapshotHistory(HISTORY_SIZE);
+        SnapshotCodec codec = new SnapshotCodec();
+        RemoteMatch client = new RemoteMatch();
+        client.setWorldSize(4000, 3000);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        Random random = new Random(1);
+        int[] inputs = new int[4];
+        int ticks = 3000;
+
+        for (long tick = 1; tick <= ticks; tick++) {
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = random.nextInt(16) | Player.FORWARD;
+            }
+            simulation.tick(inputs);
+
+            Snapshot sent = serverHistory.slot(tick);
+            sent.capture(tick, simulation);
+            buffer.clear();
+            SnapshotCodec.encode(buffer, sent,
+                    tick == 1 ? null : serverHistory.get(tick - 1));
+            buffer.flip();
+            Snapshot received = clientHistory.slot(tick);
+            assertTrue(codec.decode(buffer, clientHistory, received),
+                    "tick " + tick);
+            client.applySnapshot(received, 0);
+            client.predict((int) tick, 0);
+            client.interpolate(0);
+        }
+        // Let the client's view catch up with the last snapshot
+        for (int k = 1; k <= 20; k++) {
+            client.predict(ticks + k, 0);
+        }
+        client.interpolate(0);
+
+        int pickups = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            pickups += simulation.getScore(i);
+        }
+        assertTrue(pickups > 20, "only " + pickups + " points scored");
+        int count = simulation.orderCoinsById();
+        assertEquals(count, client.orderCoinsById());
+        for (int n = 0; n < count; n++) {
+            int server = simulation.getOrderedCoin(n);
+            int local = client.getOrderedCoin(n);
+            String at = "coin " + n;
+            assertEquals(simulation.getCoinId(server), client.getCoinId(local), at);
+            assertEquals(simulation.getCoinType(server), client.getCoinType(local), at);
+            assertEquals(Snapshot.quantizePosition(simulation.getCoinX(server)),
+                    Snapshot.quantizePosition(client.getCoinX(local)), at);
+            assertEquals(Snapshot.quantizePosition(simulation.getCoinY(server)),
+                    Snapshot.quantizePosition(client.getCoinY(local)), at);
+        }
+    }
+
+    /*
+    The following methods are private helpers for checking a store against
+    the plain list of its ids.
+    */
+
+    // "assertAgrees" checks that the store holds the listed ids at the same
+    // indexes, that orderById gives them sorted, and that indexOf finds each
+    // of them and no id the store does not hold.
+    private static void assertAgrees(List<Integer> ids, CoinStore store,
+            Random random, String at) {
+        assertEquals(ids.size(), store.size(), at);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals((int) ids.get(i), store.getId(i), at);
+        }
+        List<Integer> sorted = new ArrayList<>(ids);
+        sorted.sort(null);
+        assertEquals(sorted.size(), store.orderById(), at);
+        for (int n = 0; n < sorted.size(); n++) {
+            assertEquals((int) sorted.get(n), store.getId(store.getOrdered(n)),
+                    at + " place " + n);
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i, store.indexOf(ids.get(i)), at);
+        }
+        int missing = random.nextInt(ids.size() + 100);
+        if (!ids.contains(missing)) {
+            assertEquals(-1, store.indexOf(missing), at + " id " + missing);
+        }
+    }
+
+    private static double coordinate(Random random) {
+        return random.nextDouble() * 800;
+    }
+}
@@ -0,0 +1,90 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the separating axis test of Polygon.collides against the vertex
+ * ray-casting test it replaced, with coins placed at random around players
+ * at random headings. Every overlap ray-casting finds must be found too, and
+ * the overlaps only the separating axis test finds must be real ones, where
+ * edges of the two shapes cross.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class CollisionTest {
+    // Placements tried, and how far from the player a coin may be put
+    private static final int TRIALS = 200_000;
+    private static final double REACH = 40;
+
+    @Test
+    public void separatingAxesAgreeWithRayCasting() {
+        Random random = new Random(13);
+        int overlaps = 0, edgeOnly = 0;
+        for (int trial = 0; trial < TRIALS; trial++) {
+            Player player = new Player(Simulation.PLAYER_POINTS,
+                    new Point(400, 300), random.nextInt(360));
+            TypedCoin coin = new TypedCoin(CoinRegistry.builtIn().get(0),
+                    new Point(400 + (random.nextDouble() * 2 - 1) * REACH,
+                            300 + (random.nextDouble() * 2 - 1) * REACH),
+                    random.nextInt(360));
+
+            boolean byRays = player.collidesByRayCasting(coin)
+                    || coin.collidesByRayCasting(player);
+            boolean edgesCross = edgesCross(player, coin);
+            boolean byAxes = player.collides(coin);
+            String at = "trial " + trial;
+
+            assertEquals(byRays || edgesCross, byAxes, at);
+            assertEquals(byAxes, coin.collides(player), at);
+            if (byAxes) {
+                overlaps++;
+                if (!byRays) {
+                    edgeOnly++;
+                }
+            }
+        }
+        System.out.printf("Collision: %d overlaps in %d trials, %d with "
+                + "only edges crossing%n", overlaps, TRIALS, edgeOnly);
+        assertTrue(overlaps > TRIALS / 20, overlaps + " overlaps");
+        assertTrue(edgeOnly > 0, "no edge-only overlaps");
+    }
+
+    /*
+    The following methods are private helpers for finding overlaps that no
+    vertex test sees.
+    */
+
+    // "edgesCross" checks every edge of one shape against every edge of the
+    // other.
+    private static boolean edgesCross(Polygon a, Polygon b) {
+        double[] ax = a.getXs(), ay = a.getYs();
+        double[] bx = b.getXs(), by = b.getYs();
+        int an = a.getPointCount(), bn = b.getPointCount();
+        for (int i = 0; i < an; i++) {
+            int i2 = (i + 1) % an;
+            for (int j = 0; j < bn; j++) {
+                int j2 = (j + 1) % bn;
+                if (cross(ax[i], ay[i], ax[i2], ay[i2], bx[j], by[j])
+                        * cross(ax[i], ay[i], ax[i2], ay[i2], bx[j2], by[j2]) < 0
+                        && cross(bx[j], by[j], bx[j2], by[j2], ax[i], ay[i])
+                        * cross(bx[j], by[j], bx[j2], by[j2], ax[i2], ay[i2]) < 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // "cross" gives the side of the line from (x1, y1) to (x2, y2) that the
+    // point (px, py) lies on, by sign.
+    private static double cross(double x1, double y1, double x2, double y2,
+            double px, double py) {
+        return (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1);
+    }
+}
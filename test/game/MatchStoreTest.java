@@ -0,0 +1,210 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a MatchStore comes back the same after it is closed and opened
+ * again, and that it recovers from what a crash can leave behind: a record
+ * cut off or garbled at the end of the log, an index that is missing or
+ * damaged, and an index saved before the last records were written.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class MatchStoreTest {
+    // A name long enough that a match of six such players does not fit in
+    // the first read getHistory makes of a record
+    private static final String LONG_NAME =
+            "a player with a name much longer than anybody would type in";
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void reopenedStoreKeepsLeaderboardAndHistory() throws Exception {
+        Path log = folder.resolve("results.log");
+        String before;
+        try (MatchStore store = new MatchStore(log)) {
+            recordMatches(store, 0, 12);
+            store.flush();
+            before = describe(store);
+        }
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(before, describe(store));
+            assertEquals("ann: 6 wins in 12 matches, 304 points",
+                    store.getLeaderboard(1).get(0).toString());
+            assertNull(store.getStanding("nobody"));
+
+            List<MatchResult> history = store.getHistory("ann", 3);
+            assertEquals(3, history.size());
+            assertEquals(12, history.get(0).getMatchId());
+            assertEquals(10, history.get(2).getMatchId());
+
+            // Every third match had six long names, more than one read
+            List<MatchResult> wide = store.getHistory(LONG_NAME + " 5", 10);
+            assertEquals(4, wide.size());
+            assertEquals(6, wide.get(0).getPlayerCount());
+            assertEquals(LONG_NAME + " 5", wide.get(0).getName(5));
+
+            // Match ids carry on after the ones already in the log
+            assertEquals(13, store.newMatchId());
+        }
+    }
+
+    @Test
+    public void tornLastRecordIsDropped() throws Exception {
+        Path log = folder.resolve("results.log");
+        String expected = writeAndDescribe(log, 4);
+        try (MatchStore store = new MatchStore(log)) {
+            recordMatches(store, 4, 1);
+        }
+        // As if the machine died while the last record was written, before
+        // the index was saved
+        Files.delete(index(log));
+        long size = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log,
+                StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(expected, describe(store));
+            assertTrue(Files.size(log) < size - 3);
+            recordMatches(store, 4, 1);
+        }
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(5, store.getStanding("ann").getMatches());
+        }
+    }
+
+    @Test
+    public void garbledLastRecordIsDropped() throws Exception {
+        Path log = folder.resolve("results.log");
+        String expected = writeAndDescribe(log, 4);
+        try (MatchStore store = new MatchStore(log)) {
+            recordMatches(store, 4, 1);
+        }
+        Files.delete(index(log));
+        long size = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, size - 10);
+            one.put(0, (byte) (one.get(0) ^ 0x5A)).rewind();
+            channel.write(one, size - 10);
+        }
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(expected, describe(store));
+        }
+    }
+
+    @Test
+    public void missingOrDamagedIndexIsRebuilt() throws Exception {
+        Path log = folder.resolve("results.log");
+        String expected = writeAndDescribe(log, 9);
+
+        Files.delete(index(log));
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(expected, describe(store));
+        }
+        Files.write(index(log), new byte[] {1, 2, 3, 4, 5, 6, 7});
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(expected, describe(store));
+        }
+        // A good index cut short reads past its end
+        byte[] saved = Files.readAllBytes(index(log));
+        Files.write(index(log), Arrays.copyOf(saved, saved.length / 2));
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(expected, describe(store));
+        }
+    }
+
+    @Test
+    public void staleIndexOnlyReplaysNewerRecords() throws Exception {
+        Path log = folder.resolve("results.log");
+        writeAndDescribe(log, 5);
+        Path old = folder.resolve("old.idx");
+        Files.copy(index(log), old);
+
+        String expected;
+        try (MatchStore store = new MatchStore(log)) {
+            recordMatches(store, 5, 4);
+            store.flush();
+            expected = describe(store);
+        }
+        // The index from before the last four matches, as a crash between
+        // two checkpoints leaves it
+        Files.copy(old, index(log), StandardCopyOption.REPLACE_EXISTING);
+        try (MatchStore store = new MatchStore(log)) {
+            assertEquals(expected, describe(store));
+            assertEquals(9, store.getStanding("ann").getMatches());
+        }
+    }
+
+    /*
+    The following methods are private helpers for filling a store and
+    describing what it holds.
+    */
+
+    // "recordMatches" records matches between ann, bob and cy, with the
+    // winner and scores following from the match number, some pickups in
+    // between, and every third match with six players with long names.
+    private static void recordMatches(MatchStore store, int first, int count)
+            throws IOException, InterruptedException {
+        for (int m = first; m < first + count; m++) {
+            long id = store.newMatchId();
+            store.recordPickup(id, m, m % 3, (byte) 0, 1);
+            String[] names;
+            int[] scores;
+            if (m % 3 == 2) {
+                names = new String[] {"ann", "bob", "cy", LONG_NAME + " 3",
+                        LONG_NAME + " 4", LONG_NAME + " 5"};
+                scores = new int[] {25, 3, 4, 5, 6, 7};
+            } else {
+                names = new String[] {"ann", "bob", "cy"};
+                scores = new int[] {25 + m % 2, 20 + m, 25 - m % 2};
+            }
+            int winner = m % 2 == 0 ? 0 : 2;
+            store.recordResult(new MatchResult(id, 1000 + m, 100 * m, winner,
+                    names, scores));
+        }
+        store.flush();
+    }
+
+    private static String writeAndDescribe(Path log, int matches)
+            throws IOException, InterruptedException {
+        try (MatchStore store = new MatchStore(log)) {
+            recordMatches(store, 0, matches);
+            return describe(store);
+        }
+    }
+
+    private static String describe(MatchStore store) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (MatchStore.Standing standing : store.getLeaderboard(100)) {
+            text.append(standing).append('\n');
+            for (MatchResult result : store.getHistory(standing.getName(), 100)) {
+                text.append("  ").append(result).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static Path index(Path log) {
+        return log.resolveSibling(log.getFileName() + ".idx");
+    }
+}
@@ -0,0 +1,142 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a recorded match plays back exactly: a seeded match between
+ * bots, with a player leaving and coming back, is recorded and its checksum
+ * kept after every tick, and playback must reach the same checksums whether
+ * it plays straight through or seeks forward, backward or onto a keyframe.
+ * Verify mode must find every keyframe matching.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class ReplayTest {
+    // Length of the recorded match and ticks between its keyframes
+    private static final int TICKS = 3000;
+    private static final int KEYFRAME_INTERVAL = 250;
+
+    @TempDir
+    Path folder;
+
+    // Instance variables for the recording and the live match's checksums
+    private Path file;
+    private long[] checksums;
+
+    @BeforeEach
+    public void recordMatch() throws IOException {
+        file = folder.resolve("match.replay");
+        Simulation simulation = new Simulation(Simulation.createPlayers(4), 21,
+                Simulation.DEFAULT_TICK_NANOS, 1600, 1200);
+        simulation.setScoreLimit(Integer.MAX_VALUE);
+        Bot[] bots = {Bot.create("greedy", 1), Bot.create("random", 2),
+                Bot.create("greedy", 3), Bot.create("random", 4)};
+        int[] inputs = new int[bots.length];
+        checksums = new long[TICKS + 1];
+
+        ReplayRecorder recorder = new ReplayRecorder(file, simulation,
+                KEYFRAME_INTERVAL);
+        checksums[0] = simulation.checksum();
+        for (int tick = 1; tick <= TICKS; tick++) {
+            if (tick == 700 || tick == 1400) {
+                simulation.setPlayerActive(3, tick == 1400);
+            }
+            for (int i = 0; i < bots.length; i++) {
+                inputs[i] = bots[i].decide(simulation, i);
+            }
+            recorder.record(inputs);
+            simulation.tick(inputs);
+            checksums[tick] = simulation.checksum();
+        }
+        recorder.close();
+        assertTrue(simulation.getScore(0) > 0, "the greedy bot scored nothing");
+    }
+
+    @Test
+    public void playingThroughMatchesLiveMatch() throws IOException {
+        ReplayPlayer replay = new ReplayPlayer(file);
+        assertEquals(TICKS, replay.getLength());
+        assertEquals(checksums[0], replay.getSimulation().checksum());
+        for (int tick = 1; tick <= TICKS; tick++) {
+            assertTrue(replay.step());
+            assertEquals(checksums[tick], replay.getSimulation().checksum(),
+                    "tick " + tick);
+        }
+        assertFalse(replay.step());
+    }
+
+    @Test
+    public void seekingMatchesPlayingToTheTick() throws IOException {
+        ReplayPlayer replay = new ReplayPlayer(file);
+        long[] targets = {
+            1234,                       // forward from the start
+            1300,                       // forward within the same stretch
+            2 * KEYFRAME_INTERVAL,      // backward onto a keyframe
+            2 * KEYFRAME_INTERVAL + 1,  // just past it
+            TICKS - 1,                  // far forward
+            700,                        // the tick the player left
+            0,                          // back to the start
+            TICKS,                      // the end
+            5 * KEYFRAME_INTERVAL - 1,  // just before a keyframe
+        };
+        for (long tick : targets) {
+            replay.seek(tick);
+            assertEquals(tick, replay.getPosition());
+            assertEquals(checksums[(int) tick], replay.getSimulation().checksum(),
+                    "seek to " + tick);
+        }
+        // Playing on after a seek carries on from the right state
+        replay.seek(1001);
+        assertEquals(499, replay.play(499));
+        assertEquals(checksums[1500], replay.getSimulation().checksum());
+    }
+
+    @Test
+    public void verifyFindsNoDesync() throws IOException {
+        ReplayPlayer replay = new ReplayPlayer(file);
+        replay.setVerify(true);
+        assertEquals(TICKS, replay.play(TICKS));
+        assertEquals(-1, replay.getFirstDesync());
+
+        String output = runMain(file.toString(), "--verify");
+        assertTrue(output.contains("All keyframes match"), output);
+        assertTrue(output.contains(String.format("Checksum: %08x",
+                checksums[TICKS])), output);
+
+        output = runMain(file.toString(), "--verify", "--seek", "1600");
+        assertTrue(output.contains("All keyframes match"), output);
+        assertTrue(output.contains(String.format("Checksum: %08x",
+                checksums[TICKS])), output);
+    }
+
+    /*
+    The following method is a private helper for running the replay player
+    the way it is run from the command line.
+    */
+
+    // "runMain" runs ReplayPlayer.main and gives back what it printed.
+    private static String runMain(String... args) throws IOException {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try {
+            ReplayPlayer.main(args);
+        } finally {
+            System.setOut(out);
+        }
+        return printed.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,173 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that SnapshotCodec.decode gives back exactly the snapshot encode was
+ * given: in full and as deltas, while coins are picked up and respawned and
+ * players come and go, and that a delta whose baseline is gone is refused.
+ * Also reports how many bytes a tick of a two player match takes.
+ *
+ * @author Samik Wangneo, Purab Shah
+ * @version 1.0
+ */
+public class SnapshotCodecTest {
+    // Snapshots kept on each side, as the server and clients keep them
+    private static final int HISTORY_SIZE = 64;
+
+    @Test
+    public void fullSnapshotRoundTrips() {
+        Simulation simulation = new Simulation(Simulation.createPlayers(4), 3,
+                Simulation.DEFAULT_TICK_NANOS);
+        simulation.spawnCoins(500);
+        Snapshot sent = new Snapshot();
+        sent.capture(1, simulation);
+
+        ByteBuffer buffer = ByteBuffer.allocate(SnapshotCodec.maxSize(sent, null));
+        SnapshotCodec.encode(buffer, sent, null);
+        buffer.flip();
+        Snapshot received = new Snapshot();
+        assertTrue(new SnapshotCodec().decode(buffer,
+                new SnapshotHistory(HISTORY_SIZE), received));
+        assertSame(sent, received);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void deltasRoundTripThroughPickupsAndSeatChanges() {
+        Simulation simulation = new Simulation(Simulation.createPlayers(4), 11,
+                Simulation.DEFAULT_TICK_NANOS);
+        simulation.setScoreLimit(Integer.MAX_VALUE);
+        simulation.spawnCoins(300);
+        SnapshotHistory serverHistory = new SnapshotHistory(HISTORY_SIZE);
+        SnapshotHistory clientHistory = new SnapshotHistory(HISTORY_SIZE);
+        SnapshotCodec codec = new SnapshotCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        Random random = new Random(5);
+        int[] inputs = new int[4];
+        int coinChanges = 0, seatChanges = 0;
+
+        for (long tick = 1; tick <= 3000; tick++) {
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = random.nextInt(16);
+            }
+            if (tick % 250 == 0) {
+                int seat = random.nextInt(4);
+                simulation.setPlayerActive(seat, !simulation.isPlayerActive(seat));
+                seatChanges++;
+            }
+            int before = simulation.getScore(0) + simulation.getScore(1)
+                    + simulation.getScore(2) + simulation.getScore(3);
+            simulation.tick(inputs);
+            int after = simulation.getScore(0) + simulation.getScore(1)
+                    + simulation.getScore(2) + simulation.getScore(3);
+            if (before != after) {
+                coinChanges++;
+            }
+
+            Snapshot sent = serverHistory.slot(tick);
+            sent.capture(tick, simulation);
+
+            // Baselines of every age the history still holds, and none
+            long age = tick % 7 == 0 ? tick : 1 + tick % (HISTORY_SIZE - 1);
+            Snapshot baseline = age >= tick ? null : clientHistory.get(tick - age);
+            buffer.clear();
+            SnapshotCodec.encode(buffer, sent, baseline == null ? null
+                    : serverHistory.get(baseline.tick));
+            buffer.flip();
+
+            Snapshot received = clientHistory.slot(tick);
+            assertTrue(codec.decode(buffer, clientHistory, received),
+                    "tick " + tick);
+            assertSame(sent, received);
+        }
+        assertTrue(coinChanges > 20, "only " + coinChanges + " pickups");
+        assertEquals(12, seatChanges);
+    }
+
+    @Test
+    public void deltaAgainstForgottenBaselineIsRefused() {
+        Simulation simulation = new Simulation(2);
+        SnapshotHistory serverHistory = new SnapshotHistory(HISTORY_SIZE);
+        Snapshot old = serverHistory.slot(1);
+        old.capture(1, simulation);
+        simulation.tick(new int[] {Player.FORWARD, Player.ROTATE_LEFT});
+        Snapshot sent = serverHistory.slot(2);
+        sent.capture(2, simulation);
+
+        ByteBuffer buffer = ByteBuffer.allocate(SnapshotCodec.maxSize(sent, old));
+        SnapshotCodec.encode(buffer, sent, old);
+        buffer.flip();
+        SnapshotHistory clientHistory = new SnapshotHistory(HISTORY_SIZE);
+        assertFalse(new SnapshotCodec().decode(buffer, clientHistory,
+                clientHistory.slot(2)));
+    }
+
+    @Test
+    public void twoPlayerTicksStaySmall() {
+        Simulation simulation = new Simulation(2);
+        simulation.setScoreLimit(Integer.MAX_VALUE);
+        SnapshotHistory history = new SnapshotHistory(HISTORY_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        Random random = new Random(9);
+        int[] inputs = new int[2];
+        long deltaBytes = 0;
+        int ticks = 5000;
+
+        Snapshot first = history.slot(1);
+        first.capture(1, simulation);
+        SnapshotCodec.encode(buffer, first, null);
+        int fullBytes = buffer.position();
+        for (long tick = 2; tick <= ticks; tick++) {
+            inputs[0] = random.nextInt(16);
+            inputs[1] = random.nextInt(16);
+            simulation.tick(inputs);
+            Snapshot sent = history.slot(tick);
+            sent.capture(tick, simulation);
+            buffer.clear();
+            SnapshotCodec.encode(buffer, sent, history.get(tick - 1));
+            deltaBytes += buffer.position();
+        }
+        double perTick = (double) deltaBytes / (ticks - 1);
+        System.out.printf("Snapshot: %d bytes in full, %.1f bytes per tick "
+                + "as deltas%n", fullBytes, perTick);
+        assertTrue(perTick < 24, perTick + " bytes per tick");
+        assertTrue(fullBytes < 200, fullBytes + " bytes in full");
+    }
+
+    /*
+    The following method is a private helper for comparing snapshots field
+    by field.
+    */
+
+    private static void assertSame(Snapshot expected, Snapshot actual) {
+        String at = "tick " + expected.tick;
+        assertEquals(expected.tick, actual.tick, at);
+        assertEquals(expected.scoreLimit, actual.scoreLimit, at);
+        assertEquals(expected.playerCount, actual.playerCount, at);
+        for (int i = 0; i < expected.playerCount; i++) {
+            String player = at + " player " + i;
+            assertEquals(expected.active[i], actual.active[i], player);
+            assertEquals(expected.x[i], actual.x[i], player);
+            assertEquals(expected.y[i], actual.y[i], player);
+            assertEquals(expected.rotation[i], actual.rotation[i], player);
+            assertEquals(expected.stepSize[i], actual.stepSize[i], player);
+            assertEquals(expected.score[i], actual.score[i], player);
+        }
+        assertEquals(expected.coinCount, actual.coinCount, at);
+        for (int c = 0; c < expected.coinCount; c++) {
+            String coin = at + " coin " + c;
+            assertEquals(expected.coinId[c], actual.coinId[c], coin);
+            assertEquals(expected.coinType[c], actual.coinType[c], coin);
+            assertEquals(expected.coinX[c], actual.coinX[c], coin);
+            assertEquals(expected.coinY[c], actual.coinY[c], coin);
+        }
+    }
+}